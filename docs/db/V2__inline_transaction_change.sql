@@ -0,0 +1,39 @@
+-- Migração do esquema antigo (id IDENTITY + tabela transaction_change) para o atual
+-- (id por sequence pooled + troco em exchange_transaction.change_coins).
+--
+-- O H2 em memória é recriado a cada subida pelo Hibernate; este script serve para bancos
+-- persistentes (H2 em arquivo ou PostgreSQL). Rode com a aplicação parada.
+
+-- 1) Coluna de troco codificado ("moeda:quantidade" separado por vírgula) e máquina de origem
+ALTER TABLE exchange_transaction ADD COLUMN change_coins VARCHAR(255);
+ALTER TABLE exchange_transaction ADD COLUMN machine_id VARCHAR(255);
+
+-- 2) Copia o troco da tabela filha
+-- H2:
+UPDATE exchange_transaction t
+SET change_coins = (SELECT LISTAGG(c.coin_value || ':' || c.coin_count, ',') WITHIN GROUP (ORDER BY c.coin_value DESC)
+                    FROM transaction_change c
+                    WHERE c.transaction_id = t.id);
+-- PostgreSQL:
+-- UPDATE exchange_transaction t
+-- SET change_coins = (SELECT string_agg(c.coin_value || ':' || c.coin_count, ',' ORDER BY c.coin_value DESC)
+--                     FROM transaction_change c
+--                     WHERE c.transaction_id = t.id);
+
+DROP TABLE transaction_change;
+
+-- 3) Sequence com incremento igual ao allocationSize da entidade (50). O otimizador pooled do Hibernate
+--    (o padrão, mantido na aplicação) trata o valor lido como o topo de um bloco e entrega os ids de
+--    valor - 49 até valor; por isso a sequence recomeça em MAX(id) + 50, e o primeiro bloco é
+--    MAX(id) + 1 .. MAX(id) + 50, sem colidir com as linhas existentes.
+CREATE SEQUENCE exchange_transaction_seq START WITH 1 INCREMENT BY 50;
+-- H2:
+ALTER SEQUENCE exchange_transaction_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM exchange_transaction);
+-- PostgreSQL:
+-- SELECT setval('exchange_transaction_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM exchange_transaction), false);
+
+-- 4) A coluna id deixa de ser IDENTITY
+-- H2:
+ALTER TABLE exchange_transaction ALTER COLUMN id DROP IDENTITY;
+-- PostgreSQL:
+-- ALTER TABLE exchange_transaction ALTER COLUMN id DROP IDENTITY IF EXISTS;
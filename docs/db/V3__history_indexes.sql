@@ -0,0 +1,7 @@
+-- Índices usados pelos filtros e pela paginação por cursor (keyset) do histórico.
+-- Com intervalo de data a página é ordenada por (transaction_date, id) e o cursor busca
+-- transaction_date > d OR (transaction_date = d AND id > cursor); com intervalo de valor, o mesmo com
+-- (amount, id). Assim o filtro e o cursor são um range scan no índice, já na ordem da página.
+CREATE INDEX idx_exchange_transaction_date ON exchange_transaction (transaction_date, id);
+CREATE INDEX idx_exchange_transaction_amount ON exchange_transaction (amount, id);
+CREATE INDEX idx_exchange_transaction_machine ON exchange_transaction (machine_id, id);
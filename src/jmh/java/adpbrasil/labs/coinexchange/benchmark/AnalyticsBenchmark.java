@@ -0,0 +1,63 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.analytics.ExchangeRollups;
+import adpbrasil.labs.coinexchange.config.AnalyticsProperties;
+import adpbrasil.labs.coinexchange.dto.AnalyticsBucket;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agregados do /analytics: custo que cada troca paga para alimentar os buckets e consultas sobre 30 dias
+ * de trocas (uma a cada 5 segundos, ~520k): 24h por minuto, 30 dias por hora e 30 dias por dia.
+ * O equivalente lendo o histórico está em {@link HistoryQueryBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+
+    private static final LocalDateTime END = LocalDateTime.of(2025, 3, 31, 0, 0);
+    private static final Map<Integer, Integer> CHANGE = Map.of(25, 36, 10, 8, 1, 20);
+
+    private ExchangeRollups rollups;
+    private LocalDateTime live;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.setMinuteRetention(Duration.ofDays(31));
+        rollups = new ExchangeRollups(properties);
+        for (LocalDateTime date = END.minusDays(30); date.isBefore(END); date = date.plusSeconds(5)) {
+            rollups.recordExchange("default", date, 10, date.getSecond() % 10 == 0, CHANGE);
+        }
+        live = END.plusDays(1);
+    }
+
+    @Benchmark
+    public void record() {
+        rollups.recordExchange("live", live, 10, true, CHANGE);
+    }
+
+    @Benchmark
+    public List<AnalyticsBucket> lastDayByMinute() {
+        return rollups.query("default", ExchangeRollups.Resolution.MINUTE, END.minusDays(1), END);
+    }
+
+    @Benchmark
+    public List<AnalyticsBucket> monthByHour() {
+        return rollups.query("default", ExchangeRollups.Resolution.HOUR, END.minusDays(30), END);
+    }
+
+    @Benchmark
+    public List<AnalyticsBucket> monthByDay() {
+        return rollups.query("default", ExchangeRollups.Resolution.DAY, END.minusDays(30), END);
+    }
+}
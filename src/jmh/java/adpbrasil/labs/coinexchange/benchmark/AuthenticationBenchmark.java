@@ -0,0 +1,54 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.config.CredentialCacheProperties;
+import adpbrasil.labs.coinexchange.security.CachingAuthenticationProvider;
+import adpbrasil.labs.coinexchange.security.CredentialCache;
+import adpbrasil.labs.coinexchange.security.InvalidatingUserDetailsManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de autenticar uma requisição basic auth com a senha em BCrypt (como fica depois da migração do {noop}),
+ * com e sem o {@link CredentialCache}. Mesma montagem do SecurityConfig.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private ProviderManager authenticationManager;
+
+    @Setup
+    public void setUp() {
+        PasswordEncoder encoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        CredentialCache cache = new CredentialCache(new CredentialCacheProperties());
+        InvalidatingUserDetailsManager users = new InvalidatingUserDetailsManager(cache,
+                User.withUsername("klinton").password(encoder.encode("klinton123")).roles("USER").build());
+        DaoAuthenticationProvider dao = new DaoAuthenticationProvider(encoder);
+        dao.setUserDetailsService(users);
+        dao.setUserDetailsPasswordService(users);
+        AuthenticationProvider provider = cached ? new CachingAuthenticationProvider(dao, cache) : dao;
+        authenticationManager = new ProviderManager(provider);
+    }
+
+    @Benchmark
+    public Authentication authenticate() {
+        return authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated("klinton", "klinton123"));
+    }
+}
@@ -0,0 +1,81 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.CoinExchangeApplication;
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.reactive.ReactiveCoinExchangeApplication;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utilitários compartilhados pelos benchmarks.
+ */
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Serviço de troca sem banco: as transações são aceitas e descartadas, isolando o caminho de troca.
+     */
+    static ExchangeService isolatedService(CoinProperties properties) {
+        return ExchangeService.builder(properties, new DiscardingTransactionStore()).build();
+    }
+
+    private static final class DiscardingTransactionStore implements TransactionStore {
+        @Override
+        public ExchangeTransaction save(ExchangeTransaction transaction) {
+            return transaction;
+        }
+
+        @Override
+        public void saveAll(List<ExchangeTransaction> transactions) {
+        }
+
+        @Override
+        public List<ExchangeTransaction> find(TransactionFilter filter, Long afterId, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public long forEach(TransactionFilter filter, TransactionVisitor visitor) {
+            return 0;
+        }
+    }
+
+    /**
+     * Sobe a aplicação completa (H2 em memória, porta aleatória) com um banco exclusivo do benchmark.
+     * As propriedades entram como argumentos de linha de comando para ter precedência sobre o application.properties.
+     */
+    static ConfigurableApplicationContext startApplication(String database, String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "spring.h2.console.enabled=false",
+                "logging.level.root=WARN",
+                "logging.level.org.springframework.security=WARN"));
+        all.addAll(List.of(properties));
+        return new SpringApplicationBuilder(CoinExchangeApplication.class)
+                .run(all.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    /**
+     * Sobe a variante reativa (WebFlux + R2DBC, H2 em memória exclusivo), em porta aleatória.
+     */
+    static ConfigurableApplicationContext startReactiveApplication(String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.main.web-application-type=reactive",
+                "logging.level.root=WARN",
+                "logging.level.org.springframework.security=WARN"));
+        all.addAll(List.of(properties));
+        return new SpringApplicationBuilder(ReactiveCoinExchangeApplication.class)
+                .run(all.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+}
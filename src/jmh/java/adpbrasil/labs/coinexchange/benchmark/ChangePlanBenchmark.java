@@ -0,0 +1,65 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.inventory.ChangeEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Só o cálculo do plano de troco, nos três caminhos do ChangeEngine: plano em cache,
+ * mochila limitada (estoque não cobre o plano em cache) e falha rápida por valor insuficiente.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangePlanBenchmark {
+
+    private static final int[] COINS = {25, 10, 5, 1};
+    private static final int[] BILLS = {1, 2, 5, 10, 20, 50, 100};
+
+    @Param({"10", "100"})
+    public int amount;
+
+    private ChangeEngine engine;
+    private int cents;
+    private int[] fullStock;
+    private int[] noQuarters;
+    private int[] scarce;
+
+    @Setup
+    public void setUp() {
+        engine = new ChangeEngine(COINS, BILLS);
+        cents = amount * 100;
+        fullStock = new int[]{100_000, 100_000, 100_000, 100_000};
+        noQuarters = new int[]{0, 100_000, 100_000, 100_000};
+        scarce = new int[]{1, 1, 1, 1};
+    }
+
+    @Benchmark
+    public int[] cachedMinimal() {
+        return engine.plan(cents, fullStock, true);
+    }
+
+    @Benchmark
+    public int[] cachedMaximal() {
+        return engine.plan(cents, fullStock, false);
+    }
+
+    @Benchmark
+    public int[] boundedMinimal() {
+        return engine.plan(cents, noQuarters, true);
+    }
+
+    @Benchmark
+    public int[] boundedMaximal() {
+        return engine.plan(cents + 1, fullStock, false);
+    }
+
+    @Benchmark
+    public int[] insufficient() {
+        return engine.plan(cents, scarce, true);
+    }
+}
@@ -0,0 +1,72 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara um resultado JMH (-rf json) com o baseline versionado e aponta regressões.
+ *
+ * Uso: CompareBaseline &lt;baseline.json&gt; &lt;resultado.json&gt; [tolerância em %, padrão 10]
+ * Sai com código 1 se algum benchmark piorou além da tolerância.
+ */
+public class CompareBaseline {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareBaseline <baseline.json> <result.json> [tolerance %]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonNode> baseline = load(new File(args[0]));
+        Map<String, JsonNode> current = load(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode after = entry.getValue();
+            double score = after.path("primaryMetric").path("score").asDouble();
+            String unit = after.path("primaryMetric").path("scoreUnit").asText();
+            if (before == null) {
+                System.out.printf("NEW        %-90s %14.3f %s%n", entry.getKey(), score, unit);
+                continue;
+            }
+            double baseScore = before.path("primaryMetric").path("score").asDouble();
+            // Em throughput maior é melhor; nos modos de tempo, menor é melhor
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            double change = (score - baseScore) / baseScore * 100.0;
+            double worse = higherIsBetter ? -change : change;
+            String verdict = worse > tolerance ? "REGRESSION" : worse < -tolerance ? "IMPROVED" : "OK";
+            if (worse > tolerance) {
+                regressions++;
+            }
+            System.out.printf("%-10s %-90s %14.3f -> %14.3f %s (%+.1f%%)%n",
+                    verdict, entry.getKey(), baseScore, score, unit, change);
+        }
+        System.out.printf("%d regression(s) above %.1f%%%n", regressions, tolerance);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> load(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            results.put(key(result), result);
+        }
+        return results;
+    }
+
+    // Nome do benchmark + parâmetros + threads identificam a mesma medição entre execuções
+    private static String key(JsonNode result) {
+        Map<String, String> params = new TreeMap<>();
+        result.path("params").fields().forEachRemaining(e -> params.put(e.getKey(), e.getValue().asText()));
+        String name = result.path("benchmark").asText().replace("adpbrasil.labs.coinexchange.benchmark.", "");
+        return name + (params.isEmpty() ? "" : params.toString()) + " t=" + result.path("threads").asInt();
+    }
+}
@@ -0,0 +1,53 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.controller.VersionedResponseCache;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * O que uma leitura de /status custa no servidor: montar e serializar a resposta (antes, em toda leitura,
+ * e hoje quando a versão mudou), devolver os bytes já serializados da versão e responder 304 a um
+ * If-None-Match com o ETag atual. Sem HTTP: a latência de rede da máquina de benchmark dominaria.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConditionalGetBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ExchangeService exchangeService;
+    private VersionedResponseCache responseCache;
+    private String etag;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        exchangeService = Benchmarks.isolatedService(new CoinProperties());
+        responseCache = new VersionedResponseCache(objectMapper);
+        etag = responseCache.etag(exchangeService.getMachineVersion("default"));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(exchangeService.getStatus("default"));
+    }
+
+    @Benchmark
+    public byte[] cachedVersion() {
+        long version = exchangeService.getMachineVersion("default");
+        return responseCache.body("status:default", version, () -> exchangeService.getStatus("default"));
+    }
+
+    @Benchmark
+    public boolean notModified() {
+        return etag.equals(responseCache.etag(exchangeService.getMachineVersion("default")));
+    }
+}
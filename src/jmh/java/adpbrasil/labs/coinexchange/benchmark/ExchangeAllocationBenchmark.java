@@ -0,0 +1,106 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import adpbrasil.labs.coinexchange.exception.InsufficientCoinsException;
+import adpbrasil.labs.coinexchange.inventory.ChangeEngine;
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import adpbrasil.labs.coinexchange.inventory.DenominationCatalog;
+import adpbrasil.labs.coinexchange.inventory.Reservation;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alocação por troca na montagem e escrita da resposta; rodar com -prof gc e comparar gc.alloc.rate.norm
+ * (bytes por operação). "legacy" é o caminho antigo (HashMap com chaves Integer e BeanSerializer),
+ * "compact" o atual (CoinChange sobre o plano e templates pré-codificados), e exchange o
+ * ExchangeService.exchange() completo, sem banco, mais a escrita da resposta.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExchangeAllocationBenchmark {
+
+    // Como o conversor do Spring: escreve no stream da resposta sem fechá-lo
+    private final ObjectMapper objectMapper = new ObjectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final OutputStream sink = OutputStream.nullOutputStream();
+    private CoinInventory inventory;
+    private int[] plan;
+    private ExchangeService exchangeService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CoinProperties properties = new CoinProperties();
+        properties.setInitialQuantity(100_000_000);
+        DenominationCatalog catalog = DenominationCatalog.from(properties);
+        inventory = new CoinInventory(catalog, 100);
+        // Troco de 37 dólares pelo plano real (mínimo de moedas, estoque de sobra)
+        ChangeEngine engine = new ChangeEngine(catalog.coins(), catalog.bills());
+        Reservation reservation = inventory.reserve(stock -> engine.plan(3700, stock, true));
+        plan = reservation.plan();
+        exchangeService = Benchmarks.isolatedService(properties);
+    }
+
+    @Setup(Level.Iteration)
+    public void refill() {
+        // Sem reposição as moedas de 25 acabam no meio da medição e o plano sai da mochila em vez do cache
+        exchangeService.resetInventory();
+    }
+
+    @Benchmark
+    public void legacyResponse() throws IOException {
+        Map<Integer, Integer> change = new HashMap<>();
+        for (int i = 0; i < plan.length; i++) {
+            if (plan[i] > 0) {
+                change.put(inventory.denomination(i), plan[i]);
+            }
+        }
+        objectMapper.writeValue(sink, new LegacyResponse("Exchange successful.", change));
+    }
+
+    @Benchmark
+    public void compactResponse() throws IOException {
+        objectMapper.writeValue(sink, new ExchangeResponse(ExchangeResponse.SUCCESS, inventory.toChange(plan)));
+    }
+
+    @Benchmark
+    public void exchange() throws IOException {
+        try {
+            objectMapper.writeValue(sink, exchangeService.exchange(10, true, false));
+        } catch (InsufficientCoinsException e) {
+            exchangeService.resetInventory();
+        }
+    }
+
+    /**
+     * Forma da resposta antes do serializador próprio: getters e Map genérico.
+     */
+    public static class LegacyResponse {
+        private final String message;
+        private final Map<Integer, Integer> change;
+
+        public LegacyResponse(String message, Map<Integer, Integer> change) {
+            this.message = message;
+            this.change = change;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Map<Integer, Integer> getChange() {
+            return change;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import adpbrasil.labs.coinexchange.exception.InsufficientCoinsException;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminho completo de ExchangeService.exchange() sem banco: validação, plano, reserva,
+ * montagem da transação e registro da cédula. Roda com 1, 4 e todas as threads disponíveis.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExchangeBenchmark {
+
+    @Param({"true", "false"})
+    public boolean minimal;
+
+    @Param({"false", "true"})
+    public boolean allowMultipleBills;
+
+    private ExchangeService exchangeService;
+    private int amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CoinProperties properties = new CoinProperties();
+        properties.setInitialQuantity(100_000_000);
+        exchangeService = Benchmarks.isolatedService(properties);
+        // Com várias cédulas o valor não é uma cédula válida, como no uso real
+        amount = allowMultipleBills ? 37 : 10;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ExchangeResponse singleThread() {
+        return exchange();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ExchangeResponse fourThreads() {
+        return exchange();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ExchangeResponse maxThreads() {
+        return exchange();
+    }
+
+    private ExchangeResponse exchange() {
+        try {
+            return exchangeService.exchange(amount, minimal, allowMultipleBills);
+        } catch (InsufficientCoinsException e) {
+            // Estoque esgotado (raro com 10^8 moedas): repõe e segue
+            exchangeService.resetInventory();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * filterTransactionHistory contra tabelas de tamanhos diferentes. As linhas são geradas direto no H2
+ * (uma por segundo a partir de 2024-01-01, valores 1..100, máquinas m0..m9).
+ *
+ * 10M de linhas exige heap maior: -p rows=10000000 -jvmArgsAppend -Xmx4g
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryQueryBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private ExchangeService exchangeService;
+    private long middleId;
+    private LocalDateTime middleDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = Benchmarks.startApplication("history-" + rows);
+        exchangeService = context.getBean(ExchangeService.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO exchange_transaction (id, machine_id, amount, minimal, change_coins, transaction_date) "
+                + "SELECT X, CONCAT('m', MOD(X, 10)), MOD(X, 100) + 1, MOD(X, 2) = 0, '25:4', "
+                + "DATEADD(SECOND, X, TIMESTAMP '2024-01-01 00:00:00') FROM SYSTEM_RANGE(1, ?)", rows);
+        middleId = rows / 2;
+        middleDate = START.plusSeconds(middleId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ExchangeTransaction> firstPage() {
+        return exchangeService.filterTransactionHistory(null, null, null, null, null, null, null, 100);
+    }
+
+    @Benchmark
+    public List<ExchangeTransaction> deepPage() {
+        return exchangeService.filterTransactionHistory(null, null, null, null, null, null, middleId, 100);
+    }
+
+    @Benchmark
+    public List<ExchangeTransaction> amountFilter() {
+        return exchangeService.filterTransactionHistory(null, null, 50, 50, null, null, null, 100);
+    }
+
+    @Benchmark
+    public List<ExchangeTransaction> dateRangeAndMachine() {
+        return exchangeService.filterTransactionHistory(middleDate, middleDate.plusHours(1), null, null, null, "m3", null, 100);
+    }
+}
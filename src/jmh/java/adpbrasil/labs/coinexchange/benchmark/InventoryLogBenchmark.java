@@ -0,0 +1,93 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.persistence.InventoryEventLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Log de eventos do inventário: custo de um append (o que cada troca paga com coin.inventory-log.enabled)
+ * e tempo de abrir um log com N eventos, que com snapshot a cada 1M eventos deve ficar praticamente
+ * constante em N. 50M eventos: -p events=50000000 (~1,5 GB em disco durante o setup).
+ */
+@Fork(1)
+public class InventoryLogBenchmark {
+
+    private static final int[] PLAN = {1, 0, 1, 3};
+
+    @State(Scope.Benchmark)
+    public static class History {
+        @Param({"1000000", "10000000"})
+        public long events;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("inventory-log-");
+            try (InventoryEventLog log = InventoryEventLog.open(directory, PLAN.length, 1_000_000)) {
+                log.append(InventoryEventLog.Type.REPLENISH, false, 0, new int[]{0, 0, 0, 0});
+                // Pula o snapshot exatamente no fim, para sempre sobrar uma cauda a reaplicar
+                for (long n = 1; n < events + 777; n++) {
+                    log.append(InventoryEventLog.Type.EXCHANGE, false, 1, PLAN);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Appender {
+        Path directory;
+        InventoryEventLog log;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("inventory-log-append-");
+            log = InventoryEventLog.open(directory, PLAN.length, 1_000_000);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            log.close();
+            delete(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public InventoryEventLog.State recover(History history) throws IOException {
+        try (InventoryEventLog log = InventoryEventLog.open(history.directory, PLAN.length, 1_000_000)) {
+            return log.state();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public void append(Appender appender) throws IOException {
+        appender.log.append(InventoryEventLog.Type.EXCHANGE, false, 1, PLAN);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
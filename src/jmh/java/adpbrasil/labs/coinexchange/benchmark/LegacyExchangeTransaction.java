@@ -0,0 +1,40 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * A transação como era antes da sequence e da coluna change_coins: id IDENTITY e o troco numa tabela
+ * filha (transaction_change). Sem anotações, para não entrar no scan de entidades da aplicação; o
+ * mapeamento está em legacy-transaction-orm.xml e só o {@link TransactionModelBenchmark} o carrega.
+ */
+public class LegacyExchangeTransaction {
+
+    private Long id;
+
+    private String machineId;
+
+    private int amount;
+
+    private boolean minimal;
+
+    private Map<Integer, Integer> change;
+
+    private LocalDateTime transactionDate;
+
+    protected LegacyExchangeTransaction() {
+    }
+
+    LegacyExchangeTransaction(String machineId, int amount, boolean minimal, Map<Integer, Integer> change,
+                              LocalDateTime transactionDate) {
+        this.machineId = machineId;
+        this.amount = amount;
+        this.minimal = minimal;
+        this.change = change;
+        this.transactionDate = transactionDate;
+    }
+
+    Map<Integer, Integer> getChange() {
+        return change;
+    }
+}
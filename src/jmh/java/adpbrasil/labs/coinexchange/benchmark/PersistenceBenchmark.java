@@ -0,0 +1,77 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.dto.BulkExchangeResponse;
+import adpbrasil.labs.coinexchange.dto.ExchangeRequest;
+import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import adpbrasil.labs.coinexchange.exception.InsufficientCoinsException;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Troca com gravação real no H2, nos dois modos de persistência. Em WRITE_BEHIND o offer-timeout alto
+ * faz quem chama esperar por espaço no buffer em vez de ser recusado, então o número medido é a vazão
+ * sustentada do writer e não a velocidade de recusa.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    @Param({"SYNC", "WRITE_BEHIND"})
+    public String mode;
+
+    private static final int BULK_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private List<ExchangeRequest> bulk;
+    private ExchangeService exchangeService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = Benchmarks.startApplication("persistence-" + mode,
+                "coin.persistence.mode=" + mode,
+                "coin.persistence.offer-timeout=10s",
+                "coin.initialQuantity=100000000");
+        exchangeService = context.getBean(ExchangeService.class);
+        bulk = Collections.nCopies(BULK_SIZE, new ExchangeRequest(10, false, true));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ExchangeResponse exchange() {
+        try {
+            return exchangeService.exchange(10, true, false);
+        } catch (InsufficientCoinsException e) {
+            exchangeService.resetInventory();
+            return null;
+        }
+    }
+
+    /**
+     * Mesmas trocas em lotes de 100 pelo endpoint bulk; o score é por troca, comparável ao de exchange().
+     */
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BULK_SIZE)
+    public BulkExchangeResponse bulkExchange() {
+        try {
+            return exchangeService.exchangeBulk(bulk, true);
+        } catch (InsufficientCoinsException e) {
+            exchangeService.resetInventory();
+            return null;
+        }
+    }
+}
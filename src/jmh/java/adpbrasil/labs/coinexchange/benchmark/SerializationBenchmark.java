@@ -0,0 +1,48 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialização JSON de ExchangeResponse, como o controller devolve na resposta.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ExchangeResponse singleCoin;
+    private ExchangeResponse mixedCoins;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        singleCoin = new ExchangeResponse("Exchange successful.", Map.of(25, 40));
+        Map<Integer, Integer> change = new HashMap<>();
+        change.put(25, 3);
+        change.put(10, 1);
+        change.put(5, 1);
+        change.put(1, 3);
+        mixedCoins = new ExchangeResponse("Exchange successful.", change);
+    }
+
+    @Benchmark
+    public byte[] singleCoin() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(singleCoin);
+    }
+
+    @Benchmark
+    public byte[] mixedCoins() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(mixedCoins);
+    }
+}
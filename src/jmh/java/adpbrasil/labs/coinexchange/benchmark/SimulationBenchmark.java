@@ -0,0 +1,51 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.config.SimulationProperties;
+import adpbrasil.labs.coinexchange.dto.SimulationResponse;
+import adpbrasil.labs.coinexchange.fleet.MachineRegistry;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import adpbrasil.labs.coinexchange.simulation.ReplenishmentSimulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uma requisição do /simulation: 1000 simulações no pool fork-join, com a demanda uniforme sobre as cédulas
+ * (sem histórico) e 24h de janela alvo. Com 10k moedas de cada cada simulação faz ~1000 trocas até esgotar.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int initialQuantity;
+
+    private ReplenishmentSimulator simulator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TransactionStore emptyHistory = (TransactionStore) Proxy.newProxyInstance(
+                TransactionStore.class.getClassLoader(),
+                new Class<?>[]{TransactionStore.class},
+                (proxy, method, args) -> "forEach".equals(method.getName()) ? 0L : null);
+        CoinProperties coinProperties = new CoinProperties();
+        simulator = new ReplenishmentSimulator(new SimulationProperties(), coinProperties,
+                new MachineRegistry(coinProperties), emptyHistory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        simulator.close();
+    }
+
+    @Benchmark
+    public SimulationResponse thousandRuns() {
+        return simulator.simulate(MachineRegistry.DEFAULT_MACHINE, 1000, initialQuantity, false, 24.0, 1L);
+    }
+}
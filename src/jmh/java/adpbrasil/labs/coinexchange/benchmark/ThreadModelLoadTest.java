@@ -0,0 +1,153 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Teste de carga HTTP comparando, na mesma máquina, o Tomcat com platform threads, com virtual threads
+ * (spring.threads.virtual.enabled) e a variante reativa (ReactiveCoinExchangeApplication, Netty + R2DBC).
+ *
+ * Para cada modo sobe a aplicação, e para cada nível de concorrência dispara N clientes que fazem
+ * POST /api/exchange em sequência. Reporta vazão, p50/p99/máximo de latência e erros, e ao final a
+ * maior concorrência atendida sem erros com p99 dentro do SLO.
+ *
+ * Virtual threads exigem rodar em Java 21+: mvn -Pjmh test-compile exec:exec@loadtest -Dloadtest.java=/jdk21/bin/java
+ * Argumentos (-Dloadtest.args): levels=16,64,256,1024 requests=20 slo-ms=100 modes=platform,virtual,reactive
+ */
+public class ThreadModelLoadTest {
+
+    private static final String BODY = "{ \"amount\": 10, \"allowMultipleBills\": false, \"minimal\": true }";
+    private static final String AUTH = "Basic " + Base64.getEncoder()
+            .encodeToString("klinton:klinton123".getBytes(StandardCharsets.UTF_8));
+
+    public static void main(String[] args) throws Exception {
+        int[] levels = {16, 64, 256, 1024};
+        int requestsPerClient = 20;
+        long sloMillis = 100;
+        List<String> modes = List.of("platform", "virtual", "reactive");
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "levels" -> levels = Arrays.stream(kv[1].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "requests" -> requestsPerClient = Integer.parseInt(kv[1]);
+                case "slo-ms" -> sloMillis = Long.parseLong(kv[1]);
+                case "modes" -> modes = List.of(kv[1].split(","));
+                default -> throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        if (Runtime.version().feature() < 21) {
+            System.out.println("WARNING: running on Java " + Runtime.version().feature()
+                    + "; spring.threads.virtual.enabled has no effect before Java 21.");
+        }
+
+        List<String> summary = new ArrayList<>();
+        for (String mode : modes) {
+            ConfigurableApplicationContext context = switch (mode) {
+                case "platform", "virtual" -> Benchmarks.startApplication("loadtest-" + mode,
+                        "spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                        "coin.initialQuantity=100000000");
+                case "reactive" -> Benchmarks.startReactiveApplication("coin.initialQuantity=100000000");
+                default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+            };
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            URI uri = URI.create("http://localhost:" + port + "/api/exchange");
+            int maxWithinSlo = 0;
+            System.out.printf("%n%-9s %6s %9s %7s %10s %9s %9s %9s%n",
+                    "mode", "conc", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+            try {
+                run(uri, 16, requestsPerClient); // aquecimento
+                for (int level : levels) {
+                    Result result = run(uri, level, requestsPerClient);
+                    System.out.printf("%-9s %6d %9d %7d %10.0f %9.2f %9.2f %9.2f%n", mode, level,
+                            result.latencies.length, result.errors, result.throughput(),
+                            result.percentile(0.50), result.percentile(0.99), result.percentile(1.0));
+                    if (result.errors == 0 && result.percentile(0.99) <= sloMillis) {
+                        maxWithinSlo = level;
+                    }
+                }
+            } finally {
+                context.close();
+            }
+            summary.add(String.format("%s: max concurrency with no errors and p99 <= %d ms: %d", mode, sloMillis, maxWithinSlo));
+        }
+        System.out.println();
+        summary.forEach(System.out::println);
+    }
+
+    private static Result run(URI uri, int clients, int requestsPerClient) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header("Authorization", AUTH)
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(BODY))
+                .build();
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger errors = new AtomicInteger();
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            futures.add(pool.submit(() -> {
+                long[] latencies = new long[requestsPerClient];
+                start.await();
+                for (int i = 0; i < requestsPerClient; i++) {
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - begin;
+                }
+                return latencies;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        long[] all = new long[clients * requestsPerClient];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        Arrays.sort(all);
+        return new Result(all, errors.get(), elapsed);
+    }
+
+    private record Result(long[] latencies, int errors, long elapsedNanos) {
+
+        double throughput() {
+            return latencies.length / (elapsedNanos / 1e9);
+        }
+
+        double percentile(double p) {
+            int index = (int) Math.ceil(p * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modelo de transação antes e depois do V2__inline_transaction_change.sql, no mesmo H2 e com as mesmas
+ * propriedades do Hibernate da aplicação (batch_size 50, order_inserts):
+ *
+ * - legacy: id IDENTITY e o troco num @ElementCollection (tabela transaction_change), mapeado em
+ *   legacy-transaction-orm.xml. O IDENTITY obriga um INSERT por persist e desliga o batch, e cada
+ *   transação grava mais uma linha por moeda do troco; na leitura cada troco é uma consulta a mais (N+1).
+ * - current: a entidade da aplicação, com sequence pooled e o troco na coluna change_coins.
+ *
+ * Cada modelo roda numa SessionFactory própria, sem Spring, com ROWS transações já gravadas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionModelBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int ROWS = 10_000;
+    private static final int BATCH = 100;
+    private static final int PAGE = 100;
+
+    @Param({"legacy", "current"})
+    public String model;
+
+    private HikariDataSource dataSource;
+    private SessionFactory sessionFactory;
+    private boolean legacy;
+    private String entity;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        legacy = "legacy".equals(model);
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:model-" + model + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        Configuration configuration = new Configuration();
+        configuration.getProperties().put(AvailableSettings.DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "create");
+        configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        configuration.setProperty(AvailableSettings.ORDER_INSERTS, "true");
+        if (legacy) {
+            configuration.addResource("legacy-transaction-orm.xml");
+            entity = LegacyExchangeTransaction.class.getSimpleName();
+        } else {
+            configuration.addAnnotatedClass(ExchangeTransaction.class);
+            entity = ExchangeTransaction.class.getSimpleName();
+        }
+        sessionFactory = configuration.buildSessionFactory();
+        for (int n = 0; n < ROWS; n += BATCH) {
+            insertBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+        dataSource.close();
+    }
+
+    /**
+     * Lote de 100 trocas numa transação, como o saveAll do write-behind; o score é por transação.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insert() {
+        insertBatch();
+    }
+
+    /**
+     * Página de 100 do histórico a partir do meio da tabela, lendo o troco de cada transação.
+     */
+    @Benchmark
+    public int readPage() {
+        try (Session session = sessionFactory.openSession()) {
+            int coins = 0;
+            if (legacy) {
+                List<LegacyExchangeTransaction> page = session.createQuery(
+                                "from " + entity + " t where t.id > :after order by t.id", LegacyExchangeTransaction.class)
+                        .setParameter("after", (long) ROWS / 2)
+                        .setMaxResults(PAGE)
+                        .list();
+                for (LegacyExchangeTransaction transaction : page) {
+                    coins += transaction.getChange().size();
+                }
+            } else {
+                List<ExchangeTransaction> page = session.createQuery(
+                                "from " + entity + " t where t.id > :after order by t.id", ExchangeTransaction.class)
+                        .setParameter("after", (long) ROWS / 2)
+                        .setMaxResults(PAGE)
+                        .list();
+                for (ExchangeTransaction transaction : page) {
+                    coins += transaction.getChange().size();
+                }
+            }
+            return coins;
+        }
+    }
+
+    private void insertBatch() {
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < BATCH; i++) {
+                long n = sequence++;
+                // Troco de 5 dólares com duas moedas, como a maioria das trocas com minimal=false
+                Map<Integer, Integer> change = new HashMap<>(Map.of(25, 19, 5, 5));
+                LocalDateTime date = START.plusSeconds(n);
+                session.persist(legacy
+                        ? new LegacyExchangeTransaction("m" + n % 10, 5, false, change, date)
+                        : new ExchangeTransaction(null, "m" + n % 10, 5, false, change, date));
+            }
+        });
+    }
+}
@@ -0,0 +1,92 @@
+package adpbrasil.labs.coinexchange.benchmark;
+
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Os dois {@link TransactionStore}: JPA/H2 e o journal mapeado em memória (profile mapped-journal), com
+ * 100k transações já gravadas (uma por segundo a partir de 2024-01-01, máquinas m0..m9).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionStoreBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int ROWS = 100_000;
+
+    @Param({"jpa", "mapped"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private TransactionStore transactionStore;
+    private Path directory;
+    private LocalDateTime middleDate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark-");
+        context = "mapped".equals(store)
+                ? Benchmarks.startApplication("store-" + store,
+                        "spring.profiles.active=" + TransactionStore.MAPPED_JOURNAL_PROFILE,
+                        "coin.journal.directory=" + directory)
+                : Benchmarks.startApplication("store-" + store);
+        transactionStore = context.getBean(TransactionStore.class);
+        List<ExchangeTransaction> batch = new ArrayList<>(1000);
+        for (int n = 1; n <= ROWS; n++) {
+            batch.add(transaction("m" + n % 10, n % 100 + 1, START.plusSeconds(n)));
+            if (batch.size() == 1000) {
+                transactionStore.saveAll(batch);
+                batch.clear();
+            }
+        }
+        middleDate = START.plusSeconds(ROWS / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public ExchangeTransaction save() {
+        return transactionStore.save(transaction("m1", 10, LocalDateTime.now()));
+    }
+
+    @Benchmark
+    public List<ExchangeTransaction> deepPage() {
+        return transactionStore.find(TransactionFilter.NONE, (long) ROWS / 2, 100);
+    }
+
+    @Benchmark
+    public List<ExchangeTransaction> dateRangeAndMachine() {
+        TransactionFilter filter = new TransactionFilter(middleDate, middleDate.plusHours(1), null, null, null, "m3");
+        return transactionStore.find(filter, null, 100);
+    }
+
+    private static ExchangeTransaction transaction(String machineId, int amount, LocalDateTime date) {
+        return new ExchangeTransaction(null, machineId, amount, amount % 2 == 0, Map.of(25, 4), date);
+    }
+}
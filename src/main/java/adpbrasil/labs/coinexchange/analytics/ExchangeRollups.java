@@ -0,0 +1,270 @@
+package adpbrasil.labs.coinexchange.analytics;
+
+import adpbrasil.labs.coinexchange.config.AnalyticsProperties;
+import adpbrasil.labs.coinexchange.dto.AnalyticsBucket;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agregados das trocas por minuto, hora e dia, por máquina, mantidos à medida que as trocas são
+ * confirmadas: número de trocas, valor, moedas entregues por denominação, trocas mínimas vs máximas e
+ * recusas por falta de moedas. Uma consulta percorre só os buckets do intervalo, nunca o histórico.
+ *
+ * Os buckets vivem em memória, cada resolução com a própria retenção (coin.analytics.*). No start eles são
+ * reconstruídos a partir do histórico; as recusas não vão para o histórico e por isso recomeçam do zero.
+ * As datas são as mesmas das transações (horário local do servidor).
+ */
+@Component
+public class ExchangeRollups implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ExchangeRollups.class);
+
+    public enum Resolution {
+        MINUTE(ChronoUnit.MINUTES, Duration.ofHours(1)),
+        HOUR(ChronoUnit.HOURS, Duration.ofDays(1)),
+        DAY(ChronoUnit.DAYS, Duration.ofDays(30));
+
+        private final ChronoUnit unit;
+        // Intervalo consultado quando o from não é informado
+        private final Duration defaultSpan;
+
+        Resolution(ChronoUnit unit, Duration defaultSpan) {
+            this.unit = unit;
+            this.defaultSpan = defaultSpan;
+        }
+
+        public LocalDateTime truncate(LocalDateTime date) {
+            return date.truncatedTo(unit);
+        }
+
+        public Duration getDefaultSpan() {
+            return defaultSpan;
+        }
+
+        public static Resolution parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown resolution: " + value + " (use minute, hour or day).");
+            }
+        }
+    }
+
+    private final AnalyticsProperties properties;
+    // Nulo fora do Spring: sem reconstrução no start
+    private final TransactionStore transactionStore;
+    private final Map<String, Series> machines = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    public ExchangeRollups(AnalyticsProperties properties) {
+        this(properties, null);
+    }
+
+    @Autowired
+    public ExchangeRollups(AnalyticsProperties properties, TransactionStore transactionStore) {
+        this.properties = properties;
+        this.transactionStore = transactionStore;
+    }
+
+    public void recordExchange(String machineId, LocalDateTime date, int amount, boolean minimal, Map<Integer, Integer> change) {
+        if (machineId == null || date == null) {
+            return;
+        }
+        for (Level level : series(machineId).levels) {
+            Bucket bucket = level.bucket(date);
+            bucket.exchanges.increment();
+            bucket.amount.add(amount);
+            if (minimal) {
+                bucket.minimal.increment();
+            }
+            if (change != null) {
+                change.forEach((coin, count) -> bucket.coins.computeIfAbsent(coin, key -> new LongAdder()).add(count));
+            }
+        }
+    }
+
+    public void recordInsufficient(String machineId, LocalDateTime date) {
+        for (Level level : series(machineId).levels) {
+            level.bucket(date).insufficient.increment();
+        }
+    }
+
+    /**
+     * Buckets da máquina com início entre o bucket que contém from e to, em ordem; buckets sem nenhuma
+     * troca nem recusa não existem e não aparecem.
+     */
+    public List<AnalyticsBucket> query(String machineId, Resolution resolution, LocalDateTime from, LocalDateTime to) {
+        Series series = machines.get(machineId);
+        LocalDateTime start = resolution.truncate(from);
+        if (series == null || start.isAfter(to)) {
+            return List.of();
+        }
+        ConcurrentNavigableMap<LocalDateTime, Bucket> range =
+                series.levels[resolution.ordinal()].buckets.subMap(start, true, to, true);
+        List<AnalyticsBucket> result = new ArrayList<>(range.size());
+        for (Bucket bucket : range.values()) {
+            result.add(bucket.toDto());
+        }
+        return result;
+    }
+
+    /**
+     * Soma de buckets, com o início informado.
+     */
+    public static AnalyticsBucket total(LocalDateTime start, List<AnalyticsBucket> buckets) {
+        AnalyticsBucket total = new AnalyticsBucket(start, 0, 0, 0, 0, 0, new TreeMap<>(Comparator.reverseOrder()));
+        for (AnalyticsBucket bucket : buckets) {
+            total.setExchanges(total.getExchanges() + bucket.getExchanges());
+            total.setAmount(total.getAmount() + bucket.getAmount());
+            total.setMinimalExchanges(total.getMinimalExchanges() + bucket.getMinimalExchanges());
+            total.setMaximalExchanges(total.getMaximalExchanges() + bucket.getMaximalExchanges());
+            total.setInsufficientCoins(total.getInsufficientCoins() + bucket.getInsufficientCoins());
+            bucket.getCoins().forEach((coin, count) -> total.getCoins().merge(coin, count, Long::sum));
+        }
+        return total;
+    }
+
+    /**
+     * Agrega as transações do histórico dentro da maior retenção.
+     *
+     * @return transações lidas
+     */
+    public long rebuild(TransactionStore store) throws IOException {
+        Duration retention = properties.getMinuteRetention();
+        if (properties.getHourRetention().compareTo(retention) > 0) {
+            retention = properties.getHourRetention();
+        }
+        if (properties.getDayRetention().compareTo(retention) > 0) {
+            retention = properties.getDayRetention();
+        }
+        LocalDateTime since = Resolution.DAY.truncate(LocalDateTime.now().minus(retention));
+        TransactionFilter filter = new TransactionFilter(since, null, null, null, null, null);
+        return store.forEach(filter, tx -> recordExchange(tx.getMachineId(), tx.getTransactionDate(),
+                tx.getAmount(), tx.isMinimal(), tx.getChange()));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (transactionStore == null || !properties.isRebuildOnStart()) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            long rows = rebuild(transactionStore);
+            logger.info("Exchange rollups rebuilt from {} transactions in {} ms.", rows, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            // Os agregados são derivados do histórico: sem eles a troca continua funcionando
+            logger.error("Could not rebuild the exchange rollups from the transaction history.", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Reconstrói antes do servidor web começar a aceitar trocas, que também alimentam os buckets
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private Series series(String machineId) {
+        return machines.computeIfAbsent(machineId, id -> new Series(properties));
+    }
+
+    private static final class Series {
+        // Indexado por Resolution.ordinal()
+        private final Level[] levels;
+
+        private Series(AnalyticsProperties properties) {
+            levels = new Level[] {
+                    new Level(Resolution.MINUTE, properties.getMinuteRetention()),
+                    new Level(Resolution.HOUR, properties.getHourRetention()),
+                    new Level(Resolution.DAY, properties.getDayRetention())
+            };
+        }
+    }
+
+    private static final class Level {
+        private final Resolution resolution;
+        private final Duration retention;
+        private final ConcurrentSkipListMap<LocalDateTime, Bucket> buckets = new ConcurrentSkipListMap<>();
+        // Bucket mais recente: quase toda troca cai nele sem passar pelo skip list
+        private volatile Bucket current;
+
+        private Level(Resolution resolution, Duration retention) {
+            this.resolution = resolution;
+            this.retention = retention;
+        }
+
+        private Bucket bucket(LocalDateTime date) {
+            LocalDateTime start = resolution.truncate(date);
+            Bucket latest = current;
+            if (latest != null && latest.start.equals(start)) {
+                return latest;
+            }
+            Bucket bucket = buckets.get(start);
+            if (bucket == null) {
+                Bucket created = new Bucket(start);
+                bucket = buckets.putIfAbsent(start, created);
+                if (bucket == null) {
+                    bucket = created;
+                    // Só quem cria um bucket descarta os que saíram da retenção
+                    buckets.headMap(start.minus(retention)).clear();
+                }
+            }
+            if (latest == null || start.isAfter(latest.start)) {
+                current = bucket;
+            }
+            return bucket;
+        }
+    }
+
+    private static final class Bucket {
+        private final LocalDateTime start;
+        private final LongAdder exchanges = new LongAdder();
+        private final LongAdder amount = new LongAdder();
+        private final LongAdder minimal = new LongAdder();
+        private final LongAdder insufficient = new LongAdder();
+        private final Map<Integer, LongAdder> coins = new ConcurrentHashMap<>();
+
+        private Bucket(LocalDateTime start) {
+            this.start = start;
+        }
+
+        private AnalyticsBucket toDto() {
+            long count = exchanges.sum();
+            long minimalCount = minimal.sum();
+            Map<Integer, Long> dispensed = new TreeMap<>(Comparator.reverseOrder());
+            coins.forEach((coin, adder) -> dispensed.put(coin, adder.sum()));
+            return new AnalyticsBucket(start, count, amount.sum(), minimalCount, count - minimalCount,
+                    insufficient.sum(), dispensed);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package adpbrasil.labs.coinexchange.audit;
+
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Canal de auditoria das trocas, separado do log da aplicação.
+ *
+ * Os eventos saem no logger {@value #LOGGER_NAME} como pares chave/valor (sem formatar mensagem),
+ * e o logback-spring.xml liga esse logger a um appender assíncrono que descarta em vez de bloquear
+ * quando a fila enche. Eventos de debug por troca são amostrados: só 1 em debugSampleRate é emitido.
+ */
+@Component
+public class ExchangeAudit {
+
+    public static final String LOGGER_NAME = "coinexchange.audit";
+
+    private static final Logger audit = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final int debugSampleRate;
+
+    public ExchangeAudit(@Value("${coin.audit.debug-sample-rate:100}") int debugSampleRate) {
+        this.debugSampleRate = debugSampleRate;
+    }
+
+    public void exchange(String machineId, int amount, boolean minimal, boolean allowMultipleBills, int coins) {
+        if (!audit.isInfoEnabled()) {
+            return;
+        }
+        audit.atInfo()
+                .setMessage("exchange")
+                .addKeyValue("machine", machineId)
+                .addKeyValue("amount", amount)
+                .addKeyValue("minimal", minimal)
+                .addKeyValue("multipleBills", allowMultipleBills)
+                .addKeyValue("coins", coins)
+                .log();
+    }
+
+    public void insufficient(String machineId, int amount, boolean minimal) {
+        if (!audit.isInfoEnabled()) {
+            return;
+        }
+        audit.atInfo()
+                .setMessage("insufficient")
+                .addKeyValue("machine", machineId)
+                .addKeyValue("amount", amount)
+                .addKeyValue("minimal", minimal)
+                .log();
+    }
+
+    public void bulk(String machineId, int accepted, int rejected) {
+        if (!audit.isInfoEnabled()) {
+            return;
+        }
+        audit.atInfo()
+                .setMessage("bulk")
+                .addKeyValue("machine", machineId)
+                .addKeyValue("accepted", accepted)
+                .addKeyValue("rejected", rejected)
+                .log();
+    }
+
+    public void inventory(String machineId, String operation, int coinValue, int quantity, int newCount) {
+        if (!audit.isInfoEnabled()) {
+            return;
+        }
+        audit.atInfo()
+                .setMessage("inventory")
+                .addKeyValue("machine", machineId)
+                .addKeyValue("operation", operation)
+                .addKeyValue("coin", coinValue)
+                .addKeyValue("quantity", quantity)
+                .addKeyValue("count", newCount)
+                .log();
+    }
+
+    /**
+     * Detalhe do plano de troco em DEBUG, amostrado para não pesar quando o debug está ligado sob carga.
+     */
+    public void plan(String machineId, int amount, CoinInventory inventory, int[] plan) {
+        if (debugSampleRate <= 0 || !audit.isDebugEnabled()
+                || ThreadLocalRandom.current().nextInt(debugSampleRate) != 0) {
+            return;
+        }
+        StringBuilder detail = new StringBuilder();
+        for (int i = 0; i < plan.length; i++) {
+            if (plan[i] > 0) {
+                detail.append(detail.length() == 0 ? "" : ",").append(inventory.denomination(i)).append(':').append(plan[i]);
+            }
+        }
+        audit.atDebug()
+                .setMessage("plan")
+                .addKeyValue("machine", machineId)
+                .addKeyValue("amount", amount)
+                .addKeyValue("plan", detail.toString())
+                .addKeyValue("sampleRate", debugSampleRate)
+                .log();
+    }
+}
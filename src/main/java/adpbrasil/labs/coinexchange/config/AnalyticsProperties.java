@@ -0,0 +1,55 @@
+package adpbrasil.labs.coinexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "coin.analytics")
+public class AnalyticsProperties {
+
+    // Por quanto tempo os buckets de um minuto ficam em memória
+    private Duration minuteRetention = Duration.ofHours(48);
+
+    // Por quanto tempo os buckets de uma hora ficam em memória
+    private Duration hourRetention = Duration.ofDays(90);
+
+    // Por quanto tempo os buckets de um dia ficam em memória
+    private Duration dayRetention = Duration.ofDays(3 * 365);
+
+    // Reconstrói os buckets a partir do histórico no start (só o período coberto pela maior retenção)
+    private boolean rebuildOnStart = true;
+
+    public Duration getMinuteRetention() {
+        return minuteRetention;
+    }
+
+    public void setMinuteRetention(Duration minuteRetention) {
+        this.minuteRetention = minuteRetention;
+    }
+
+    public Duration getHourRetention() {
+        return hourRetention;
+    }
+
+    public void setHourRetention(Duration hourRetention) {
+        this.hourRetention = hourRetention;
+    }
+
+    public Duration getDayRetention() {
+        return dayRetention;
+    }
+
+    public void setDayRetention(Duration dayRetention) {
+        this.dayRetention = dayRetention;
+    }
+
+    public boolean isRebuildOnStart() {
+        return rebuildOnStart;
+    }
+
+    public void setRebuildOnStart(boolean rebuildOnStart) {
+        this.rebuildOnStart = rebuildOnStart;
+    }
+}
@@ -3,11 +3,23 @@ package adpbrasil.labs.coinexchange.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "coin")
 public class CoinProperties {
     private int initialQuantity = 100;
 
+    // Moeda ativa da máquina; deve existir em currencies
+    private String currency = "USD";
+
+    private Map<String, Currency> currencies = new LinkedHashMap<>(Map.of("USD", Currency.usd()));
+
+    // Máquinas da frota: id -> moeda (vazio = uma única máquina "default" na moeda ativa)
+    private Map<String, String> machines = new LinkedHashMap<>();
+
     public int getInitialQuantity() {
         return initialQuantity;
     }
@@ -15,4 +27,69 @@ public class CoinProperties {
     public void setInitialQuantity(int initialQuantity) {
         this.initialQuantity = initialQuantity;
     }
-}
\ No newline at end of file
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public Map<String, Currency> getCurrencies() {
+        return currencies;
+    }
+
+    public void setCurrencies(Map<String, Currency> currencies) {
+        this.currencies = currencies;
+    }
+
+    public Map<String, String> getMachines() {
+        return machines;
+    }
+
+    public void setMachines(Map<String, String> machines) {
+        this.machines = machines;
+    }
+
+    /**
+     * Denominações de uma moeda: moedas em centavos, cédulas em unidades inteiras e,
+     * opcionalmente, a capacidade máxima de cada moeda na máquina.
+     */
+    public static class Currency {
+        private List<Integer> coins;
+        private List<Integer> bills;
+        private Map<Integer, Integer> capacity = new LinkedHashMap<>();
+
+        static Currency usd() {
+            Currency usd = new Currency();
+            usd.setCoins(List.of(25, 10, 5, 1));
+            usd.setBills(List.of(1, 2, 5, 10, 20, 50, 100));
+            return usd;
+        }
+
+        public List<Integer> getCoins() {
+            return coins;
+        }
+
+        public void setCoins(List<Integer> coins) {
+            this.coins = coins;
+        }
+
+        public List<Integer> getBills() {
+            return bills;
+        }
+
+        public void setBills(List<Integer> bills) {
+            this.bills = bills;
+        }
+
+        public Map<Integer, Integer> getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(Map<Integer, Integer> capacity) {
+            this.capacity = capacity;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package adpbrasil.labs.coinexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "coin.security.credential-cache")
+public class CredentialCacheProperties {
+
+    // Desligado, toda requisição com basic auth confere a senha no PasswordEncoder (BCrypt)
+    private boolean enabled = true;
+
+    // Por quanto tempo uma verificação bem-sucedida dispensa conferir a senha de novo
+    private Duration ttl = Duration.ofSeconds(60);
+
+    // Máximo de usuários em cache; acima disso sai o usado há mais tempo
+    private int maxSize = 1024;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,77 @@
+package adpbrasil.labs.coinexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "coin.idempotency")
+public class IdempotencyProperties {
+
+    // Por quanto tempo uma Idempotency-Key devolve a primeira resposta em vez de trocar de novo
+    private Duration ttl = Duration.ofHours(24);
+
+    // Chaves guardadas ao mesmo tempo; acima disso as mais antigas saem antes do ttl
+    private int maxKeys = 100_000;
+
+    // Chaves novas em andamento ao mesmo tempo; acima disso a requisição com chave nova recebe 429
+    private int maxInFlight = 10_000;
+
+    // Quanto uma requisição repetida espera pela original ainda em andamento antes de responder 409
+    private Duration inFlightTimeout = Duration.ofSeconds(30);
+
+    // Grava as respostas em arquivo para a deduplicação sobreviver a um restart
+    private boolean persistent = false;
+
+    // Arquivo das chaves gravadas, uma por linha; reescrito só com as chaves válidas a cada start
+    private String file = "data/idempotency-keys.log";
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Duration getInFlightTimeout() {
+        return inFlightTimeout;
+    }
+
+    public void setInFlightTimeout(Duration inFlightTimeout) {
+        this.inFlightTimeout = inFlightTimeout;
+    }
+
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+}
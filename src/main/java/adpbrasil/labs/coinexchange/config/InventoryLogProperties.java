@@ -0,0 +1,42 @@
+package adpbrasil.labs.coinexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "coin.inventory-log")
+public class InventoryLogProperties {
+
+    // Desligado, o estado das máquinas vive só em memória e cada start repõe coin.initialQuantity
+    private boolean enabled = false;
+
+    // Um subdiretório por máquina, com os segmentos do log e os snapshots
+    private String directory = "data/inventory-log";
+
+    // A cada quantos eventos um snapshot é gravado; limita quantos eventos o start precisa reaplicar
+    private long snapshotInterval = 1_000_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(long snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+}
@@ -0,0 +1,42 @@
+package adpbrasil.labs.coinexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "coin.journal")
+public class JournalProperties {
+
+    // Diretório dos segmentos do journal mapeado em memória (profile mapped-journal)
+    private String directory = "data/journal";
+
+    // Transações por segmento; o arquivo inteiro (96 bytes por transação) é mapeado ao ser criado
+    private int segmentRecords = 1 << 20;
+
+    // Uma entrada do índice esparso de datas a cada indexStride transações
+    private int indexStride = 1024;
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentRecords() {
+        return segmentRecords;
+    }
+
+    public void setSegmentRecords(int segmentRecords) {
+        this.segmentRecords = segmentRecords;
+    }
+
+    public int getIndexStride() {
+        return indexStride;
+    }
+
+    public void setIndexStride(int indexStride) {
+        this.indexStride = indexStride;
+    }
+}
@@ -0,0 +1,84 @@
+package adpbrasil.labs.coinexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "coin.persistence")
+public class PersistenceProperties {
+
+    public enum Mode {
+        // Cada troca grava a transação na thread da requisição antes de responder
+        SYNC,
+        // Trocas vão para um buffer em memória e são gravadas em lote por uma thread de fundo
+        WRITE_BEHIND
+    }
+
+    private Mode mode = Mode.SYNC;
+
+    // Capacidade do buffer de transações pendentes (modo WRITE_BEHIND)
+    private int bufferCapacity = 8192;
+
+    // Máximo de transações por lote gravado
+    private int batchSize = 500;
+
+    // Tempo máximo que uma transação espera no buffer antes de ser gravada
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    // Quanto uma troca espera por espaço no buffer cheio antes de ser recusada
+    private Duration offerTimeout = Duration.ofMillis(100);
+
+    // Tentativas de um lote antes de gravá-lo transação por transação, e de uma transação com erro
+    // não classificado antes de descartá-la; no shutdown, tentativas de cada lote
+    private int maxAttempts = 5;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    public void setBufferCapacity(int bufferCapacity) {
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public Duration getOfferTimeout() {
+        return offerTimeout;
+    }
+
+    public void setOfferTimeout(Duration offerTimeout) {
+        this.offerTimeout = offerTimeout;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+}
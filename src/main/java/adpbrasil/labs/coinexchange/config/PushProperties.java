@@ -0,0 +1,66 @@
+package adpbrasil.labs.coinexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "coin.push")
+public class PushProperties {
+
+    // Janela em que as mudanças do inventário se acumulam num único evento por assinante
+    private Duration coalesceInterval = Duration.ofMillis(100);
+
+    // Eventos aguardando envio por assinante; cheio, o assinante é desconectado
+    private int sendBuffer = 16;
+
+    // Comentário enviado a assinantes sem eventos, para proxies não fecharem a conexão
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    // Duração máxima de uma conexão; o EventSource do navegador reconecta sozinho
+    private Duration timeout = Duration.ofMinutes(30);
+
+    // Conexões abertas ao mesmo tempo, somando todas as máquinas
+    private int maxSubscribers = 256;
+
+    public Duration getCoalesceInterval() {
+        return coalesceInterval;
+    }
+
+    public void setCoalesceInterval(Duration coalesceInterval) {
+        this.coalesceInterval = coalesceInterval;
+    }
+
+    public int getSendBuffer() {
+        return sendBuffer;
+    }
+
+    public void setSendBuffer(int sendBuffer) {
+        this.sendBuffer = sendBuffer;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getMaxSubscribers() {
+        return maxSubscribers;
+    }
+
+    public void setMaxSubscribers(int maxSubscribers) {
+        this.maxSubscribers = maxSubscribers;
+    }
+}
@@ -1,13 +1,17 @@
 package adpbrasil.labs.coinexchange.config;
 
+import adpbrasil.labs.coinexchange.security.CachingAuthenticationProvider;
+import adpbrasil.labs.coinexchange.security.CredentialCache;
+import adpbrasil.labs.coinexchange.security.InvalidatingUserDetailsManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -38,6 +42,7 @@ public class SecurityConfig {
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
         config.setAllowCredentials(true);
+        config.setExposedHeaders(List.of("X-Next-Cursor"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
@@ -46,11 +51,28 @@ public class SecurityConfig {
     }
 
     @Bean
-    public UserDetailsService userDetailsService() {
+    public CredentialCache credentialCache(CredentialCacheProperties properties) {
+        return new CredentialCache(properties);
+    }
+
+    @Bean
+    public InvalidatingUserDetailsManager userDetailsService(CredentialCache credentialCache) {
         UserDetails user = User.withUsername("klinton")
                 .password("{noop}klinton123")
                 .roles("USER")
                 .build();
-        return new InMemoryUserDetailsManager(user);
+        return new InvalidatingUserDetailsManager(credentialCache, user);
+    }
+
+    // Provider único do basic auth. A senha em {noop} é migrada para BCrypt no primeiro login
+    // (updatePassword), e a partir daí cada verificação custa um BCrypt; o cache evita repeti-la
+    @Bean
+    public AuthenticationProvider authenticationProvider(InvalidatingUserDetailsManager userDetailsService,
+                                                         CredentialCache credentialCache,
+                                                         CredentialCacheProperties properties) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsService);
+        return properties.isEnabled() ? new CachingAuthenticationProvider(provider, credentialCache) : provider;
     }
 }
@@ -0,0 +1,97 @@
+package adpbrasil.labs.coinexchange.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "coin.simulation")
+public class SimulationProperties {
+
+    // Período do histórico de onde saem a distribuição de cédulas e o ritmo de trocas da máquina
+    private Duration historyWindow = Duration.ofDays(30);
+
+    // Ritmo usado quando a máquina não tem histórico no período (cédulas sorteadas com a mesma chance)
+    private double defaultExchangesPerHour = 60;
+
+    // Simulações por requisição quando runs não é informado, e o máximo aceito
+    private int defaultRuns = 1000;
+    private int maxRuns = 100_000;
+
+    // Trocas por simulação; a que não esgota antes disso conta como "não esgotou"
+    private int maxExchangesPerRun = 1_000_000;
+
+    // Threads do pool fork-join das simulações; 0 usa todos os processadores
+    private int parallelism = 0;
+
+    // Fração das simulações em que a reposição recomendada cobre a janela alvo, por denominação
+    private double confidence = 0.95;
+
+    // Janela alvo da reposição recomendada, quando targetHours não é informado
+    private Duration targetWindow = Duration.ofHours(24);
+
+    public Duration getHistoryWindow() {
+        return historyWindow;
+    }
+
+    public void setHistoryWindow(Duration historyWindow) {
+        this.historyWindow = historyWindow;
+    }
+
+    public double getDefaultExchangesPerHour() {
+        return defaultExchangesPerHour;
+    }
+
+    public void setDefaultExchangesPerHour(double defaultExchangesPerHour) {
+        this.defaultExchangesPerHour = defaultExchangesPerHour;
+    }
+
+    public int getDefaultRuns() {
+        return defaultRuns;
+    }
+
+    public void setDefaultRuns(int defaultRuns) {
+        this.defaultRuns = defaultRuns;
+    }
+
+    public int getMaxRuns() {
+        return maxRuns;
+    }
+
+    public void setMaxRuns(int maxRuns) {
+        this.maxRuns = maxRuns;
+    }
+
+    public int getMaxExchangesPerRun() {
+        return maxExchangesPerRun;
+    }
+
+    public void setMaxExchangesPerRun(int maxExchangesPerRun) {
+        this.maxExchangesPerRun = maxExchangesPerRun;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    public Duration getTargetWindow() {
+        return targetWindow;
+    }
+
+    public void setTargetWindow(Duration targetWindow) {
+        this.targetWindow = targetWindow;
+    }
+}
@@ -1,45 +1,127 @@
 package adpbrasil.labs.coinexchange.controller;
 
+import adpbrasil.labs.coinexchange.analytics.ExchangeRollups;
 import adpbrasil.labs.coinexchange.dto.*;
+import adpbrasil.labs.coinexchange.idempotency.IdempotencyCache;
 import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.persistence.TransactionExporter;
+import adpbrasil.labs.coinexchange.push.MachineEventHub;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
 import adpbrasil.labs.coinexchange.service.ExchangeService;
+import adpbrasil.labs.coinexchange.simulation.ReplenishmentSimulator;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/exchange")
 public class ExchangeController {
     private static final Logger logger = LoggerFactory.getLogger(ExchangeController.class);
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final ExchangeService exchangeService;
+    private final TransactionExporter transactionExporter;
 
-    public ExchangeController(ExchangeService exchangeService) {
+    private final MachineEventHub machineEventHub;
+    private final VersionedResponseCache responseCache;
+    private final IdempotencyCache idempotencyCache;
+    private final ReplenishmentSimulator replenishmentSimulator;
+
+    public ExchangeController(ExchangeService exchangeService, TransactionExporter transactionExporter,
+                              MachineEventHub machineEventHub, VersionedResponseCache responseCache,
+                              IdempotencyCache idempotencyCache, ReplenishmentSimulator replenishmentSimulator) {
         this.exchangeService = exchangeService;
+        this.transactionExporter = transactionExporter;
+        this.machineEventHub = machineEventHub;
+        this.responseCache = responseCache;
+        this.idempotencyCache = idempotencyCache;
+        this.replenishmentSimulator = replenishmentSimulator;
+    }
+
+    // Rotas sem machineId operam sobre a máquina padrão da frota; as de uma máquina ficam sob /machines/{machineId},
+    // então um id de máquina nunca disputa o caminho com as outras rotas
+    private String defaultMachineId() {
+        return exchangeService.getMachineRegistry().getDefault().getId();
+    }
+
+    // ETag pela versão da máquina: If-None-Match igual responde 304 sem chamar o serviço nem serializar,
+    // e os bytes de cada versão são serializados uma vez só
+    private ResponseEntity<byte[]> versioned(WebRequest request, String key, String machineId, Supplier<?> body) {
+        long version = exchangeService.getMachineVersion(machineId);
+        if (request.checkNotModified(responseCache.etag(version))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(responseCache.body(key + ":" + machineId, version, body));
     }
 
     @PostMapping
-    public ResponseEntity<?> exchange(@Valid @RequestBody ExchangeRequest request) {
-        logger.info("Exchange request received: {}", request);
-        ExchangeResponse response = exchangeService.exchange(
+    public ResponseEntity<?> exchange(@Valid @RequestBody ExchangeRequest request,
+                                      @RequestHeader(name = IdempotencyCache.HEADER, required = false) String idempotencyKey) {
+        return exchange(defaultMachineId(), request, idempotencyKey);
+    }
+
+    @PostMapping("/machines/{machineId}")
+    public ResponseEntity<?> exchange(@PathVariable String machineId, @Valid @RequestBody ExchangeRequest request,
+                                      @RequestHeader(name = IdempotencyCache.HEADER, required = false) String idempotencyKey) {
+        logger.debug("Exchange request received for machine {}: {}", machineId, request);
+        Supplier<ExchangeResponse> exchange = () -> exchangeService.exchange(
+                machineId,
                 request.getAmount(),
                 request.isMinimal(),
                 request.isAllowMultipleBills()
         );
-        return ResponseEntity.ok(response);
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok(exchange.get());
+        }
+        // Repetição de uma troca já feita (retry do quiosque): mesma resposta, sem trocar de novo
+        String fingerprint = machineId + ":" + request.getAmount() + ":" + request.isMinimal() + ":" + request.isAllowMultipleBills();
+        IdempotencyCache.Outcome outcome = idempotencyCache.execute(idempotencyKey, fingerprint, exchange);
+        return ResponseEntity.ok()
+                .header(IdempotencyCache.REPLAYED_HEADER, String.valueOf(outcome.replayed()))
+                .body(outcome.response());
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkExchangeResponse> exchangeBulk(@Valid @RequestBody BulkExchangeRequest request) {
+        return exchangeBulk(defaultMachineId(), request);
+    }
+
+    @PostMapping("/machines/{machineId}/bulk")
+    public ResponseEntity<BulkExchangeResponse> exchangeBulk(@PathVariable String machineId,
+                                                             @Valid @RequestBody BulkExchangeRequest request) {
+        return ResponseEntity.ok(exchangeService.exchangeBulk(machineId, request.getExchanges(), request.isAtomic()));
     }
 
     @GetMapping("/status")
-    public ResponseEntity<?> getStatus() {
-        Map<String, Object> status = exchangeService.getStatus();
-        return ResponseEntity.ok(status);
+    public ResponseEntity<byte[]> getStatus(WebRequest request) {
+        return getStatus(defaultMachineId(), request);
+    }
+
+    @GetMapping("/machines/{machineId}/status")
+    public ResponseEntity<byte[]> getStatus(@PathVariable String machineId, WebRequest request) {
+        return versioned(request, "status", machineId, () -> exchangeService.getStatus(machineId));
+    }
+
+    @GetMapping("/fleet")
+    public ResponseEntity<?> getFleetStatus() {
+        return ResponseEntity.ok(exchangeService.getFleetStatus());
     }
 
     @PostMapping("/replenish")
@@ -48,21 +130,23 @@ public class ExchangeController {
         return ResponseEntity.ok(Map.of("message", "Coin inventory replenished successfully."));
     }
 
-    @GetMapping("/history")
-    public ResponseEntity<?> getHistory() {
-        List<ExchangeTransaction> history = exchangeService.getTransactionHistory();
-
-        List<ExchangeTransactionDto> dtos = history.stream()
-                .map(tx -> new ExchangeTransactionDto(
-                        tx.getId(),
-                        tx.getAmount(),
-                        tx.isMinimal(),
-                        tx.getChange(),
-                        tx.getTransactionDate()
-                ))
-                .toList();
+    @PostMapping("/machines/{machineId}/replenish")
+    public ResponseEntity<?> replenish(@PathVariable String machineId) {
+        exchangeService.resetInventory(machineId);
+        return ResponseEntity.ok(Map.of("message", "Coin inventory replenished successfully."));
+    }
 
-        return ResponseEntity.ok(dtos);
+    @GetMapping("/history")
+    public ResponseEntity<?> getHistory(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "" + ExchangeService.DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+        // ETag pela versão do journal: muda a cada gravação, então uma página repetida responde 304 sem consulta
+        if (request.checkNotModified(responseCache.etag(exchangeService.getHistoryVersion()))) {
+            return null;
+        }
+        List<ExchangeTransaction> history = exchangeService.getTransactionHistory(after, limit);
+        return page(history, limit);
     }
 
 
@@ -72,55 +156,195 @@ public class ExchangeController {
             @RequestParam(required = false) String endDate,
             @RequestParam(required = false) Integer minAmount,
             @RequestParam(required = false) Integer maxAmount,
-            @RequestParam(required = false) Boolean minimal) {
+            @RequestParam(required = false) Boolean minimal,
+            @RequestParam(required = false) String machineId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "" + ExchangeService.DEFAULT_PAGE_SIZE) int limit) {
+
+        LocalDateTime start = (startDate != null) ? LocalDateTime.parse(startDate, DateTimeFormatter.ISO_DATE_TIME) : null;
+        LocalDateTime end = (endDate != null) ? LocalDateTime.parse(endDate, DateTimeFormatter.ISO_DATE_TIME) : null;
 
+        List<ExchangeTransaction> result = exchangeService.filterTransactionHistory(
+                start, end, minAmount, maxAmount, minimal, machineId, after, limit);
+        return page(result, limit);
+    }
+
+    /**
+     * Exporta o histórico inteiro (ou o intervalo pedido) em NDJSON ou CSV, escrevendo direto na resposta.
+     */
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String machineId) {
+        TransactionExporter.Format exportFormat;
+        try {
+            exportFormat = TransactionExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Export format must be one of: ndjson, csv.");
+        }
         LocalDateTime start = (startDate != null) ? LocalDateTime.parse(startDate, DateTimeFormatter.ISO_DATE_TIME) : null;
         LocalDateTime end = (endDate != null) ? LocalDateTime.parse(endDate, DateTimeFormatter.ISO_DATE_TIME) : null;
+        TransactionFilter filter = new TransactionFilter(start, end, null, null, null, machineId);
+
+        String extension = exportFormat == TransactionExporter.Format.CSV ? "csv" : "ndjson";
+        MediaType contentType = exportFormat == TransactionExporter.Format.CSV
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+        if (gzip) {
+            extension += ".gz";
+            contentType = MediaType.parseMediaType("application/gzip");
+        }
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024)) {
+                    transactionExporter.export(filter, exportFormat, gzipOut);
+                }
+            } else {
+                transactionExporter.export(filter, exportFormat, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"exchange-history." + extension + "\"")
+                .body(body);
+    }
 
-        List<ExchangeTransaction> result = exchangeService.filterTransactionHistory(start, end, minAmount, maxAmount, minimal);
-        List<ExchangeTransactionDto> dtos = result.stream()
+    // Página cheia: o cliente pede a próxima com ?after=<X-Next-Cursor>
+    private ResponseEntity<List<ExchangeTransactionDto>> page(List<ExchangeTransaction> transactions, int limit) {
+        List<ExchangeTransactionDto> dtos = transactions.stream()
                 .map(tx -> new ExchangeTransactionDto(
                         tx.getId(),
+                        tx.getMachineId(),
                         tx.getAmount(),
                         tx.isMinimal(),
                         tx.getChange(),
                         tx.getTransactionDate()
                 ))
                 .toList();
-        return ResponseEntity.ok(dtos);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!dtos.isEmpty() && dtos.size() >= Math.min(limit, ExchangeService.MAX_PAGE_SIZE)) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(dtos.get(dtos.size() - 1).getId()));
+        }
+        return response.body(dtos);
     }
 
     @GetMapping("/inventory")
-    public ResponseEntity<InventoryResponse> getInventory() {
-        Map<Integer, Integer> inventory = exchangeService.getInventory();
-        int total = inventory.entrySet().stream()
-                .mapToInt(e -> e.getKey() * e.getValue())
-                .sum();
+    public ResponseEntity<byte[]> getInventory(WebRequest request) {
+        return getInventory(defaultMachineId(), request);
+    }
+
+    @GetMapping("/machines/{machineId}/inventory")
+    public ResponseEntity<byte[]> getInventory(@PathVariable String machineId, WebRequest request) {
+        return versioned(request, "inventory", machineId, () -> exchangeService.getInventoryResponse(machineId));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats() {
+        return getStats(defaultMachineId());
+    }
+
+    @GetMapping("/machines/{machineId}/stats")
+    public ResponseEntity<?> getStats(@PathVariable String machineId) {
+        return ResponseEntity.ok(exchangeService.getStats(machineId));
+    }
 
-        return ResponseEntity.ok(new InventoryResponse(inventory, total));
+    @GetMapping("/analytics")
+    public ResponseEntity<AnalyticsResponse> getAnalytics(
+            @RequestParam(defaultValue = "hour") String resolution,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        return getAnalytics(defaultMachineId(), resolution, from, to);
     }
 
+    // Volume e moedas entregues por minuto/hora/dia, a partir dos agregados (não lê o histórico)
+    @GetMapping("/machines/{machineId}/analytics")
+    public ResponseEntity<AnalyticsResponse> getAnalytics(
+            @PathVariable String machineId,
+            @RequestParam(defaultValue = "hour") String resolution,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        LocalDateTime start = (from != null) ? LocalDateTime.parse(from, DateTimeFormatter.ISO_DATE_TIME) : null;
+        LocalDateTime end = (to != null) ? LocalDateTime.parse(to, DateTimeFormatter.ISO_DATE_TIME) : null;
+        return ResponseEntity.ok(exchangeService.getAnalytics(machineId, ExchangeRollups.Resolution.parse(resolution), start, end));
+    }
+
+    @GetMapping("/simulation")
+    public ResponseEntity<SimulationResponse> simulate(
+            @RequestParam(required = false) Integer runs,
+            @RequestParam(required = false) Integer initialQuantity,
+            @RequestParam(defaultValue = "false") boolean fromCurrent,
+            @RequestParam(required = false) Double targetHours,
+            @RequestParam(required = false) Long seed) {
+        return simulate(defaultMachineId(), runs, initialQuantity, fromCurrent, targetHours, seed);
+    }
+
+    // Monte Carlo do estoque com a demanda do histórico: tempo até faltar troco e reposição recomendada
+    @GetMapping("/machines/{machineId}/simulation")
+    public ResponseEntity<SimulationResponse> simulate(
+            @PathVariable String machineId,
+            @RequestParam(required = false) Integer runs,
+            @RequestParam(required = false) Integer initialQuantity,
+            @RequestParam(defaultValue = "false") boolean fromCurrent,
+            @RequestParam(required = false) Double targetHours,
+            @RequestParam(required = false) Long seed) {
+        return ResponseEntity.ok(replenishmentSimulator.simulate(machineId, runs, initialQuantity, fromCurrent, targetHours, seed));
+    }
 
     @PostMapping("/inventory/add")
     public ResponseEntity<?> addInventory(@Valid @RequestBody InventoryUpdateRequest request) {
-        exchangeService.addCoins(request.getCoinValue(), request.getQuantity());
-        return ResponseEntity.ok(Map.of("message", "Inventory updated successfully", "inventory", exchangeService.getInventory()));
+        return addInventory(defaultMachineId(), request);
+    }
+
+    @PostMapping("/machines/{machineId}/inventory/add")
+    public ResponseEntity<?> addInventory(@PathVariable String machineId, @Valid @RequestBody InventoryUpdateRequest request) {
+        exchangeService.addCoins(machineId, request.getCoinValue(), request.getQuantity());
+        return ResponseEntity.ok(Map.of("message", "Inventory updated successfully", "inventory", exchangeService.getInventory(machineId)));
     }
 
     @PostMapping("/inventory/remove")
     public ResponseEntity<?> removeInventory(@Valid @RequestBody InventoryUpdateRequest request) {
-        exchangeService.removeCoins(request.getCoinValue(), request.getQuantity());
-        return ResponseEntity.ok(Map.of("message", "Inventory updated successfully", "inventory", exchangeService.getInventory()));
+        return removeInventory(defaultMachineId(), request);
+    }
+
+    @PostMapping("/machines/{machineId}/inventory/remove")
+    public ResponseEntity<?> removeInventory(@PathVariable String machineId, @Valid @RequestBody InventoryUpdateRequest request) {
+        exchangeService.removeCoins(machineId, request.getCoinValue(), request.getQuantity());
+        return ResponseEntity.ok(Map.of("message", "Inventory updated successfully", "inventory", exchangeService.getInventory(machineId)));
     }
 
     @GetMapping("/bills")
-    public ResponseEntity<BillsInventoryResponse> getBillsInventory() {
-        return ResponseEntity.ok(exchangeService.getBillsInventory());
+    public ResponseEntity<byte[]> getBillsInventory(WebRequest request) {
+        return getBillsInventory(defaultMachineId(), request);
+    }
+
+    @GetMapping("/machines/{machineId}/bills")
+    public ResponseEntity<byte[]> getBillsInventory(@PathVariable String machineId, WebRequest request) {
+        return versioned(request, "bills", machineId, () -> exchangeService.getBillsInventory(machineId));
+    }
+
+    @GetMapping("/events")
+    public SseEmitter streamEvents() {
+        return streamEvents(defaultMachineId());
+    }
+
+    // Inventário e estado operacional por Server-Sent Events: inventory (completo), delta e status
+    @GetMapping("/machines/{machineId}/events")
+    public SseEmitter streamEvents(@PathVariable String machineId) {
+        return machineEventHub.subscribe(machineId);
     }
 
     @GetMapping("/admin/status")
     public ResponseEntity<MachineStatusResponse> getMachineStatus() {
-        boolean operational = exchangeService.isMachineOperational();
+        return getMachineStatus(defaultMachineId());
+    }
+
+    @GetMapping("/machines/{machineId}/admin/status")
+    public ResponseEntity<MachineStatusResponse> getMachineStatus(@PathVariable String machineId) {
+        boolean operational = exchangeService.isMachineOperational(machineId);
         if (!operational) {
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
                     .body(new MachineStatusResponse("Machine out of coins"));
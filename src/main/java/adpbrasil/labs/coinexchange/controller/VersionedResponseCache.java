@@ -0,0 +1,54 @@
+package adpbrasil.labs.coinexchange.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * JSON já serializado das leituras de uma máquina, guardado com a versão de que veio: enquanto a versão
+ * não muda, a leitura devolve os mesmos bytes sem chamar o serviço nem o Jackson. Uma entrada por chave
+ * (leitura + máquina), então o tamanho é limitado pelo número de máquinas.
+ */
+@Component
+public class VersionedResponseCache {
+
+    // As versões recomeçam do zero a cada start; o prefixo impede que um ETag antigo case com um novo
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public VersionedResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String etag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    /**
+     * Corpo da versão; serializa o que supplier devolver só quando a versão guardada é outra.
+     */
+    public byte[] body(String key, long version, Supplier<?> supplier) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version() == version) {
+            return entry.body();
+        }
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(supplier.get());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Uma leitura atrasada não substitui o corpo de uma versão mais nova
+        entries.merge(key, new Entry(version, body), (old, fresh) -> fresh.version() >= old.version() ? fresh : old);
+        return body;
+    }
+
+    private record Entry(long version, byte[] body) {
+    }
+}
@@ -0,0 +1,22 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsBucket {
+    private LocalDateTime start;
+    private long exchanges;
+    private long amount;
+    private long minimalExchanges;
+    private long maximalExchanges;
+    private long insufficientCoins;
+    // Moedas entregues por denominação (centavos)
+    private Map<Integer, Long> coins;
+}
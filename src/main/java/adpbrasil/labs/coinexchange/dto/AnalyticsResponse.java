@@ -0,0 +1,22 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsResponse {
+    private String machineId;
+    private String resolution;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // Soma dos buckets do intervalo; start é o from da consulta
+    private AnalyticsBucket totals;
+    // Só os buckets com alguma troca ou falha, em ordem de início
+    private List<AnalyticsBucket> buckets;
+}
@@ -0,0 +1,20 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkExchangeItemResult {
+    // Posição do item na requisição
+    private int index;
+    private boolean success;
+    @JsonSerialize(using = ChangeSerializer.class)
+    private Map<Integer, Integer> change;
+    private String error;
+}
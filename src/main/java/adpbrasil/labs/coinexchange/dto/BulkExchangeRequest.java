@@ -0,0 +1,22 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkExchangeRequest {
+    @NotEmpty(message = "At least one exchange is required")
+    @Size(max = 10000, message = "At most 10000 exchanges per request")
+    private List<@Valid ExchangeRequest> exchanges;
+
+    // Se true, ou todas as trocas são aplicadas ou nenhuma; caso contrário cada item tem o próprio resultado.
+    private boolean atomic = false;
+}
@@ -0,0 +1,16 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkExchangeResponse {
+    private int accepted;
+    private int rejected;
+    private List<BulkExchangeItemResult> results;
+}
@@ -0,0 +1,81 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import adpbrasil.labs.coinexchange.inventory.CoinChange;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Escreve o troco ({"25": 40, ...}) sem o MapSerializer genérico: com um {@link CoinChange} percorre os
+ * arrays do plano direto, sem boxing nem entradas, e o nome de cada denominação sai de um template já
+ * codificado (aspas e bytes UTF-8 prontos), criado uma vez por valor de moeda.
+ */
+public class ChangeSerializer extends StdSerializer<Map<Integer, Integer>> {
+
+    // Templates dos nomes, indexados pelo valor da moeda em centavos; moedas maiores são escritas na hora
+    private static final SerializedString[] KEYS = new SerializedString[1024];
+
+    @SuppressWarnings("unchecked")
+    public ChangeSerializer() {
+        super((Class<Map<Integer, Integer>>) (Class<?>) Map.class);
+    }
+
+    @Override
+    public void serialize(Map<Integer, Integer> change, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        write(change, gen);
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, Map<Integer, Integer> change) {
+        return change == null || change.isEmpty();
+    }
+
+    static void write(Map<Integer, Integer> change, JsonGenerator gen) throws IOException {
+        if (change == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        if (change instanceof CoinChange coins) {
+            for (int i = 0; i < coins.slots(); i++) {
+                int count = coins.count(i);
+                if (count > 0) {
+                    writeKey(coins.denomination(i), gen);
+                    gen.writeNumber(count);
+                }
+            }
+        } else {
+            for (Map.Entry<Integer, Integer> coin : change.entrySet()) {
+                if (coin.getKey() == null) {
+                    gen.writeFieldName("null");
+                } else {
+                    writeKey(coin.getKey(), gen);
+                }
+                if (coin.getValue() == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeNumber(coin.getValue());
+                }
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeKey(int coin, JsonGenerator gen) throws IOException {
+        if (coin < 0 || coin >= KEYS.length) {
+            gen.writeFieldName(Integer.toString(coin));
+            return;
+        }
+        SerializedString key = KEYS[coin];
+        if (key == null) {
+            // Corrida benigna: duas threads podem criar o mesmo template, ambos corretos
+            key = new SerializedString(Integer.toString(coin));
+            KEYS[coin] = key;
+        }
+        gen.writeFieldName(key);
+    }
+}
@@ -1,5 +1,6 @@
 package adpbrasil.labs.coinexchange.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,7 +9,10 @@ import java.util.Map;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonSerialize(using = ExchangeResponseSerializer.class)
 public class ExchangeResponse {
+    public static final String SUCCESS = "Exchange successful.";
+
     private String message;
     private Map<Integer, Integer> change;
 }
@@ -0,0 +1,41 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Serializa ExchangeResponse sem o BeanSerializer (introspecção, getters, MapSerializer): nomes dos campos
+ * e a mensagem de sucesso são templates já codificados, e o troco sai pelo {@link ChangeSerializer}.
+ * O JSON é o mesmo de antes: {"message": ..., "change": {...}}.
+ */
+public class ExchangeResponseSerializer extends StdSerializer<ExchangeResponse> {
+
+    private static final SerializedString MESSAGE = new SerializedString("message");
+    private static final SerializedString CHANGE = new SerializedString("change");
+    private static final SerializedString SUCCESS = new SerializedString(ExchangeResponse.SUCCESS);
+
+    public ExchangeResponseSerializer() {
+        super(ExchangeResponse.class);
+    }
+
+    @Override
+    public void serialize(ExchangeResponse response, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(response);
+        gen.writeFieldName(MESSAGE);
+        String message = response.getMessage();
+        if (message == null) {
+            gen.writeNull();
+        } else if (ExchangeResponse.SUCCESS.equals(message)) {
+            gen.writeString(SUCCESS);
+        } else {
+            gen.writeString(message);
+        }
+        gen.writeFieldName(CHANGE);
+        ChangeSerializer.write(response.getChange(), gen);
+        gen.writeEndObject();
+    }
+}
@@ -12,6 +12,7 @@ import java.util.Map;
 @AllArgsConstructor
 public class ExchangeTransactionDto {
     private Long id;
+    private String machineId;
     private int amount;
     private boolean minimal;
     private Map<Integer, Integer> change;
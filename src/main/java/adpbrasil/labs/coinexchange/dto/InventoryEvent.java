@@ -0,0 +1,18 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryEvent {
+    private String machineId;
+    // Evento inventory: quantidade de cada moeda; evento delta: só as moedas que mudaram, como diferença
+    private Map<Integer, Integer> coins;
+    private long totalCents;
+    private boolean operational;
+}
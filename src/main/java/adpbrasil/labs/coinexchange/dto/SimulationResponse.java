@@ -0,0 +1,35 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationResponse {
+    private String machineId;
+    // "history" quando a demanda veio do histórico da máquina, "uniform" sem histórico no período
+    private String demandSource;
+    // Trocas do histórico usadas para montar a distribuição
+    private long observedExchanges;
+    private double exchangesPerHour;
+    private int runs;
+    // Total de trocas sintéticas executadas pelo motor de troco, somando todas as simulações
+    private long simulatedExchanges;
+    private long elapsedMillis;
+    private Map<Integer, Integer> startingStock;
+    // Simulações que chegaram à primeira troca sem troco possível
+    private int depletedRuns;
+    // Percentis (p5..p95) do tempo e do número de trocas até a primeira falta; null se o percentil não esgotou
+    private Map<String, Double> hoursToDepletion;
+    private Map<String, Long> exchangesToDepletion;
+    private double targetHours;
+    private double confidence;
+    // Estoque por moeda que atende a janela alvo em confidence das simulações (limitado pela capacidade)
+    private Map<Integer, Integer> recommendedStock;
+    // Quanto falta do estoque inicial para o recomendado
+    private Map<Integer, Integer> refill;
+}
@@ -31,6 +31,54 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    @ExceptionHandler(MachineNotFoundException.class)
+    public ResponseEntity<?> handleMachineNotFoundException(MachineNotFoundException ex) {
+        logger.error("Machine not found: {}", ex.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+
+    @ExceptionHandler(SubscriberLimitException.class)
+    public ResponseEntity<?> handleSubscriberLimitException(SubscriberLimitException ex) {
+        logger.error("Subscriber limit: {}", ex.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    @ExceptionHandler(JournalFullException.class)
+    public ResponseEntity<?> handleJournalFullException(JournalFullException ex) {
+        logger.error("Journal full: {}", ex.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<?> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        logger.error("Idempotency key reused: {}", ex.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+    }
+
+    @ExceptionHandler(IdempotencyInProgressException.class)
+    public ResponseEntity<?> handleIdempotencyInProgressException(IdempotencyInProgressException ex) {
+        logger.error("Idempotency key in progress: {}", ex.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(IdempotencyLimitException.class)
+    public ResponseEntity<?> handleIdempotencyLimitException(IdempotencyLimitException ex) {
+        logger.error("Idempotency limit: {}", ex.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<?> handleValidationException(MethodArgumentNotValidException ex) {
         logger.error("Validation error: {}", ex.getMessage());
@@ -0,0 +1,7 @@
+package adpbrasil.labs.coinexchange.exception;
+
+public class IdempotencyInProgressException extends RuntimeException {
+    public IdempotencyInProgressException(String message) {
+        super(message);
+    }
+}
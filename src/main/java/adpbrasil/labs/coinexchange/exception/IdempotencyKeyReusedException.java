@@ -0,0 +1,7 @@
+package adpbrasil.labs.coinexchange.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package adpbrasil.labs.coinexchange.exception;
+
+public class IdempotencyLimitException extends RuntimeException {
+    public IdempotencyLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package adpbrasil.labs.coinexchange.exception;
+
+public class JournalFullException extends RuntimeException {
+    public JournalFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package adpbrasil.labs.coinexchange.exception;
+
+public class MachineNotFoundException extends RuntimeException {
+    public MachineNotFoundException(String message) {
+        super(message);
+    }
+}
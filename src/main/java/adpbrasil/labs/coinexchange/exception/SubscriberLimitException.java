@@ -0,0 +1,7 @@
+package adpbrasil.labs.coinexchange.exception;
+
+public class SubscriberLimitException extends RuntimeException {
+    public SubscriberLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,240 @@
+package adpbrasil.labs.coinexchange.fleet;
+
+import adpbrasil.labs.coinexchange.inventory.ChangeEngine;
+import adpbrasil.labs.coinexchange.inventory.CoinChange;
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import adpbrasil.labs.coinexchange.inventory.DenominationCatalog;
+import adpbrasil.labs.coinexchange.inventory.Reservation;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uma máquina da frota: inventário de moedas e de cédulas próprios (um shard independente),
+ * de forma que trocas em máquinas diferentes nunca disputam o mesmo CAS.
+ */
+public class CoinMachine {
+
+    private final String id;
+    private final DenominationCatalog catalog;
+    private final CoinInventory coinInventory;
+    private final ChangeEngine changeEngine;
+    private final FleetAggregate fleet;
+    private final Map<Integer, Integer> billInventory = new ConcurrentHashMap<>();
+    private final AtomicInteger totalBillsReceived = new AtomicInteger();
+    private final MachineStats stats;
+    // Muda a cada mutação de moedas ou cédulas; base dos ETags das leituras da máquina
+    private final AtomicLong version = new AtomicLong();
+
+    public CoinMachine(String id, DenominationCatalog catalog, int initialQuantity, FleetAggregate fleet) {
+        this(id, catalog, initialQuantity, fleet, Clock.systemUTC());
+    }
+
+    public CoinMachine(String id, DenominationCatalog catalog, int initialQuantity, FleetAggregate fleet, Clock clock) {
+        this.id = id;
+        this.stats = new MachineStats(clock);
+        this.catalog = catalog;
+        this.fleet = fleet;
+        this.coinInventory = new CoinInventory(catalog, initialQuantity);
+        this.changeEngine = new ChangeEngine(catalog.coins(), catalog.bills());
+        coinInventory.addListener((before, after) -> version.incrementAndGet());
+        fleet.track(this);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public DenominationCatalog getCatalog() {
+        return catalog;
+    }
+
+    public CoinInventory getCoinInventory() {
+        return coinInventory;
+    }
+
+    /**
+     * Abastece a máquina com moedas de um valor.
+     *
+     * @return a nova quantidade da moeda
+     * @throws IllegalArgumentException se o valor não é uma moeda do catálogo ou a capacidade seria excedida
+     */
+    public int addCoins(int coinValue, int quantity) {
+        int index = coinIndex(coinValue);
+        if (!coinInventory.tryAdd(index, quantity)) {
+            throw new IllegalArgumentException("Adding " + quantity + " coins of " + coinValue
+                    + " cents exceeds the machine capacity of " + coinInventory.capacity(index) + ".");
+        }
+        return coinInventory.count(index);
+    }
+
+    /**
+     * Retira moedas de um valor da máquina.
+     *
+     * @return a nova quantidade da moeda
+     * @throws IllegalArgumentException se o valor não é uma moeda do catálogo ou não há moedas suficientes
+     */
+    public int removeCoins(int coinValue, int quantity) {
+        int index = coinIndex(coinValue);
+        if (!coinInventory.tryRemove(index, quantity)) {
+            throw new IllegalArgumentException("Not enough coins of " + coinValue + " cents to remove.");
+        }
+        return coinInventory.count(index);
+    }
+
+    private int coinIndex(int coinValue) {
+        int index = catalog.coinIndex(coinValue);
+        if (index < 0) {
+            throw new IllegalArgumentException("Coin value must be one of: " + catalog.describeCoins() + ".");
+        }
+        return index;
+    }
+
+    /**
+     * Valida o valor de uma troca contra as cédulas da moeda da máquina.
+     *
+     * @throws IllegalArgumentException se o valor não é uma cédula aceita (ou não é maior que 1 com allowMultipleBills)
+     */
+    public void validateAmount(int amount, boolean allowMultipleBills) {
+        if (allowMultipleBills) {
+            if (amount <= 1) {
+                throw new IllegalArgumentException("When multiple bills are allowed, amount must be greater than 1.");
+            }
+            if (amount > ChangeEngine.MAX_CENTS / 100) {
+                throw new IllegalArgumentException("When multiple bills are allowed, amount must be at most " + ChangeEngine.MAX_CENTS / 100 + ".");
+            }
+        } else if (!catalog.isBill(amount)) {
+            throw new IllegalArgumentException("Invalid bill denomination. Allowed denominations are: " + catalog.billList());
+        }
+    }
+
+    /**
+     * Troco como valor da moeda -> quantidade, só com as moedas usadas no plano.
+     */
+    public CoinChange toChange(int[] plan) {
+        return coinInventory.toChange(plan);
+    }
+
+    /**
+     * Calcula e reserva o troco de uma vez; null se o estoque não permite.
+     */
+    public Reservation reserveChange(int cents, boolean minimal) {
+        return coinInventory.reserve(stock -> changeEngine.plan(cents, stock, minimal));
+    }
+
+    /**
+     * Como {@link #reserveChange(int, boolean)}, medindo cada cálculo de plano (inclusive os refeitos
+     * quando o CAS perde a corrida) no timer informado.
+     */
+    public Reservation reserveChange(int cents, boolean minimal, Timer planTimer) {
+        return coinInventory.reserve(stock -> planTimer.record(() -> changeEngine.plan(cents, stock, minimal)));
+    }
+
+    /**
+     * Planeja várias trocas em sequência sobre o mesmo snapshot do estoque e reserva a soma dos planos
+     * num único CAS. O plano de cada item fica em plans (null quando o estoque restante não permite);
+     * itens com cents negativo são ignorados. Se atomic, basta um item sem plano para nada ser reservado.
+     *
+     * @return a reserva do total, ou null se atomic e algum item não pôde ser atendido
+     */
+    public Reservation reserveChanges(int[] cents, boolean[] minimal, int[][] plans, boolean atomic) {
+        return coinInventory.reserve(stock -> {
+            // O planner pode rodar de novo se o CAS perder a corrida, então tudo é recalculado aqui
+            int[] remaining = stock.clone();
+            int[] total = new int[stock.length];
+            for (int n = 0; n < cents.length; n++) {
+                int[] plan = cents[n] < 0 ? null : changeEngine.plan(cents[n], remaining, minimal[n]);
+                plans[n] = plan;
+                if (plan == null) {
+                    if (atomic && cents[n] >= 0) {
+                        return null;
+                    }
+                    continue;
+                }
+                for (int i = 0; i < plan.length; i++) {
+                    remaining[i] -= plan[i];
+                    total[i] += plan[i];
+                }
+            }
+            return total;
+        });
+    }
+
+    /**
+     * @return nova contagem da cédula, ou o novo total recebido quando allowMultipleBills
+     */
+    public int registerBill(int amount, boolean allowMultipleBills) {
+        if (!allowMultipleBills) {
+            // Valor deve ser uma cédula válida; assume que a validação já ocorreu
+            int count = billInventory.merge(amount, 1, Integer::sum);
+            version.incrementAndGet();
+            fleet.billsChanged(catalog.getCurrency(), amount, 1, 0);
+            return count;
+        }
+        int total = totalBillsReceived.addAndGet(amount);
+        version.incrementAndGet();
+        fleet.billsChanged(catalog.getCurrency(), 0, 0, amount);
+        return total;
+    }
+
+    /**
+     * Contabiliza uma troca já confirmada.
+     */
+    public void recordExchange(int amount) {
+        stats.recordExchange(amount);
+    }
+
+    public MachineStats getStats() {
+        return stats;
+    }
+
+    public void reset(int initialQuantity) {
+        coinInventory.reset(initialQuantity);
+        stats.reset();
+        for (Integer bill : billInventory.keySet()) {
+            Integer removed = billInventory.remove(bill);
+            if (removed != null) {
+                fleet.billsChanged(catalog.getCurrency(), bill, -removed, 0);
+            }
+        }
+        fleet.billsChanged(catalog.getCurrency(), 0, 0, -totalBillsReceived.getAndSet(0));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Volta a máquina a um estado gravado: moedas por denominação, cédulas recebidas e o acumulador de
+     * allowMultipleBills. As estatísticas recomeçam do zero, como no reset.
+     */
+    public void restore(int[] coins, Map<Integer, Integer> bills, int totalBills) {
+        reset(0);
+        coinInventory.restore(coins);
+        bills.forEach((bill, count) -> {
+            billInventory.put(bill, count);
+            fleet.billsChanged(catalog.getCurrency(), bill, count, 0);
+        });
+        totalBillsReceived.set(totalBills);
+        fleet.billsChanged(catalog.getCurrency(), 0, 0, totalBills);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Incrementada depois de cada mutação de moedas (inclusive reservas desfeitas) ou de cédulas.
+     * Quem lê a versão antes do estado nunca associa um estado antigo a uma versão nova.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Map<Integer, Integer> getBillInventory() {
+        return new HashMap<>(billInventory);
+    }
+
+    public int getTotalBillsReceived() {
+        return totalBillsReceived.get();
+    }
+}
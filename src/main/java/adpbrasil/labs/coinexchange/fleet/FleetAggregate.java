@@ -0,0 +1,96 @@
+package adpbrasil.labs.coinexchange.fleet;
+
+import adpbrasil.labs.coinexchange.inventory.DenominationCatalog;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totais da frota por moeda, mantidos incrementalmente a partir das mutações de cada máquina.
+ * Ler a visão agregada não percorre os shards.
+ */
+public class FleetAggregate {
+
+    private final Map<String, CurrencyTotals> totals = new ConcurrentHashMap<>();
+    private final AtomicInteger machines = new AtomicInteger();
+
+    void track(CoinMachine machine) {
+        DenominationCatalog catalog = machine.getCatalog();
+        CurrencyTotals currencyTotals = totals.computeIfAbsent(catalog.getCurrency(), c -> new CurrencyTotals(catalog.coins()));
+        int[] initial = machine.getCoinInventory().snapshot();
+        currencyTotals.apply(new int[initial.length], initial);
+        machine.getCoinInventory().addListener(currencyTotals::apply);
+        machines.incrementAndGet();
+    }
+
+    void billsChanged(String currency, int bill, int billDelta, int multipleBillsDelta) {
+        CurrencyTotals currencyTotals = totals.get(currency);
+        if (billDelta != 0) {
+            currencyTotals.bills.computeIfAbsent(bill, b -> new LongAdder()).add(billDelta);
+        }
+        if (multipleBillsDelta != 0) {
+            currencyTotals.totalBillsReceived.add(multipleBillsDelta);
+        }
+    }
+
+    public int getMachineCount() {
+        return machines.get();
+    }
+
+    /**
+     * Visão da frota por moeda: moedas por denominação, valor total em centavos e cédulas recebidas.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> currencies = new LinkedHashMap<>();
+        totals.forEach((currency, currencyTotals) -> currencies.put(currency, currencyTotals.toMap()));
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("machines", machines.get());
+        view.put("currencies", currencies);
+        return view;
+    }
+
+    private static class CurrencyTotals {
+        private final int[] denominations;
+        private final LongAdder[] coins;
+        private final LongAdder totalCents = new LongAdder();
+        private final Map<Integer, LongAdder> bills = new ConcurrentHashMap<>();
+        private final LongAdder totalBillsReceived = new LongAdder();
+
+        CurrencyTotals(int[] denominations) {
+            this.denominations = denominations;
+            this.coins = new LongAdder[denominations.length];
+            for (int i = 0; i < coins.length; i++) {
+                coins[i] = new LongAdder();
+            }
+        }
+
+        void apply(int[] before, int[] after) {
+            for (int i = 0; i < after.length; i++) {
+                int delta = after[i] - before[i];
+                if (delta != 0) {
+                    coins[i].add(delta);
+                    totalCents.add((long) delta * denominations[i]);
+                }
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<Integer, Long> coinInventory = new LinkedHashMap<>();
+            for (int i = 0; i < denominations.length; i++) {
+                coinInventory.put(denominations[i], coins[i].sum());
+            }
+            Map<Integer, Long> billInventory = new LinkedHashMap<>();
+            bills.forEach((bill, count) -> billInventory.put(bill, count.sum()));
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("coinInventory", coinInventory);
+            map.put("totalCents", totalCents.sum());
+            map.put("billInventory", billInventory);
+            map.put("totalBillsReceived", totalBillsReceived.sum());
+            return map;
+        }
+    }
+}
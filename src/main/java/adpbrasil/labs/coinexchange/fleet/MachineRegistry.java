@@ -0,0 +1,63 @@
+package adpbrasil.labs.coinexchange.fleet;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.exception.MachineNotFoundException;
+import adpbrasil.labs.coinexchange.inventory.DenominationCatalog;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registro das máquinas da frota, montado a partir de coin.machines (id -> moeda).
+ * Sem configuração existe uma única máquina "default" na moeda ativa. As rotas de uma máquina ficam sob
+ * /api/exchange/machines/{id}, então qualquer id que caiba num segmento de caminho serve.
+ */
+public class MachineRegistry {
+
+    public static final String DEFAULT_MACHINE = "default";
+
+    private final Map<String, CoinMachine> machines;
+    private final FleetAggregate fleet = new FleetAggregate();
+    private final String defaultMachineId;
+
+    public MachineRegistry(CoinProperties properties) {
+        Map<String, String> configured = properties.getMachines().isEmpty()
+                ? Map.of(DEFAULT_MACHINE, properties.getCurrency())
+                : properties.getMachines();
+
+        Map<String, DenominationCatalog> catalogs = new LinkedHashMap<>();
+        Map<String, CoinMachine> registered = new LinkedHashMap<>();
+        configured.forEach((id, currency) -> {
+            if (id == null || id.isBlank() || id.contains("/")) {
+                throw new IllegalStateException("Machine id '" + id + "' is not a valid path segment.");
+            }
+            String code = (currency == null || currency.isBlank()) ? properties.getCurrency() : currency;
+            DenominationCatalog catalog = catalogs.computeIfAbsent(code, c -> DenominationCatalog.from(properties, c));
+            registered.put(id, new CoinMachine(id, catalog, properties.getInitialQuantity(), fleet));
+        });
+        this.machines = Collections.unmodifiableMap(registered);
+        this.defaultMachineId = machines.containsKey(DEFAULT_MACHINE) ? DEFAULT_MACHINE : machines.keySet().iterator().next();
+    }
+
+    public CoinMachine get(String machineId) {
+        CoinMachine machine = machines.get(machineId);
+        if (machine == null) {
+            throw new MachineNotFoundException("Machine not found: " + machineId);
+        }
+        return machine;
+    }
+
+    public CoinMachine getDefault() {
+        return machines.get(defaultMachineId);
+    }
+
+    public Collection<CoinMachine> getMachines() {
+        return machines.values();
+    }
+
+    public FleetAggregate getFleet() {
+        return fleet;
+    }
+}
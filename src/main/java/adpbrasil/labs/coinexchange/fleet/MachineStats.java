@@ -0,0 +1,97 @@
+package adpbrasil.labs.coinexchange.fleet;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de trocas de uma máquina, atualizados a cada troca confirmada: total geral e
+ * volume por hora nas últimas {@link #HOURS} horas, num anel de buckets indexado pela hora.
+ * Escritas não bloqueiam e leituras não percorrem o histórico.
+ */
+public class MachineStats {
+
+    static final int HOURS = 24;
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    private final Clock clock;
+    private final LongAdder exchanges = new LongAdder();
+    private final LongAdder exchangedAmount = new LongAdder();
+    private final AtomicReferenceArray<HourBucket> hours = new AtomicReferenceArray<>(HOURS);
+
+    public MachineStats(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void recordExchange(int amount) {
+        exchanges.increment();
+        exchangedAmount.add(amount);
+        HourBucket bucket = bucket(clock.millis() / HOUR_MILLIS);
+        bucket.exchanges.increment();
+        bucket.amount.add(amount);
+    }
+
+    public long getExchanges() {
+        return exchanges.sum();
+    }
+
+    public long getExchangedAmount() {
+        return exchangedAmount.sum();
+    }
+
+    /**
+     * Trocas por hora, da mais antiga para a atual; horas sem movimento aparecem com zero.
+     */
+    public List<Map<String, Object>> exchangesPerHour() {
+        long currentHour = clock.millis() / HOUR_MILLIS;
+        List<Map<String, Object>> view = new ArrayList<>(HOURS);
+        for (long hour = currentHour - HOURS + 1; hour <= currentHour; hour++) {
+            HourBucket bucket = hours.get((int) (hour % HOURS));
+            boolean current = bucket != null && bucket.hour == hour;
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("hour", Instant.ofEpochMilli(hour * HOUR_MILLIS).toString());
+            entry.put("exchanges", current ? bucket.exchanges.sum() : 0L);
+            entry.put("amount", current ? bucket.amount.sum() : 0L);
+            view.add(entry);
+        }
+        return view;
+    }
+
+    public void reset() {
+        exchanges.reset();
+        exchangedAmount.reset();
+        for (int i = 0; i < HOURS; i++) {
+            hours.set(i, null);
+        }
+    }
+
+    // Slot de uma hora anterior é substituído por CAS; quem perde a corrida usa o bucket do vencedor
+    private HourBucket bucket(long hour) {
+        int slot = (int) (hour % HOURS);
+        while (true) {
+            HourBucket bucket = hours.get(slot);
+            if (bucket != null && bucket.hour == hour) {
+                return bucket;
+            }
+            HourBucket fresh = new HourBucket(hour);
+            if (hours.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static final class HourBucket {
+        private final long hour;
+        private final LongAdder exchanges = new LongAdder();
+        private final LongAdder amount = new LongAdder();
+
+        private HourBucket(long hour) {
+            this.hour = hour;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package adpbrasil.labs.coinexchange.idempotency;
+
+import adpbrasil.labs.coinexchange.config.IdempotencyProperties;
+import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import adpbrasil.labs.coinexchange.exception.IdempotencyInProgressException;
+import adpbrasil.labs.coinexchange.exception.IdempotencyKeyReusedException;
+import adpbrasil.labs.coinexchange.exception.IdempotencyLimitException;
+import adpbrasil.labs.coinexchange.persistence.IdempotencyKeyLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicação de POST /api/exchange pelo header Idempotency-Key: a primeira requisição com a chave troca
+ * e a resposta fica guardada; as repetições recebem a mesma resposta sem passar pelo serviço. Uma repetição
+ * que chega enquanto a original ainda roda espera por ela (até coin.idempotency.in-flight-timeout).
+ *
+ * A chave vale para um único pedido: reusada com outra máquina ou outros parâmetros é recusada. Só trocas
+ * bem-sucedidas ficam guardadas; uma falha é repassada a quem esperava por ela e a chave fica livre para a
+ * próxima tentativa. As chaves expiram depois de coin.idempotency.ttl e, acima de coin.idempotency.max-keys,
+ * as mais antigas saem primeiro. Só respostas prontas saem: uma chave em andamento nunca é descartada (o
+ * retry dela trocaria de novo); em vez disso, acima de coin.idempotency.max-in-flight chaves em andamento,
+ * as chaves novas são recusadas. Com coin.idempotency.persistent as respostas também vão para um
+ * {@link IdempotencyKeyLog} e são recarregadas no start.
+ */
+@Component
+public class IdempotencyCache implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyCache.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotency-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * Resposta de uma requisição com chave; replayed quando ela veio de uma execução anterior.
+     */
+    public record Outcome(ExchangeResponse response, boolean replayed) {
+    }
+
+    private final IdempotencyProperties properties;
+    private final Clock clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Respostas prontas na ordem em que terminaram, para expirar e descartar as mais antigas sem percorrer o
+    // mapa; as chaves em andamento só entram aqui ao terminar, então o descarte nunca as alcança
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    // Tamanho de order (o size() da fila é O(n)) e chaves em andamento
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+    private volatile IdempotencyKeyLog log;
+    private volatile boolean running;
+
+    @Autowired
+    public IdempotencyCache(IdempotencyProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    public IdempotencyCache(IdempotencyProperties properties, Clock clock) {
+        if (properties.getMaxKeys() < 1 || properties.getMaxInFlight() < 1) {
+            throw new IllegalArgumentException("The idempotency cache must hold at least one key.");
+        }
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    /**
+     * Executa a troca uma vez por chave.
+     *
+     * @param fingerprint identifica o pedido (máquina e parâmetros); a mesma chave com outro pedido é recusada
+     * @throws IdempotencyKeyReusedException se a chave já foi usada com outro pedido
+     * @throws IdempotencyInProgressException se a execução original não terminou dentro do in-flight-timeout
+     * @throws IdempotencyLimitException se a chave é nova e já há max-in-flight chaves em andamento
+     */
+    public Outcome execute(String key, String fingerprint, Supplier<ExchangeResponse> exchange) {
+        validate(key);
+        long now = clock.millis();
+        Entry created = new Entry(key, fingerprint, now);
+        while (true) {
+            Entry existing = entries.get(key);
+            if (existing == null) {
+                // A vaga é reservada antes de publicar a chave; um retry de chave conhecida não precisa dela
+                reserveInFlight();
+                existing = entries.putIfAbsent(key, created);
+                if (existing == null) {
+                    return new Outcome(run(created, exchange, now), false);
+                }
+                inFlight.decrementAndGet();
+            }
+            if (existing.result.isDone() && expired(existing, now)) {
+                entries.remove(key, existing);
+                continue;
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException("Idempotency key " + key + " was already used for a different request.");
+            }
+            return new Outcome(await(existing), true);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private void reserveInFlight() {
+        int taken;
+        do {
+            taken = inFlight.get();
+            if (taken >= properties.getMaxInFlight()) {
+                throw new IdempotencyLimitException("Too many idempotent requests in progress (" + properties.getMaxInFlight() + ").");
+            }
+        } while (!inFlight.compareAndSet(taken, taken + 1));
+    }
+
+    private ExchangeResponse run(Entry entry, Supplier<ExchangeResponse> exchange, long now) {
+        ExchangeResponse response;
+        try {
+            response = exchange.get();
+        } catch (RuntimeException e) {
+            // Nada foi trocado: a chave fica livre e quem esperava recebe a mesma falha
+            entries.remove(entry.key, entry);
+            entry.result.completeExceptionally(e);
+            inFlight.decrementAndGet();
+            throw e;
+        }
+        // Completa antes do append: uma compactação do arquivo no meio do caminho já enxerga a resposta
+        entry.result.complete(response);
+        inFlight.decrementAndGet();
+        order.add(entry);
+        completed.incrementAndGet();
+        evict(now);
+        IdempotencyKeyLog current = log;
+        if (current != null) {
+            try {
+                current.append(new IdempotencyKeyLog.Entry(entry.key, entry.fingerprint, entry.createdAt, response));
+                compactIfNeeded(current);
+            } catch (IOException e) {
+                // A troca já aconteceu; sem o arquivo a chave continua valendo em memória até o restart
+                logger.error("Could not persist idempotency key {}.", entry.key, e);
+            }
+        }
+        return response;
+    }
+
+    private ExchangeResponse await(Entry entry) {
+        try {
+            return entry.result.get(properties.getInFlightTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyInProgressException("A request with idempotency key " + entry.key + " is still in progress.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyInProgressException("A request with idempotency key " + entry.key + " is still in progress.");
+        }
+    }
+
+    private void evict(long now) {
+        // Uma thread descarta por vez; as outras seguem, a próxima inserção continua o trabalho
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            Entry oldest;
+            while ((oldest = order.peek()) != null
+                    && (completed.get() > properties.getMaxKeys() || expired(oldest, now) || entries.get(oldest.key) != oldest)) {
+                order.poll();
+                completed.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean expired(Entry entry, long now) {
+        return now - entry.createdAt >= properties.getTtl().toMillis();
+    }
+
+    private static void validate(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("The " + HEADER + " header must not be blank.");
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("The " + HEADER + " header must have at most " + MAX_KEY_LENGTH + " characters.");
+        }
+    }
+
+    // O arquivo só cresce com appends; passando do dobro do limite ele é reescrito com as chaves vivas
+    private void compactIfNeeded(IdempotencyKeyLog current) throws IOException {
+        if (current.appended() <= 2L * properties.getMaxKeys() || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            if (current.appended() > 2L * properties.getMaxKeys()) {
+                current.rewrite(this::completedEntries);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private List<IdempotencyKeyLog.Entry> completedEntries() {
+        List<IdempotencyKeyLog.Entry> completed = new ArrayList<>();
+        long now = clock.millis();
+        for (Entry entry : order) {
+            ExchangeResponse response = entry.result.getNow(null);
+            if (response != null && entries.get(entry.key) == entry && !expired(entry, now)) {
+                completed.add(new IdempotencyKeyLog.Entry(entry.key, entry.fingerprint, entry.createdAt, response));
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Recarrega as chaves ainda válidas do arquivo e o reescreve só com elas.
+     */
+    private void load(IdempotencyKeyLog keyLog) throws IOException {
+        long now = clock.millis();
+        // A última gravação de uma chave vale; a ordem do arquivo é a de criação
+        Map<String, IdempotencyKeyLog.Entry> live = new LinkedHashMap<>();
+        for (IdempotencyKeyLog.Entry stored : keyLog.readAll()) {
+            live.remove(stored.key());
+            if (now - stored.createdAt() < properties.getTtl().toMillis()) {
+                live.put(stored.key(), stored);
+            }
+        }
+        for (IdempotencyKeyLog.Entry stored : live.values()) {
+            Entry entry = new Entry(stored.key(), stored.fingerprint(), stored.createdAt());
+            entry.result.complete(stored.response());
+            entries.put(entry.key, entry);
+            order.add(entry);
+            completed.incrementAndGet();
+        }
+        evict(now);
+        keyLog.rewrite(this::completedEntries);
+    }
+
+    @Override
+    public void start() {
+        lifecycleLock.lock();
+        try {
+            if (running) {
+                return;
+            }
+            if (properties.isPersistent()) {
+                long started = System.nanoTime();
+                try {
+                    IdempotencyKeyLog keyLog = IdempotencyKeyLog.open(Path.of(properties.getFile()));
+                    load(keyLog);
+                    log = keyLog;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not open the idempotency key file " + properties.getFile() + ".", e);
+                }
+                logger.info("Loaded {} idempotency keys in {} ms.", entries.size(), (System.nanoTime() - started) / 1_000_000);
+            }
+            running = true;
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        lifecycleLock.lock();
+        try {
+            running = false;
+            IdempotencyKeyLog current = log;
+            log = null;
+            if (current != null) {
+                current.close();
+            }
+        } catch (IOException e) {
+            logger.error("Could not close the idempotency key file.", e);
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Carrega as chaves antes de o servidor web aceitar trocas e fecha o arquivo depois dele
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long createdAt;
+        private final CompletableFuture<ExchangeResponse> result = new CompletableFuture<>();
+
+        private Entry(String key, String fingerprint, long createdAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+    }
+}
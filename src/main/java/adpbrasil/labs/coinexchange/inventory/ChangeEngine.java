@@ -0,0 +1,264 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calcula planos de troco respeitando o estoque de cada denominação.
+ *
+ * Para as cédulas conhecidas os planos ótimos sem restrição de estoque são pré-calculados: se o estoque
+ * cobre o plano em cache, ele é a resposta (O(denominações), sem alocação). Caso contrário o plano sai de
+ * uma mochila limitada (bounded knapsack) que encontra solução sempre que ela existe, minimizando ou
+ * maximizando o número de moedas.
+ *
+ * A mochila usa uma única linha de dp e um back-pointer de 16 bits por denominação, em buffers emprestados de
+ * um pool do motor: no máximo um por processador fica guardado, e só os de até {@link #POOLED_CENTS} (uma
+ * cédula de 100), uns 180 KB cada. Um valor maior, até {@link #MAX_CENTS}, usa buffers de ~2 MB que voltam
+ * para o GC no fim da chamada, então uma rajada de pedidos grandes não deixa memória presa. O pool não depende
+ * da thread: em virtual threads, onde cada requisição roda numa thread nova, os buffers continuam sendo
+ * reaproveitados entre requisições; quando mais chamadas rodam juntas do que há buffers guardados, as
+ * excedentes alocam os seus e descartam no fim.
+ *
+ * Os arrays devolvidos são indexados como as denominações e não devem ser alterados por quem chama.
+ */
+public class ChangeEngine {
+
+    /**
+     * Maior troco aceito, em centavos (1000 em cédulas); a validação do pedido recusa valores acima disso.
+     */
+    public static final int MAX_CENTS = 100_000;
+
+    /**
+     * Maior valor, em centavos, cujos buffers voltam para o pool.
+     */
+    static final int POOLED_CENTS = 10_000;
+
+    private static final int INF = Integer.MAX_VALUE / 2;
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private final Queue<Workspace> pool = new ConcurrentLinkedQueue<>();
+    // Tamanho do pool; ConcurrentLinkedQueue.size() percorre a fila
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private final int[] denominations;
+    private final int[][] minimalPlans;
+    private final int[][] maximalPlans;
+
+    /**
+     * @param denominations valores das moedas em centavos, em ordem decrescente
+     * @param bills         cédulas conhecidas, em unidades inteiras (dólares, reais...)
+     */
+    public ChangeEngine(int[] denominations, int[] bills) {
+        this.denominations = denominations.clone();
+        int maxBill = Arrays.stream(bills).max().orElse(0);
+        this.minimalPlans = new int[maxBill + 1][];
+        this.maximalPlans = new int[maxBill + 1][];
+        for (int bill : bills) {
+            int cents = bill * 100;
+            minimalPlans[bill] = unboundedMinimal(cents);
+            maximalPlans[bill] = unboundedMaximal(cents);
+        }
+    }
+
+    /**
+     * @return quantidade por denominação que soma exatamente cents, ou null se o estoque não permite
+     * @throws IllegalArgumentException se cents passa de {@link #MAX_CENTS}
+     */
+    public int[] plan(int cents, int[] stock, boolean minimal) {
+        if (cents < 0 || cents > MAX_CENTS) {
+            throw new IllegalArgumentException("Change must be between 0 and " + MAX_CENTS + " cents.");
+        }
+        if (cents % 100 == 0 && cents / 100 < minimalPlans.length) {
+            int[] cached = (minimal ? minimalPlans : maximalPlans)[cents / 100];
+            if (cached != null && fits(cached, stock)) {
+                return cached;
+            }
+        }
+        long available = 0;
+        for (int i = 0; i < stock.length; i++) {
+            available += (long) stock[i] * denominations[i];
+        }
+        if (available < cents) {
+            return null;
+        }
+        return bounded(cents, stock, minimal ? 1 : -1);
+    }
+
+    private boolean fits(int[] plan, int[] stock) {
+        for (int i = 0; i < plan.length; i++) {
+            if (plan[i] > stock[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mochila limitada em O(denominações × centavos): para cada denominação d com c moedas,
+     * dp'[a] = min_{0<=k<=c} dp[a - k·d] + k·w, resolvido com uma fila monotônica por resíduo de a mod d.
+     * Com w = 1 minimiza o número de moedas; com w = -1 maximiza.
+     *
+     * A linha de dp é atualizada no lugar: em cada classe de resíduo o valor antigo de dp[a] entra na fila
+     * antes de ser sobrescrito. A menor moeda vai primeiro e não precisa de back-pointer (sobra para ela o
+     * que as outras não cobrem); nas demais d >= 2, então a quantidade usada (até MAX_CENTS / 2) cabe num char.
+     */
+    private int[] bounded(int cents, int[] stock, int weight) {
+        Workspace workspace = borrow(cents);
+        try {
+            return bounded(cents, stock, weight, workspace);
+        } finally {
+            release(workspace);
+        }
+    }
+
+    private int[] bounded(int cents, int[] stock, int weight, Workspace workspace) {
+        int n = denominations.length;
+        workspace.ensure(n, cents);
+        int[] dp = workspace.dp;
+        int[] queueIndex = workspace.queueIndex;
+        int[] queueKey = workspace.queueKey;
+
+        int smallest = n - 1;
+        Arrays.fill(dp, 0, cents + 1, INF);
+        int d = denominations[smallest];
+        int limit = Math.min(stock[smallest], cents / d);
+        for (int j = 0; j <= limit; j++) {
+            dp[j * d] = j * weight;
+        }
+
+        for (int k = smallest - 1; k >= 0; k--) {
+            d = denominations[k];
+            limit = Math.min(stock[k], cents / d);
+            char[] taken = workspace.taken[k];
+            for (int r = 0; r < d && r <= cents; r++) {
+                int head = 0;
+                int tail = 0;
+                for (int j = 0, a = r; a <= cents; j++, a += d) {
+                    if (dp[a] < INF) {
+                        int key = dp[a] - j * weight;
+                        while (tail > head && queueKey[tail - 1] >= key) {
+                            tail--;
+                        }
+                        queueIndex[tail] = j;
+                        queueKey[tail] = key;
+                        tail++;
+                    }
+                    while (head < tail && queueIndex[head] < j - limit) {
+                        head++;
+                    }
+                    if (head < tail) {
+                        dp[a] = queueKey[head] + j * weight;
+                        taken[a] = (char) (j - queueIndex[head]);
+                    } else {
+                        dp[a] = INF;
+                    }
+                }
+            }
+        }
+        if (dp[cents] >= INF) {
+            return null;
+        }
+
+        int[] plan = new int[n];
+        int a = cents;
+        for (int k = 0; k < smallest; k++) {
+            plan[k] = workspace.taken[k][a];
+            a -= plan[k] * denominations[k];
+        }
+        plan[smallest] = a / denominations[smallest];
+        return plan;
+    }
+
+    private Workspace borrow(int cents) {
+        if (cents <= POOLED_CENTS) {
+            Workspace workspace = pool.poll();
+            if (workspace != null) {
+                pooled.decrementAndGet();
+                return workspace;
+            }
+        }
+        return new Workspace();
+    }
+
+    private void release(Workspace workspace) {
+        if (workspace.dp.length > POOLED_CENTS + 1) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= POOL_SIZE) {
+            pool.offer(workspace);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * Buffers guardados no pool agora.
+     */
+    int pooledWorkspaces() {
+        return pooled.get();
+    }
+
+    private int[] unboundedMinimal(int cents) {
+        int n = denominations.length;
+        int[] best = new int[cents + 1];
+        int[] lastCoin = new int[cents + 1];
+        Arrays.fill(best, INF);
+        best[0] = 0;
+        for (int a = 1; a <= cents; a++) {
+            for (int i = 0; i < n; i++) {
+                int d = denominations[i];
+                if (d <= a && best[a - d] + 1 < best[a]) {
+                    best[a] = best[a - d] + 1;
+                    lastCoin[a] = i;
+                }
+            }
+        }
+        if (best[cents] >= INF) {
+            return null;
+        }
+        int[] plan = new int[n];
+        for (int a = cents; a > 0; a -= denominations[lastCoin[a]]) {
+            plan[lastCoin[a]]++;
+        }
+        return plan;
+    }
+
+    private int[] unboundedMaximal(int cents) {
+        int smallest = denominations.length - 1;
+        if (cents % denominations[smallest] != 0) {
+            return null;
+        }
+        int[] plan = new int[denominations.length];
+        plan[smallest] = cents / denominations[smallest];
+        return plan;
+    }
+
+    /**
+     * Buffers de uma chamada da mochila, do tamanho do maior valor já calculado com eles.
+     */
+    private static final class Workspace {
+        private int[] dp = new int[0];
+        private int[] queueIndex = new int[0];
+        private int[] queueKey = new int[0];
+        private char[][] taken = new char[0][];
+
+        private void ensure(int denominations, int cents) {
+            if (dp.length <= cents) {
+                dp = new int[cents + 1];
+                queueIndex = new int[cents + 1];
+                queueKey = new int[cents + 1];
+                taken = new char[0][];
+            }
+            if (taken.length < denominations) {
+                char[][] grown = new char[denominations][];
+                System.arraycopy(taken, 0, grown, 0, taken.length);
+                for (int k = taken.length; k < denominations; k++) {
+                    grown[k] = new char[dp.length];
+                }
+                taken = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Troco como valor da moeda -> quantidade, sem HashMap: uma visão só de leitura sobre as denominações do
+ * inventário e o plano reservado (quantidade por índice), os mesmos arrays do planejamento. Quem conhece o
+ * tipo percorre os índices direto, sem boxing; para os demais é um Map comum com as moedas usadas, na ordem
+ * das denominações.
+ *
+ * Os dois arrays não são copiados e não podem mudar depois de criado o troco (os planos do ChangeEngine,
+ * inclusive os das tabelas pré-calculadas, nunca são alterados).
+ */
+public final class CoinChange extends AbstractMap<Integer, Integer> {
+
+    private final int[] denominations;
+    private final int[] counts;
+    private final int size;
+
+    CoinChange(int[] denominations, int[] counts) {
+        if (counts.length != denominations.length) {
+            throw new IllegalArgumentException("Expected " + denominations.length + " coin counts, got " + counts.length + ".");
+        }
+        this.denominations = denominations;
+        this.counts = counts;
+        int used = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                used++;
+            }
+        }
+        this.size = used;
+    }
+
+    /**
+     * Número de denominações do inventário, usadas ou não; os índices vão de 0 a slots() - 1.
+     */
+    public int slots() {
+        return counts.length;
+    }
+
+    public int denomination(int index) {
+        return denominations[index];
+    }
+
+    /**
+     * Quantidade entregue da denominação do índice; 0 se ela não entra no troco.
+     */
+    public int count(int index) {
+        return counts[index];
+    }
+
+    public long totalCents() {
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += (long) counts[i] * denominations[i];
+        }
+        return total;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (key instanceof Integer coin) {
+            for (int i = 0; i < denominations.length; i++) {
+                if (denominations[i] == coin) {
+                    return counts[i] > 0 ? counts[i] : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Integer> action) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                action.accept(denominations[i], counts[i]);
+            }
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<Integer, Integer>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < counts.length;
+                    }
+
+                    @Override
+                    public Map.Entry<Integer, Integer> next() {
+                        if (next >= counts.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<Integer, Integer> entry = new SimpleImmutableEntry<>(denominations[next], counts[next]);
+                        next = advance(next + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int advance(int from) {
+        int index = from;
+        while (index < counts.length && counts[index] <= 0) {
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,217 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Inventário de moedas indexado por denominação.
+ *
+ * O estado é um array imutável de quantidades trocado via CAS: cada mutação
+ * (inclusive a reserva de um plano de troco com várias denominações) é aplicada
+ * em um único passo atômico, sem locks.
+ */
+public class CoinInventory {
+
+    private final int[] denominations;
+    private final int[] capacity;
+    private final AtomicReference<InventorySnapshot> state;
+    private final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
+
+    public CoinInventory(int[] denominations, int initialQuantity) {
+        this(denominations, unlimited(denominations.length), initialQuantity);
+    }
+
+    public CoinInventory(int[] denominations, int[] capacity, int initialQuantity) {
+        this.denominations = denominations.clone();
+        this.capacity = capacity.clone();
+        this.state = new AtomicReference<>(new InventorySnapshot(filled(initialQuantity), this.denominations));
+    }
+
+    public CoinInventory(DenominationCatalog catalog, int initialQuantity) {
+        this(catalog.coins(), catalog.capacity(), initialQuantity);
+    }
+
+    public void addListener(InventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    public int size() {
+        return denominations.length;
+    }
+
+    public int denomination(int index) {
+        return denominations[index];
+    }
+
+    public int capacity(int index) {
+        return capacity[index];
+    }
+
+    public int count(int index) {
+        return state.get().count(index);
+    }
+
+    /**
+     * Estado atual com totais pré-calculados; leitura O(1), sem cópia.
+     */
+    public InventorySnapshot current() {
+        return state.get();
+    }
+
+    /**
+     * Cópia das quantidades atuais, na mesma ordem das denominações.
+     */
+    public int[] snapshot() {
+        return state.get().toArray();
+    }
+
+    public Map<Integer, Integer> asMap() {
+        return asMap(state.get());
+    }
+
+    public Map<Integer, Integer> asMap(InventorySnapshot snapshot) {
+        Map<Integer, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < denominations.length; i++) {
+            map.put(denominations[i], snapshot.count(i));
+        }
+        return map;
+    }
+
+    /**
+     * Troco de um plano (quantidade por índice de denominação), sem copiar o plano.
+     */
+    public CoinChange toChange(int[] plan) {
+        return new CoinChange(denominations, plan);
+    }
+
+    public void reset(int quantity) {
+        InventorySnapshot next = new InventorySnapshot(filled(quantity), denominations);
+        notifyListeners(state.getAndSet(next).counts(), next.counts());
+    }
+
+    /**
+     * Substitui o estoque pelas quantidades informadas (estado recuperado do log de eventos), sem aplicar a capacidade.
+     */
+    public void restore(int[] counts) {
+        if (counts.length != denominations.length) {
+            throw new IllegalArgumentException("Expected " + denominations.length + " coin counts, got " + counts.length + ".");
+        }
+        InventorySnapshot next = new InventorySnapshot(counts.clone(), denominations);
+        notifyListeners(state.getAndSet(next).counts(), next.counts());
+    }
+
+    /**
+     * Adiciona moedas de uma denominação. Retorna false, sem alterar nada, se a capacidade seria excedida.
+     */
+    public boolean tryAdd(int index, int quantity) {
+        while (true) {
+            InventorySnapshot snapshot = state.get();
+            int[] current = snapshot.counts();
+            if ((long) current[index] + quantity > capacity[index]) {
+                return false;
+            }
+            int[] next = current.clone();
+            next[index] = current[index] + quantity;
+            if (swap(snapshot, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove moedas de uma denominação. Retorna false, sem alterar nada, se não houver estoque suficiente.
+     */
+    public boolean tryRemove(int index, int quantity) {
+        while (true) {
+            InventorySnapshot snapshot = state.get();
+            int[] current = snapshot.counts();
+            if (current[index] < quantity) {
+                return false;
+            }
+            int[] next = current.clone();
+            next[index] = current[index] - quantity;
+            if (swap(snapshot, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Primeira fase da troca: calcula um plano de troco sobre um snapshot do estoque e reserva todas as
+     * moedas dele atomicamente. O planner recebe o estoque atual (não deve alterá-lo) e devolve a quantidade
+     * por denominação, ou null quando não há troco possível. Se outra thread alterar o estoque no meio,
+     * o plano é refeito.
+     *
+     * @return a reserva, a ser confirmada com commit() ou desfeita com rollback(); null se não há solução
+     */
+    public Reservation reserve(Function<int[], int[]> planner) {
+        while (true) {
+            InventorySnapshot snapshot = state.get();
+            int[] current = snapshot.counts();
+            int[] plan = planner.apply(current);
+            if (plan == null) {
+                return null;
+            }
+            int[] next = new int[current.length];
+            for (int i = 0; i < current.length; i++) {
+                next[i] = current[i] - plan[i];
+                if (next[i] < 0) {
+                    throw new IllegalStateException("Change plan exceeds available coins of " + denominations[i] + " cents.");
+                }
+            }
+            if (swap(snapshot, next)) {
+                return new Reservation(this, plan);
+            }
+        }
+    }
+
+    /**
+     * Devolve ao estoque as moedas de um plano reservado.
+     */
+    void release(int[] plan) {
+        while (true) {
+            InventorySnapshot snapshot = state.get();
+            int[] current = snapshot.counts();
+            int[] next = new int[current.length];
+            for (int i = 0; i < current.length; i++) {
+                next[i] = Math.addExact(current[i], plan[i]);
+            }
+            if (swap(snapshot, next)) {
+                return;
+            }
+        }
+    }
+
+    private boolean swap(InventorySnapshot current, int[] next) {
+        if (state.compareAndSet(current, new InventorySnapshot(next, denominations))) {
+            notifyListeners(current.counts(), next);
+            return true;
+        }
+        return false;
+    }
+
+    private void notifyListeners(int[] before, int[] after) {
+        for (InventoryListener listener : listeners) {
+            listener.inventoryChanged(before, after);
+        }
+    }
+
+    private int[] filled(int quantity) {
+        int[] values = new int[denominations.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.min(quantity, capacity[i]);
+        }
+        return values;
+    }
+
+    private static int[] unlimited(int size) {
+        int[] values = new int[size];
+        Arrays.fill(values, Integer.MAX_VALUE);
+        return values;
+    }
+}
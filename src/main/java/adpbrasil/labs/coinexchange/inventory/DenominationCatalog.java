@@ -0,0 +1,129 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Catálogo de denominações de uma moeda, compilado a partir de {@link CoinProperties}
+ * em tabelas densas: validar uma moeda ou cédula é uma indexação de array.
+ */
+public class DenominationCatalog {
+
+    private final String currency;
+    private final int[] coins;
+    private final int[] bills;
+    private final int[] capacity;
+    private final int[] coinIndexByValue;
+    private final boolean[] billAllowed;
+    private final String coinsDescription;
+    private final List<Integer> billList;
+
+    private DenominationCatalog(String currency, int[] coins, int[] bills, int[] capacity) {
+        this.currency = currency;
+        this.coins = coins;
+        this.bills = bills;
+        this.capacity = capacity;
+
+        this.coinIndexByValue = new int[coins[0] + 1];
+        Arrays.fill(coinIndexByValue, -1);
+        for (int i = 0; i < coins.length; i++) {
+            coinIndexByValue[coins[i]] = i;
+        }
+        this.billAllowed = new boolean[bills[bills.length - 1] + 1];
+        for (int bill : bills) {
+            billAllowed[bill] = true;
+        }
+
+        int[] ascending = coins.clone();
+        Arrays.sort(ascending);
+        this.coinsDescription = Arrays.stream(ascending).mapToObj(String::valueOf).collect(Collectors.joining(", "));
+        this.billList = Arrays.stream(bills).boxed().toList();
+    }
+
+    public static DenominationCatalog from(CoinProperties properties) {
+        return from(properties, properties.getCurrency());
+    }
+
+    public static DenominationCatalog from(CoinProperties properties, String currency) {
+        CoinProperties.Currency definition = properties.getCurrencies().get(currency);
+        if (definition == null) {
+            throw new IllegalStateException("Currency " + currency + " is not configured under coin.currencies.");
+        }
+        if (definition.getCoins() == null || definition.getCoins().isEmpty()
+                || definition.getBills() == null || definition.getBills().isEmpty()) {
+            throw new IllegalStateException("Currency " + currency + " must define coins and bills.");
+        }
+
+        // Moedas em ordem decrescente (ordem usada pelo inventário e pelo motor de troco), cédulas crescente
+        int[] coins = definition.getCoins().stream().distinct().mapToInt(Integer::intValue).sorted().toArray();
+        reverse(coins);
+        int[] bills = definition.getBills().stream().distinct().mapToInt(Integer::intValue).sorted().toArray();
+        if (coins[coins.length - 1] <= 0 || bills[0] <= 0) {
+            throw new IllegalStateException("Denominations of " + currency + " must be positive.");
+        }
+
+        int[] capacity = new int[coins.length];
+        for (int i = 0; i < coins.length; i++) {
+            capacity[i] = definition.getCapacity().getOrDefault(coins[i], Integer.MAX_VALUE);
+        }
+        return new DenominationCatalog(currency, coins, bills, capacity);
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Valores das moedas em centavos, em ordem decrescente.
+     */
+    public int[] coins() {
+        return coins.clone();
+    }
+
+    /**
+     * Cédulas aceitas em unidades inteiras, em ordem crescente.
+     */
+    public int[] bills() {
+        return bills.clone();
+    }
+
+    /**
+     * Capacidade máxima por índice de moeda (Integer.MAX_VALUE quando não configurada).
+     */
+    public int[] capacity() {
+        return capacity.clone();
+    }
+
+    /**
+     * @return o índice da moeda, ou -1 se o valor não faz parte do catálogo
+     */
+    public int coinIndex(int coinValue) {
+        return coinValue >= 0 && coinValue < coinIndexByValue.length ? coinIndexByValue[coinValue] : -1;
+    }
+
+    public boolean isBill(int amount) {
+        return amount >= 0 && amount < billAllowed.length && billAllowed[amount];
+    }
+
+    /**
+     * Moedas aceitas em ordem crescente, ex.: "1, 5, 10, 25".
+     */
+    public String describeCoins() {
+        return coinsDescription;
+    }
+
+    public List<Integer> billList() {
+        return billList;
+    }
+
+    private static void reverse(int[] values) {
+        for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+/**
+ * Recebe cada mutação aplicada a um {@link CoinInventory}.
+ *
+ * É chamado na thread que fez a mutação, logo após o CAS; before e after são snapshots imutáveis
+ * e não devem ser alterados. As chamadas de threads diferentes podem chegar fora de ordem, então
+ * quem agrega deve trabalhar com a diferença (after - before), que é comutativa.
+ */
+@FunctionalInterface
+public interface InventoryListener {
+    void inventoryChanged(int[] before, int[] after);
+}
@@ -0,0 +1,53 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+/**
+ * Estado imutável de um {@link CoinInventory}: quantidades por denominação e os totais derivados,
+ * calculados uma vez na criação. Ler valor total ou número de moedas é O(1) e sempre consistente
+ * com as quantidades do mesmo snapshot.
+ */
+public final class InventorySnapshot {
+
+    private final int[] counts;
+    private final long totalCents;
+    private final long totalCoins;
+
+    InventorySnapshot(int[] counts, int[] denominations) {
+        this.counts = counts;
+        long cents = 0;
+        long coins = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cents += (long) counts[i] * denominations[i];
+            coins += counts[i];
+        }
+        this.totalCents = cents;
+        this.totalCoins = coins;
+    }
+
+    public int count(int index) {
+        return counts[index];
+    }
+
+    public int size() {
+        return counts.length;
+    }
+
+    public long totalCents() {
+        return totalCents;
+    }
+
+    public long totalCoins() {
+        return totalCoins;
+    }
+
+    /**
+     * Cópia das quantidades, na ordem das denominações.
+     */
+    public int[] toArray() {
+        return counts.clone();
+    }
+
+    // Array interno, compartilhado sem cópia dentro do pacote; nunca é alterado
+    int[] counts() {
+        return counts;
+    }
+}
@@ -0,0 +1,43 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moedas já retiradas do estoque para uma troca em andamento.
+ *
+ * A reserva termina com commit() (as moedas saem de vez) ou rollback() (voltam para o estoque).
+ * Só a primeira chamada tem efeito; rollback depois de commit é ignorado.
+ */
+public class Reservation {
+    private static final int PENDING = 0;
+    private static final int COMMITTED = 1;
+    private static final int ROLLED_BACK = 2;
+
+    private final CoinInventory inventory;
+    private final int[] plan;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    Reservation(CoinInventory inventory, int[] plan) {
+        this.inventory = inventory;
+        this.plan = plan;
+    }
+
+    /**
+     * Quantidade reservada por índice de denominação.
+     */
+    public int[] plan() {
+        return plan;
+    }
+
+    public boolean commit() {
+        return state.compareAndSet(PENDING, COMMITTED);
+    }
+
+    public boolean rollback() {
+        if (state.compareAndSet(PENDING, ROLLED_BACK)) {
+            inventory.release(plan);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,122 @@
+package adpbrasil.labs.coinexchange.metrics;
+
+import adpbrasil.labs.coinexchange.fleet.CoinMachine;
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import adpbrasil.labs.coinexchange.persistence.TransactionJournal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas do caminho de troca. Os medidores de cada máquina são criados uma vez em {@link #bind},
+ * então registrar uma troca não passa pelo registry; os gauges leem o inventário vivo (O(1)).
+ *
+ * <ul>
+ *   <li>coin.exchange (timer, tags machine/phase): validate, plan, reserve (inclui o plan) e persist</li>
+ *   <li>coin.exchange.insufficient (contador, tags machine/amount): trocas recusadas por falta de moedas</li>
+ *   <li>coin.change.coins (summary, tag machine): moedas entregues por troca</li>
+ *   <li>coin.inventory.coins (gauge, tags machine/currency/denomination) e coin.inventory.value (centavos)</li>
+ *   <li>coin.journal.pending (gauge): transações aceitas ainda não gravadas</li>
+ * </ul>
+ */
+public class ExchangeMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, MachineMeters> machines = new ConcurrentHashMap<>();
+
+    public ExchangeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void bind(CoinMachine machine) {
+        String id = machine.getId();
+        String currency = machine.getCatalog().getCurrency();
+        CoinInventory inventory = machine.getCoinInventory();
+        for (int i = 0; i < inventory.size(); i++) {
+            int index = i;
+            Gauge.builder("coin.inventory.coins", inventory, inv -> inv.count(index))
+                    .description("Coins in stock per denomination")
+                    .tags("machine", id, "currency", currency, "denomination", String.valueOf(inventory.denomination(i)))
+                    .register(registry);
+        }
+        Gauge.builder("coin.inventory.value", inventory, inv -> inv.current().totalCents())
+                .description("Total value of the coins in stock, in cents")
+                .tags("machine", id, "currency", currency)
+                .register(registry);
+        machines.put(id, new MachineMeters(registry, id));
+    }
+
+    public void bind(TransactionJournal journal) {
+        Gauge.builder("coin.journal.pending", journal, TransactionJournal::pending)
+                .description("Accepted transactions waiting to be written")
+                .register(registry);
+    }
+
+    public Timer plan(String machineId) {
+        return machines.get(machineId).plan;
+    }
+
+    public void recordValidate(String machineId, long nanos) {
+        machines.get(machineId).validate.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordReserve(String machineId, long nanos) {
+        machines.get(machineId).reserve.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPersist(String machineId, long nanos) {
+        machines.get(machineId).persist.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordChange(String machineId, int[] plan) {
+        int coins = 0;
+        for (int count : plan) {
+            coins += count;
+        }
+        machines.get(machineId).changeCoins.record(coins);
+    }
+
+    /**
+     * @param amount valor da cédula; para várias cédulas a tag é "multiple", para não criar uma série por valor
+     */
+    public void recordInsufficient(String machineId, int amount, boolean allowMultipleBills) {
+        Counter.builder("coin.exchange.insufficient")
+                .description("Exchanges refused for lack of coins")
+                .tags("machine", machineId, "amount", allowMultipleBills ? "multiple" : String.valueOf(amount))
+                .register(registry)
+                .increment();
+    }
+
+    private static final class MachineMeters {
+        private final Timer validate;
+        private final Timer plan;
+        private final Timer reserve;
+        private final Timer persist;
+        private final DistributionSummary changeCoins;
+
+        private MachineMeters(MeterRegistry registry, String machineId) {
+            this.validate = phase(registry, machineId, "validate");
+            this.plan = phase(registry, machineId, "plan");
+            this.reserve = phase(registry, machineId, "reserve");
+            this.persist = phase(registry, machineId, "persist");
+            this.changeCoins = DistributionSummary.builder("coin.change.coins")
+                    .description("Coins handed out per exchange")
+                    .baseUnit("coins")
+                    .tags("machine", machineId)
+                    .register(registry);
+        }
+
+        private static Timer phase(MeterRegistry registry, String machineId, String phase) {
+            return Timer.builder("coin.exchange")
+                    .description("Exchange latency per phase")
+                    .tags("machine", machineId, "phase", phase)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package adpbrasil.labs.coinexchange.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Grava o troco de uma transação numa única coluna, no formato "moeda:quantidade" separado por vírgula
+ * (ex.: "25:40,10:1"). Substitui a tabela transaction_change: uma linha por transação, sem joins na leitura.
+ */
+@Converter
+public class ChangeMapConverter implements AttributeConverter<Map<Integer, Integer>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Map<Integer, Integer> change) {
+        if (change == null) {
+            return null;
+        }
+        StringBuilder encoded = new StringBuilder(change.size() * 6);
+        change.forEach((coin, count) -> {
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(coin).append(':').append(count);
+        });
+        return encoded.toString();
+    }
+
+    @Override
+    public Map<Integer, Integer> convertToEntityAttribute(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        Map<Integer, Integer> change = new LinkedHashMap<>();
+        int start = 0;
+        while (start < encoded.length()) {
+            int separator = encoded.indexOf(':', start);
+            int end = encoded.indexOf(',', separator);
+            if (end < 0) {
+                end = encoded.length();
+            }
+            change.put(Integer.parseInt(encoded, start, separator, 10), Integer.parseInt(encoded, separator + 1, end, 10));
+            start = end + 1;
+        }
+        return change;
+    }
+}
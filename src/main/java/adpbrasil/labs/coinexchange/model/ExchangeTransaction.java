@@ -8,24 +8,31 @@ import java.time.LocalDateTime;
 import java.util.Map;
 
 @Entity
-@Table(name = "exchange_transaction")
+@Table(name = "exchange_transaction", indexes = {
+        @Index(name = "idx_exchange_transaction_date", columnList = "transaction_date, id"),
+        @Index(name = "idx_exchange_transaction_amount", columnList = "amount, id"),
+        @Index(name = "idx_exchange_transaction_machine", columnList = "machine_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ExchangeTransaction {
 
+    // Sequence com otimizador pooled: ids reservados em blocos de 50, o que permite batch de inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "exchange_transaction_seq")
+    @SequenceGenerator(name = "exchange_transaction_seq", sequenceName = "exchange_transaction_seq", allocationSize = 50)
     private Long id;
 
+    private String machineId;
+
     private int amount;
 
     private boolean minimal;
 
-    @ElementCollection
-    @CollectionTable(name = "transaction_change", joinColumns = @JoinColumn(name = "transaction_id"))
-    @MapKeyColumn(name = "coin_value")
-    @Column(name = "coin_count")
+    // Troco codificado numa coluna (ver ChangeMapConverter) em vez de uma tabela filha
+    @Convert(converter = ChangeMapConverter.class)
+    @Column(name = "change_coins", length = 255)
     private Map<Integer, Integer> change;
 
     private LocalDateTime transactionDate;
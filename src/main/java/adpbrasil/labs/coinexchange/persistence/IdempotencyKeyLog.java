@@ -0,0 +1,150 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Arquivo das respostas guardadas por Idempotency-Key: uma linha JSON por chave, na ordem em que as trocas
+ * terminaram. O append vai para o sistema operacional na hora (sobrevive a uma queda do processo, não do
+ * host). Uma linha incompleta no fim (gravação interrompida) é ignorada na leitura.
+ */
+public class IdempotencyKeyLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeyLog.class);
+
+    /**
+     * Resposta guardada de uma chave; createdAt em epoch millis.
+     */
+    public record Entry(String key, String fingerprint, long createdAt, ExchangeResponse response) {
+    }
+
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // ReentrantLock e não synchronized: o append faz I/O e roda na thread da requisição, que pode ser virtual
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel channel;
+    private volatile long appended;
+
+    private IdempotencyKeyLog(Path file) throws IOException {
+        this.file = file;
+        this.channel = openForAppend(file);
+    }
+
+    public static IdempotencyKeyLog open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new IdempotencyKeyLog(file);
+    }
+
+    /**
+     * Todas as entradas do arquivo, na ordem gravada; uma chave pode aparecer mais de uma vez.
+     */
+    public List<Entry> readAll() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(objectMapper.readValue(line, Entry.class));
+                } catch (JsonProcessingException e) {
+                    logger.warn("Skipping unreadable idempotency key at line {} of {}.", number, file);
+                }
+            }
+        }
+        return entries;
+    }
+
+    public void append(Entry entry) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap(encode(entry));
+        lock.lock();
+        try {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            appended++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Linhas gravadas desde a abertura ou a última reescrita.
+     */
+    public long appended() {
+        return appended;
+    }
+
+    /**
+     * Substitui o arquivo pelas entradas informadas (troca atômica por um arquivo temporário). Os appends
+     * esperam a reescrita terminar, então as entradas são lidas já sem nenhum append pela metade.
+     */
+    public void rewrite(Supplier<? extends Collection<Entry>> entries) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.lock();
+        try {
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Entry entry : entries.get()) {
+                    ByteBuffer line = ByteBuffer.wrap(encode(entry));
+                    while (line.hasRemaining()) {
+                        out.write(line);
+                    }
+                }
+                out.force(true);
+            }
+            channel.close();
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = openForAppend(file);
+            appended = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] encode(Entry entry) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(entry);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private static FileChannel openForAppend(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
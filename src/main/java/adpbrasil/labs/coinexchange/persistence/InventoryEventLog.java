@@ -0,0 +1,426 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log de eventos do inventário de uma máquina, append-only, com snapshots periódicos.
+ *
+ * Cada evento é um registro de tamanho fixo (tipo, flags, timestamp, valor, uma quantidade por denominação
+ * e CRC32) gravado no segmento corrente, events-&lt;primeiro evento&gt;.log. A cada snapshotInterval eventos
+ * o estado completo vai para snapshot-&lt;eventos aplicados&gt;.bin e um novo segmento é aberto; segmentos
+ * anteriores ao penúltimo snapshot são apagados. Na abertura o estado vem do último snapshot válido e só
+ * os eventos posteriores a ele são reaplicados, então o tempo de recuperação depende do intervalo entre
+ * snapshots e não do tamanho do histórico. Um registro incompleto ou com CRC inválido no fim do último
+ * segmento (gravação interrompida) é descartado.
+ *
+ * Os eventos vão para o sistema operacional a cada append (sobrevivem a uma queda do processo); só os
+ * snapshots são sincronizados com o disco.
+ */
+public class InventoryEventLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryEventLog.class);
+
+    /**
+     * Tipos de evento; o ordinal é gravado no registro, então novos tipos só entram no fim.
+     */
+    public enum Type {
+        // Troco entregue (quantidades do plano) e cédula recebida (amount)
+        EXCHANGE,
+        // Moedas abastecidas
+        ADD,
+        // Moedas retiradas
+        REMOVE,
+        // Estoque reposto para as quantidades do evento; cédulas zeradas
+        REPLENISH
+    }
+
+    /**
+     * Estado da máquina depois de sequence eventos.
+     */
+    public record State(int[] coins, Map<Integer, Integer> bills, int totalBillsReceived, long sequence) {
+    }
+
+    private static final int FLAG_MULTIPLE_BILLS = 1;
+    private static final int SNAPSHOT_MAGIC = 0x434F494E;
+    private static final int SNAPSHOTS_KEPT = 2;
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    // tipo + flags + timestamp + amount, antes das quantidades; o CRC32 fecha o registro
+    private static final int HEADER_SIZE = 1 + 1 + 8 + 4;
+
+    private final Path directory;
+    private final int size;
+    private final int recordSize;
+    private final long snapshotInterval;
+    private final Clock clock;
+    private final ByteBuffer record;
+    private final int[] values;
+    private final CRC32 crc = new CRC32();
+    // ReentrantLock e não synchronized: o append faz I/O e roda na thread da requisição, que pode ser virtual
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Estado reconstruído a partir dos eventos; é o que vai para o snapshot
+    private final int[] coins;
+    private final Map<Integer, Integer> bills = new TreeMap<>();
+    private int totalBillsReceived;
+    private long sequence;
+    private long lastSnapshot;
+    private long replayed;
+    private FileChannel segment;
+
+    private InventoryEventLog(Path directory, int size, long snapshotInterval, Clock clock) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be at least 1 event.");
+        }
+        this.directory = directory;
+        this.size = size;
+        this.recordSize = HEADER_SIZE + 4 * size + 4;
+        this.snapshotInterval = snapshotInterval;
+        this.clock = clock;
+        this.record = ByteBuffer.allocate(recordSize);
+        this.values = new int[size];
+        this.coins = new int[size];
+    }
+
+    /**
+     * Abre (ou cria) o log no diretório e recupera o estado gravado.
+     *
+     * @param size número de denominações de moeda da máquina; precisa bater com o que está gravado
+     * @throws IllegalStateException se o log está corrompido ou foi gravado com outro catálogo
+     */
+    public static InventoryEventLog open(Path directory, int size, long snapshotInterval) throws IOException {
+        return open(directory, size, snapshotInterval, Clock.systemUTC());
+    }
+
+    public static InventoryEventLog open(Path directory, int size, long snapshotInterval, Clock clock) throws IOException {
+        InventoryEventLog log = new InventoryEventLog(directory, size, snapshotInterval, clock);
+        log.recover();
+        return log;
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            return new State(coins.clone(), new TreeMap<>(bills), totalBillsReceived, sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Eventos reaplicados na abertura, depois do snapshot.
+     */
+    public long replayed() {
+        lock.lock();
+        try {
+            return replayed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grava um evento e o aplica ao estado; a cada snapshotInterval eventos grava também um snapshot.
+     *
+     * @param quantities uma quantidade por denominação, com o significado do tipo do evento
+     */
+    public void append(Type type, boolean multipleBills, int amount, int[] quantities) throws IOException {
+        lock.lock();
+        try {
+            write(type, multipleBills, amount, quantities);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Type type, boolean multipleBills, int amount, int[] quantities) throws IOException {
+        if (segment == null) {
+            throw new IllegalStateException("Inventory log " + directory + " is closed.");
+        }
+        if (quantities.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " quantities, got " + quantities.length + ".");
+        }
+        record.clear();
+        record.put((byte) type.ordinal())
+                .put((byte) (multipleBills ? FLAG_MULTIPLE_BILLS : 0))
+                .putLong(clock.millis())
+                .putInt(amount);
+        for (int quantity : quantities) {
+            record.putInt(quantity);
+        }
+        crc.reset();
+        crc.update(record.array(), 0, recordSize - 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            segment.write(record);
+        }
+        apply(type, multipleBills, amount, quantities);
+        if (sequence - lastSnapshot >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(Type type, boolean multipleBills, int amount, int[] quantities) {
+        switch (type) {
+            case EXCHANGE -> {
+                for (int i = 0; i < size; i++) {
+                    coins[i] -= quantities[i];
+                }
+                if (multipleBills) {
+                    totalBillsReceived += amount;
+                } else {
+                    bills.merge(amount, 1, Integer::sum);
+                }
+            }
+            case ADD -> {
+                for (int i = 0; i < size; i++) {
+                    coins[i] += quantities[i];
+                }
+            }
+            case REMOVE -> {
+                for (int i = 0; i < size; i++) {
+                    coins[i] -= quantities[i];
+                }
+            }
+            case REPLENISH -> {
+                System.arraycopy(quantities, 0, coins, 0, size);
+                bills.clear();
+                totalBillsReceived = 0;
+            }
+        }
+        sequence++;
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int n = snapshots.size() - 1; n >= 0; n--) {
+            if (readSnapshot(snapshots.get(n))) {
+                break;
+            }
+            logger.warn("Ignoring corrupted inventory snapshot {}.", snapshotPath(snapshots.get(n)));
+        }
+        lastSnapshot = sequence;
+
+        List<Long> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        long end = sequence;
+        ByteBuffer buffer = ByteBuffer.allocate(recordSize * 8192);
+        for (int n = 0; n < segments.size(); n++) {
+            end = replay(segments.get(n), n == segments.size() - 1, buffer);
+        }
+        // Continua no último segmento só se ele termina exatamente no estado recuperado
+        long start = !segments.isEmpty() && end == sequence ? segments.get(segments.size() - 1) : sequence;
+        segment = FileChannel.open(segmentPath(start),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Reaplica os eventos de um segmento que ainda não estão no estado.
+     *
+     * @return número do evento seguinte ao último registro válido do segmento
+     */
+    private long replay(long start, boolean last, ByteBuffer buffer) throws IOException {
+        Path path = segmentPath(start);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = channel.size();
+            long records = length / recordSize;
+            if (start + records <= sequence) {
+                // Inteiro coberto pelo snapshot; só o registro incompleto no fim precisa sair antes de novos appends
+                if (last && length > records * recordSize) {
+                    channel.truncate(records * recordSize);
+                }
+                return start + records;
+            }
+            if (start > sequence) {
+                throw new IllegalStateException("Inventory log " + directory + " is missing events "
+                        + sequence + " to " + (start - 1) + ".");
+            }
+            long position = (sequence - start) * recordSize;
+            long valid = position;
+            channel.position(position);
+            buffer.clear();
+            boolean corrupted = false;
+            while (!corrupted && channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= recordSize) {
+                    if (!replayRecord(buffer)) {
+                        corrupted = true;
+                        break;
+                    }
+                    valid += recordSize;
+                    replayed++;
+                }
+                buffer.compact();
+            }
+            if (valid < length) {
+                if (!last) {
+                    throw new IllegalStateException("Corrupted inventory event in " + path + " at offset " + valid + ".");
+                }
+                logger.warn("Discarding {} bytes of incomplete inventory events at the end of {}.", length - valid, path);
+                channel.truncate(valid);
+            }
+            return start + valid / recordSize;
+        }
+    }
+
+    private boolean replayRecord(ByteBuffer buffer) {
+        int offset = buffer.position();
+        crc.reset();
+        crc.update(buffer.slice(offset, recordSize - 4));
+        if ((int) crc.getValue() != buffer.getInt(offset + recordSize - 4)) {
+            return false;
+        }
+        int ordinal = buffer.get();
+        if (ordinal < 0 || ordinal >= Type.values().length) {
+            return false;
+        }
+        boolean multipleBills = (buffer.get() & FLAG_MULTIPLE_BILLS) != 0;
+        buffer.getLong();
+        int amount = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            values[i] = buffer.getInt();
+        }
+        buffer.getInt();
+        apply(Type.values()[ordinal], multipleBills, amount, values);
+        return true;
+    }
+
+    private void snapshot() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 8 + 4 + 4 * size + 4 + 4 + 8 * bills.size() + 4);
+        buffer.putInt(SNAPSHOT_MAGIC).putLong(sequence).putInt(size);
+        for (int count : coins) {
+            buffer.putInt(count);
+        }
+        buffer.putInt(totalBillsReceived).putInt(bills.size());
+        bills.forEach((bill, count) -> buffer.putInt(bill).putInt(count));
+        crc.reset();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        // Grava num temporário e renomeia: um snapshot pela metade nunca fica com o nome final
+        Path path = snapshotPath(sequence);
+        Path temporary = directory.resolve(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        lastSnapshot = sequence;
+
+        segment.close();
+        segment = FileChannel.open(segmentPath(sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        compact();
+        logger.debug("Inventory snapshot written at event {} in {}.", sequence, directory);
+    }
+
+    /**
+     * Mantém os SNAPSHOTS_KEPT snapshots mais recentes (o anterior cobre um snapshot novo corrompido)
+     * e os segmentos necessários para reaplicar a partir do mais antigo deles.
+     */
+    private void compact() throws IOException {
+        List<Long> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (snapshots.size() < SNAPSHOTS_KEPT) {
+            return;
+        }
+        long oldestKept = snapshots.get(snapshots.size() - SNAPSHOTS_KEPT);
+        for (long snapshot : snapshots) {
+            if (snapshot < oldestKept) {
+                Files.deleteIfExists(snapshotPath(snapshot));
+            }
+        }
+        List<Long> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int n = 0; n < segments.size() - 1; n++) {
+            // O segmento termina onde o seguinte começa
+            if (segments.get(n + 1) <= oldestKept) {
+                Files.deleteIfExists(segmentPath(segments.get(n)));
+            }
+        }
+    }
+
+    private boolean readSnapshot(long number) throws IOException {
+        byte[] bytes = Files.readAllBytes(snapshotPath(number));
+        if (bytes.length < 4 + 8 + 4 + 4) {
+            return false;
+        }
+        crc.reset();
+        crc.update(bytes, 0, bytes.length - 4);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if ((int) crc.getValue() != buffer.getInt(bytes.length - 4) || buffer.getInt() != SNAPSHOT_MAGIC) {
+            return false;
+        }
+        long snapshotSequence = buffer.getLong();
+        int snapshotSize = buffer.getInt();
+        if (snapshotSize != size) {
+            throw new IllegalStateException("Inventory log " + directory + " was written for " + snapshotSize
+                    + " coin denominations, but the machine has " + size + ".");
+        }
+        for (int i = 0; i < size; i++) {
+            coins[i] = buffer.getInt();
+        }
+        totalBillsReceived = buffer.getInt();
+        int billCount = buffer.getInt();
+        bills.clear();
+        for (int n = 0; n < billCount; n++) {
+            bills.put(buffer.getInt(), buffer.getInt());
+        }
+        sequence = snapshotSequence;
+        return true;
+    }
+
+    private List<Long> list(String prefix, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .forEach(name -> numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()))));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentPath(long start) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, start, SEGMENT_SUFFIX));
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX));
+    }
+}
@@ -0,0 +1,167 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import adpbrasil.labs.coinexchange.config.InventoryLogProperties;
+import adpbrasil.labs.coinexchange.fleet.CoinMachine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Um {@link InventoryEventLog} por máquina, em coin.inventory-log.directory/&lt;id da máquina&gt;.
+ *
+ * O log só reconstrói o estado da memória se os eventos estiverem na ordem em que as mutações aconteceram.
+ * Trocas, abastecimentos e retiradas são deltas que comutam entre si no replay, então podem ser gravados em
+ * qualquer ordem; o reset grava o estoque inteiro (REPLENISH) e não comuta com nada. Por isso cada delta roda
+ * da mutação ao append sob o read lock da máquina ({@link #delta}) e o reset sob o write lock ({@link #reset}):
+ * nenhum delta aplicado antes do reset em memória é gravado depois dele no log, nem o contrário.
+ *
+ * Com o log desligado todas as operações são no-op e o estado das máquinas continua só em memória.
+ */
+@Component
+public class InventoryEventStore implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryEventStore.class);
+
+    private final InventoryLogProperties properties;
+    private final Map<String, InventoryEventLog> logs = new ConcurrentHashMap<>();
+    // ReentrantReadWriteLock e não synchronized: a troca grava a transação sob o lock e pode rodar em thread virtual
+    private final Map<String, ReadWriteLock> order = new ConcurrentHashMap<>();
+
+    public InventoryEventStore(InventoryLogProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Store desligado, para quem monta o serviço fora do Spring.
+     */
+    public static InventoryEventStore disabled() {
+        return new InventoryEventStore(new InventoryLogProperties());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Abre o log da máquina e, se ele já tem eventos, restaura a máquina a partir dele.
+     *
+     * @return false se o log está desligado ou ainda vazio; cabe ao chamador inicializar o estoque
+     */
+    public boolean recover(CoinMachine machine) {
+        if (!isEnabled()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        InventoryEventLog log;
+        try {
+            log = InventoryEventLog.open(Path.of(properties.getDirectory(), machine.getId()),
+                    machine.getCoinInventory().size(), properties.getSnapshotInterval());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the inventory log of machine " + machine.getId() + ".", e);
+        }
+        logs.put(machine.getId(), log);
+        InventoryEventLog.State state = log.state();
+        if (state.sequence() == 0) {
+            return false;
+        }
+        machine.restore(state.coins(), state.bills(), state.totalBillsReceived());
+        logger.info("Inventory of machine {} recovered at event {} ({} replayed after the snapshot) in {} ms.",
+                machine.getId(), state.sequence(), log.replayed(), (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    /**
+     * Executa uma mutação incremental da máquina (reserva, confirmação e o append do evento dela) sem que um
+     * reset da mesma máquina aconteça no meio. Deltas da mesma máquina continuam rodando em paralelo.
+     */
+    public <T> T delta(CoinMachine machine, Supplier<T> mutation) {
+        if (!isEnabled()) {
+            return mutation.get();
+        }
+        Lock lock = lock(machine).readLock();
+        lock.lock();
+        try {
+            return mutation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Repõe o estoque da máquina e registra o novo estado, depois de esperar os deltas em andamento.
+     */
+    public void reset(CoinMachine machine, int quantity) {
+        if (!isEnabled()) {
+            machine.reset(quantity);
+            return;
+        }
+        Lock lock = lock(machine).writeLock();
+        lock.lock();
+        try {
+            machine.reset(quantity);
+            append(machine, InventoryEventLog.Type.REPLENISH, false, quantity, machine.getCoinInventory().snapshot());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evento de troca; chamado dentro de {@link #delta}, depois de confirmar a reserva.
+     */
+    public void exchanged(CoinMachine machine, int amount, boolean allowMultipleBills, int[] plan) {
+        append(machine, InventoryEventLog.Type.EXCHANGE, allowMultipleBills, amount, plan);
+    }
+
+    public void coinsAdded(CoinMachine machine, int coinValue, int quantity) {
+        append(machine, InventoryEventLog.Type.ADD, false, 0, single(machine, coinValue, quantity));
+    }
+
+    public void coinsRemoved(CoinMachine machine, int coinValue, int quantity) {
+        append(machine, InventoryEventLog.Type.REMOVE, false, 0, single(machine, coinValue, quantity));
+    }
+
+    private void append(CoinMachine machine, InventoryEventLog.Type type, boolean multipleBills, int amount, int[] quantities) {
+        InventoryEventLog log = logs.get(machine.getId());
+        if (log == null) {
+            return;
+        }
+        try {
+            log.append(type, multipleBills, amount, quantities);
+        } catch (IOException e) {
+            // A operação já foi aplicada em memória (e a troca gravada); falhar a requisição agora não a desfaria
+            logger.error("Failed to append {} event to the inventory log of machine {}: {}",
+                    type, machine.getId(), e.getMessage());
+        }
+    }
+
+    private ReadWriteLock lock(CoinMachine machine) {
+        return order.computeIfAbsent(machine.getId(), id -> new ReentrantReadWriteLock());
+    }
+
+    private static int[] single(CoinMachine machine, int coinValue, int quantity) {
+        int[] quantities = new int[machine.getCoinInventory().size()];
+        quantities[machine.getCatalog().coinIndex(coinValue)] = quantity;
+        return quantities;
+    }
+
+    @Override
+    public void close() {
+        for (InventoryEventLog log : logs.values()) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close inventory log: {}", e.getMessage());
+            }
+        }
+        logs.clear();
+    }
+}
@@ -0,0 +1,318 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Um arquivo do {@link MappedTransactionStore}, mapeado inteiro em memória: um cabeçalho com o índice
+ * esparso de datas seguido de capacity registros de {@value #RECORD_SIZE} bytes.
+ *
+ * Registro: id, data (nanos desde a época, UTC), valor, máquina (índice no dicionário), flags, número de
+ * moedas do troco, até {@value #MAX_COINS} pares moeda/quantidade e CRC32 dos bytes anteriores.
+ * Cada entrada do índice guarda a menor e a maior data de um bloco de stride registros.
+ * Cheio, o segmento é selado com o CRC32 da área de registros inteira e passa a ser só leitura.
+ */
+final class JournalSegment {
+
+    static final int RECORD_SIZE = 96;
+    static final int MAX_COINS = 8;
+    static final int NO_MACHINE = 0xFFFF;
+    // Data nula não acontece pelo serviço, mas o registro precisa representá-la
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x434A524E;
+    private static final int VERSION = 1;
+    private static final int HEADER_FIXED = 64;
+    private static final int PAGE = 4096;
+
+    // Campos do cabeçalho
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_FIRST_ID = 8;
+    private static final int H_CAPACITY = 16;
+    private static final int H_STRIDE = 20;
+    private static final int H_SEALED = 24;
+    private static final int H_CRC = 28;
+
+    // Campos do registro
+    private static final int R_ID = 0;
+    private static final int R_DATE = 8;
+    private static final int R_AMOUNT = 16;
+    private static final int R_MACHINE = 20;
+    private static final int R_FLAGS = 22;
+    private static final int R_COINS = 23;
+    private static final int R_CHANGE = 24;
+    private static final int R_CRC = 92;
+    private static final int FLAG_MINIMAL = 1;
+
+    private final Path path;
+    private final long firstId;
+    private final int capacity;
+    private final int stride;
+    private final int dataOffset;
+    private final MappedByteBuffer buffer;
+    // Só usado por quem grava (sob o lock do store) e na abertura
+    private final CRC32 crc = new CRC32();
+    private final ReentrantLock verifyLock = new ReentrantLock();
+    // Registros visíveis para leitura; publicado depois que o registro e o índice foram escritos
+    private volatile int count;
+    private volatile boolean sealed;
+    private volatile boolean verified;
+
+    private JournalSegment(Path path, long firstId, int capacity, int stride, MappedByteBuffer buffer) {
+        this.path = path;
+        this.firstId = firstId;
+        this.capacity = capacity;
+        this.stride = stride;
+        this.dataOffset = headerSize(capacity, stride);
+        this.buffer = buffer;
+    }
+
+    static JournalSegment create(Path path, long firstId, int capacity, int stride) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // O mapeamento continua válido depois que o canal é fechado
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity, stride));
+        }
+        buffer.putInt(H_MAGIC, MAGIC)
+                .putInt(H_VERSION, VERSION)
+                .putLong(H_FIRST_ID, firstId)
+                .putInt(H_CAPACITY, capacity)
+                .putInt(H_STRIDE, stride);
+        buffer.force();
+        return new JournalSegment(path, firstId, capacity, stride, buffer);
+    }
+
+    /**
+     * Mapeia um segmento existente. Num segmento não selado, os registros válidos são os que vêm em
+     * sequência desde o início com id e CRC corretos; o que vier depois é sobrescrito pelos próximos appends.
+     */
+    static JournalSegment open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_FIXED) {
+                throw new IllegalStateException("Journal segment " + path + " is truncated.");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(H_MAGIC) != MAGIC || buffer.getInt(H_VERSION) != VERSION) {
+                throw new IllegalStateException(path + " is not a transaction journal segment.");
+            }
+            int capacity = buffer.getInt(H_CAPACITY);
+            int stride = buffer.getInt(H_STRIDE);
+            if (size != fileSize(capacity, stride)) {
+                throw new IllegalStateException("Journal segment " + path + " has " + size
+                        + " bytes, expected " + fileSize(capacity, stride) + ".");
+            }
+        }
+        JournalSegment segment = new JournalSegment(path, buffer.getLong(H_FIRST_ID),
+                buffer.getInt(H_CAPACITY), buffer.getInt(H_STRIDE), buffer);
+        if (buffer.getInt(H_SEALED) == 1) {
+            segment.sealed = true;
+            segment.count = segment.capacity;
+        } else {
+            int valid = 0;
+            while (valid < segment.capacity && segment.id(valid) == segment.firstId + valid && segment.checksumMatches(valid)) {
+                valid++;
+            }
+            segment.count = valid;
+        }
+        return segment;
+    }
+
+    static int headerSize(int capacity, int stride) {
+        int blocks = (capacity + stride - 1) / stride;
+        int size = HEADER_FIXED + blocks * 16;
+        return (size + PAGE - 1) / PAGE * PAGE;
+    }
+
+    static long fileSize(int capacity, int stride) {
+        return headerSize(capacity, stride) + (long) capacity * RECORD_SIZE;
+    }
+
+    static long toNanos(LocalDateTime date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+        return Math.addExact(Math.multiplyExact(date.toEpochSecond(ZoneOffset.UTC), 1_000_000_000L), date.getNano());
+    }
+
+    static LocalDateTime fromNanos(long nanos) {
+        if (nanos == NO_DATE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long firstId() {
+        return firstId;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int stride() {
+        return stride;
+    }
+
+    int count() {
+        return count;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * Escreve o próximo registro direto no arquivo mapeado (sem buffer intermediário nem syscall) e
+     * atualiza o índice do bloco. Chamado só pelo store, sob o lock de escrita.
+     */
+    long append(long dateNanos, int amount, int machine, boolean minimal, Map<Integer, Integer> change) {
+        int index = count;
+        long id = firstId + index;
+        int offset = dataOffset + index * RECORD_SIZE;
+        buffer.putLong(offset + R_ID, id)
+                .putLong(offset + R_DATE, dateNanos)
+                .putInt(offset + R_AMOUNT, amount)
+                .putShort(offset + R_MACHINE, (short) machine)
+                .put(offset + R_FLAGS, (byte) (minimal ? FLAG_MINIMAL : 0));
+        int coins = 0;
+        if (change != null) {
+            for (Map.Entry<Integer, Integer> entry : change.entrySet()) {
+                int slot = offset + R_CHANGE + coins * 8;
+                buffer.putInt(slot, entry.getKey()).putInt(slot + 4, entry.getValue());
+                coins++;
+            }
+        }
+        // Moedas sem uso zeradas: a posição pode ter lixo de um append interrompido
+        for (int slot = coins; slot < MAX_COINS; slot++) {
+            buffer.putLong(offset + R_CHANGE + slot * 8, 0L);
+        }
+        buffer.put(offset + R_COINS, (byte) (change == null ? -1 : coins));
+        buffer.putInt(offset + R_CRC, checksum(index));
+
+        int entry = HEADER_FIXED + (index / stride) * 16;
+        if (index % stride == 0) {
+            buffer.putLong(entry, dateNanos).putLong(entry + 8, dateNanos);
+        } else {
+            buffer.putLong(entry, Math.min(buffer.getLong(entry), dateNanos))
+                    .putLong(entry + 8, Math.max(buffer.getLong(entry + 8), dateNanos));
+        }
+        count = index + 1;
+        return id;
+    }
+
+    /**
+     * Fecha o segmento cheio: grava o CRC32 da área de registros e só então a marca de selado.
+     */
+    void seal() {
+        crc.reset();
+        crc.update(buffer.slice(dataOffset, capacity * RECORD_SIZE));
+        buffer.putInt(H_CRC, (int) crc.getValue());
+        buffer.force();
+        buffer.putInt(H_SEALED, 1);
+        buffer.force();
+        sealed = true;
+        verified = true;
+    }
+
+    /**
+     * Confere o CRC de um segmento selado na primeira leitura depois da abertura, em vez de ler todos
+     * os segmentos no start.
+     */
+    void verify() {
+        if (!sealed || verified) {
+            return;
+        }
+        verifyLock.lock();
+        try {
+            if (verified) {
+                return;
+            }
+            CRC32 check = new CRC32();
+            check.update(buffer.slice(dataOffset, capacity * RECORD_SIZE));
+            if ((int) check.getValue() != buffer.getInt(H_CRC)) {
+                throw new IllegalStateException("Journal segment " + path + " failed its CRC check.");
+            }
+            verified = true;
+        } finally {
+            verifyLock.unlock();
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    long blockMin(int block) {
+        return buffer.getLong(HEADER_FIXED + block * 16);
+    }
+
+    long blockMax(int block) {
+        return buffer.getLong(HEADER_FIXED + block * 16 + 8);
+    }
+
+    long id(int index) {
+        return buffer.getLong(dataOffset + index * RECORD_SIZE + R_ID);
+    }
+
+    long date(int index) {
+        return buffer.getLong(dataOffset + index * RECORD_SIZE + R_DATE);
+    }
+
+    int amount(int index) {
+        return buffer.getInt(dataOffset + index * RECORD_SIZE + R_AMOUNT);
+    }
+
+    int machine(int index) {
+        return Short.toUnsignedInt(buffer.getShort(dataOffset + index * RECORD_SIZE + R_MACHINE));
+    }
+
+    boolean minimal(int index) {
+        return (buffer.get(dataOffset + index * RECORD_SIZE + R_FLAGS) & FLAG_MINIMAL) != 0;
+    }
+
+    Map<Integer, Integer> change(int index) {
+        int offset = dataOffset + index * RECORD_SIZE;
+        int coins = buffer.get(offset + R_COINS);
+        if (coins < 0) {
+            return null;
+        }
+        Map<Integer, Integer> change = new LinkedHashMap<>();
+        for (int slot = 0; slot < coins; slot++) {
+            int position = offset + R_CHANGE + slot * 8;
+            change.put(buffer.getInt(position), buffer.getInt(position + 4));
+        }
+        return change;
+    }
+
+    private boolean checksumMatches(int index) {
+        return checksum(index) == buffer.getInt(dataOffset + index * RECORD_SIZE + R_CRC);
+    }
+
+    private int checksum(int index) {
+        crc.reset();
+        crc.update(buffer.slice(dataOffset + index * RECORD_SIZE, R_CRC));
+        return (int) crc.getValue();
+    }
+}
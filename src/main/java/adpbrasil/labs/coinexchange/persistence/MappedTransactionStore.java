@@ -0,0 +1,311 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import adpbrasil.labs.coinexchange.config.JournalProperties;
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Transações num journal binário append-only, em segmentos de tamanho fixo mapeados em memória
+ * ({@link JournalSegment}), para quiosques em que JPA/Hibernate/H2 pesam demais no start, no heap e por insert.
+ * Ativo com o profile {@value TransactionStore#MAPPED_JOURNAL_PROFILE}.
+ *
+ * O id é a posição no journal (o primeiro é 1), então a paginação por cursor vai direto ao registro.
+ * Filtros por data usam o índice esparso de cada segmento: blocos cuja maior data é anterior ao início
+ * são pulados, e a leitura para no primeiro bloco cuja menor data passa do fim. Isso assume datas que
+ * crescem com o id, a menos de trocas concorrentes gravadas fora de ordem dentro de um mesmo bloco.
+ * Os ids das máquinas ficam num dicionário (arquivo machines, uma por linha) e o registro guarda o índice.
+ *
+ * Os appends vão para o page cache na hora (sobrevivem a uma queda do processo); o arquivo é sincronizado
+ * com o disco quando um segmento é selado e no shutdown.
+ */
+@Component
+@Profile(TransactionStore.MAPPED_JOURNAL_PROFILE)
+public class MappedTransactionStore implements TransactionStore, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MappedTransactionStore.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String MACHINES_FILE = "machines";
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int indexStride;
+    // Um writer por vez; leitores percorrem os segmentos publicados sem lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<JournalSegment> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> machineOrdinals = new ConcurrentHashMap<>();
+    private final List<String> machineIds = new CopyOnWriteArrayList<>();
+    private JournalSegment active;
+
+    public MappedTransactionStore(JournalProperties properties) {
+        if (properties.getSegmentRecords() < 1 || properties.getIndexStride() < 1) {
+            throw new IllegalArgumentException("Journal segment records and index stride must be positive.");
+        }
+        if (JournalSegment.fileSize(properties.getSegmentRecords(), properties.getIndexStride()) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal segments are limited to 2 GB ("
+                    + (Integer.MAX_VALUE / JournalSegment.RECORD_SIZE - 1024) + " records).");
+        }
+        this.directory = Path.of(properties.getDirectory());
+        this.segmentRecords = properties.getSegmentRecords();
+        this.indexStride = properties.getIndexStride();
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the transaction journal in " + directory + ".", e);
+        }
+    }
+
+    @Override
+    public ExchangeTransaction save(ExchangeTransaction transaction) {
+        lock.lock();
+        try {
+            write(transaction);
+            return transaction;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(List<ExchangeTransaction> transactions) {
+        lock.lock();
+        try {
+            for (ExchangeTransaction transaction : transactions) {
+                write(transaction);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<ExchangeTransaction> find(TransactionFilter filter, Long afterId, int limit) {
+        List<ExchangeTransaction> page = new ArrayList<>(Math.min(limit, 1024));
+        try {
+            scan(filter, afterId, limit, page::add);
+        } catch (IOException e) {
+            // A lista não lança IOException
+            throw new UncheckedIOException(e);
+        }
+        return page;
+    }
+
+    @Override
+    public long forEach(TransactionFilter filter, TransactionVisitor visitor) throws IOException {
+        return scan(filter, null, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Transações gravadas.
+     */
+    public long count() {
+        long total = 0;
+        for (JournalSegment segment : segments) {
+            total += segment.count();
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (active != null) {
+                active.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(ExchangeTransaction transaction) {
+        Map<Integer, Integer> change = transaction.getChange();
+        if (change != null && change.size() > JournalSegment.MAX_COINS) {
+            throw new IllegalArgumentException("The transaction journal stores at most "
+                    + JournalSegment.MAX_COINS + " coin denominations per exchange.");
+        }
+        int machine = machineOrdinal(transaction.getMachineId());
+        if (active.isFull()) {
+            roll();
+        }
+        long id = active.append(JournalSegment.toNanos(transaction.getTransactionDate()), transaction.getAmount(),
+                machine, transaction.isMinimal(), change);
+        transaction.setId(id);
+    }
+
+    private void roll() {
+        active.seal();
+        long firstId = active.firstId() + active.capacity();
+        try {
+            active = JournalSegment.create(segmentPath(firstId), firstId, segmentRecords, indexStride);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment " + segmentPath(firstId) + ".", e);
+        }
+        segments.add(active);
+        logger.debug("Transaction journal rolled over to {}.", active.path());
+    }
+
+    private long scan(TransactionFilter filter, Long afterId, long limit, TransactionVisitor visitor) throws IOException {
+        int machine = -1;
+        if (filter.machineId() != null) {
+            Integer ordinal = machineOrdinals.get(filter.machineId());
+            if (ordinal == null) {
+                return 0;
+            }
+            machine = ordinal;
+        }
+        long from = afterId == null ? 1 : afterId + 1;
+        long start = filter.startDate() == null ? Long.MIN_VALUE : JournalSegment.toNanos(filter.startDate());
+        long end = filter.endDate() == null ? Long.MAX_VALUE : JournalSegment.toNanos(filter.endDate());
+        int minAmount = filter.minAmount() == null ? Integer.MIN_VALUE : filter.minAmount();
+        int maxAmount = filter.maxAmount() == null ? Integer.MAX_VALUE : filter.maxAmount();
+        Boolean minimal = filter.minimal();
+
+        long visited = 0;
+        for (JournalSegment segment : segments) {
+            // count lido antes do índice: o índice nunca é mais antigo que os registros visíveis
+            int count = segment.count();
+            if (segment.firstId() + count <= from) {
+                continue;
+            }
+            segment.verify();
+            int stride = segment.stride();
+            int index = (int) Math.max(0, from - segment.firstId());
+            while (index < count) {
+                int block = index / stride;
+                int blockEnd = Math.min(count, (block + 1) * stride);
+                if (segment.blockMax(block) < start) {
+                    index = blockEnd;
+                    continue;
+                }
+                if (segment.blockMin(block) > end) {
+                    return visited;
+                }
+                for (; index < blockEnd; index++) {
+                    long date = segment.date(index);
+                    int amount = segment.amount(index);
+                    if (date < start || date > end || amount < minAmount || amount > maxAmount
+                            || (machine >= 0 && segment.machine(index) != machine)
+                            || (minimal != null && segment.minimal(index) != minimal)) {
+                        continue;
+                    }
+                    visitor.visit(read(segment, index));
+                    if (++visited >= limit) {
+                        return visited;
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    private ExchangeTransaction read(JournalSegment segment, int index) {
+        int machine = segment.machine(index);
+        return new ExchangeTransaction(
+                segment.id(index),
+                machine == JournalSegment.NO_MACHINE ? null : machineIds.get(machine),
+                segment.amount(index),
+                segment.minimal(index),
+                segment.change(index),
+                JournalSegment.fromNanos(segment.date(index)));
+    }
+
+    private int machineOrdinal(String machineId) {
+        if (machineId == null) {
+            return JournalSegment.NO_MACHINE;
+        }
+        Integer ordinal = machineOrdinals.get(machineId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        if (machineIds.size() >= JournalSegment.NO_MACHINE) {
+            throw new IllegalStateException("The transaction journal supports at most " + JournalSegment.NO_MACHINE + " machines.");
+        }
+        // Máquina nova (sob o lock de escrita): entra no dicionário antes do primeiro registro que a usa
+        try (FileChannel channel = FileChannel.open(directory.resolve(MACHINES_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer line = ByteBuffer.wrap((machineId + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not register machine " + machineId + " in the transaction journal.", e);
+        }
+        machineIds.add(machineId);
+        machineOrdinals.put(machineId, machineIds.size() - 1);
+        return machineIds.size() - 1;
+    }
+
+    private void open() throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(directory);
+        Path machinesFile = directory.resolve(MACHINES_FILE);
+        if (Files.exists(machinesFile)) {
+            for (String machineId : Files.readAllLines(machinesFile, StandardCharsets.UTF_8)) {
+                if (!machineId.isEmpty()) {
+                    machineIds.add(machineId);
+                    machineOrdinals.put(machineId, machineIds.size() - 1);
+                }
+            }
+        }
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+        long expectedId = 1;
+        for (int n = 0; n < files.size(); n++) {
+            JournalSegment segment = JournalSegment.open(files.get(n));
+            if (segment.firstId() != expectedId) {
+                throw new IllegalStateException("Journal segment " + segment.path() + " starts at id "
+                        + segment.firstId() + ", expected " + expectedId + ".");
+            }
+            boolean last = n == files.size() - 1;
+            if (!segment.isSealed()) {
+                if (segment.isFull()) {
+                    // Queda durante o selo: todos os registros estão lá, falta só o CRC do segmento
+                    segment.seal();
+                } else if (!last) {
+                    throw new IllegalStateException("Journal segment " + segment.path() + " is incomplete but not the last one.");
+                }
+            }
+            segments.add(segment);
+            expectedId = segment.firstId() + segment.capacity();
+        }
+        if (segments.isEmpty()) {
+            segments.add(JournalSegment.create(segmentPath(1), 1, segmentRecords, indexStride));
+        }
+        active = segments.get(segments.size() - 1);
+        logger.info("Transaction journal opened in {}: {} transactions in {} segments ({} ms).",
+                directory, count(), segments.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private Path segmentPath(long firstId) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstId, SEGMENT_SUFFIX));
+    }
+}
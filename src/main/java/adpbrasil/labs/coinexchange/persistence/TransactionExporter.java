@@ -0,0 +1,124 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import adpbrasil.labs.coinexchange.dto.ExchangeTransactionDto;
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Exporta o histórico percorrendo o {@link TransactionStore} em ordem de id e escrevendo linha a linha
+ * no stream de saída; nenhuma das duas pontas acumula as linhas em memória.
+ */
+@Component
+public class TransactionExporter {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final int FLUSH_EVERY = 1000;
+    private static final String CSV_HEADER = "id,machineId,amount,minimal,transactionDate,change\n";
+
+    private final TransactionStore transactionStore;
+    private final ObjectWriter jsonWriter;
+
+    public TransactionExporter(TransactionStore transactionStore, ObjectMapper objectMapper) {
+        this.transactionStore = transactionStore;
+        this.jsonWriter = objectMapper.writerFor(ExchangeTransactionDto.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * @return número de linhas exportadas
+     */
+    public long export(TransactionFilter filter, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        long[] rows = {0};
+        transactionStore.forEach(filter, tx -> {
+            if (format == Format.CSV) {
+                writeCsv(writer, tx);
+            } else {
+                jsonWriter.writeValue(writer, toDto(tx));
+                writer.write('\n');
+            }
+            if (++rows[0] % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        });
+        writer.flush();
+        return rows[0];
+    }
+
+    private void writeCsv(Writer writer, ExchangeTransaction tx) throws IOException {
+        writer.write(String.valueOf(tx.getId()));
+        writer.write(',');
+        if (tx.getMachineId() != null) {
+            writeCsvField(writer, tx.getMachineId());
+        }
+        writer.write(',');
+        writer.write(Integer.toString(tx.getAmount()));
+        writer.write(',');
+        writer.write(Boolean.toString(tx.isMinimal()));
+        writer.write(',');
+        if (tx.getTransactionDate() != null) {
+            writer.write(tx.getTransactionDate().toString());
+        }
+        writer.write(',');
+        // Troco como "moeda:quantidade" separado por ';' para não conflitar com o separador do CSV
+        if (tx.getChange() != null) {
+            boolean first = true;
+            for (Map.Entry<Integer, Integer> entry : tx.getChange().entrySet()) {
+                if (!first) {
+                    writer.write(';');
+                }
+                writer.write(entry.getKey() + ":" + entry.getValue());
+                first = false;
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * O machineId é o único campo livre da linha: o MachineRegistry só recusa ids vazios ou com '/'. Quando
+     * ele traz separador, aspas ou quebra de linha, vai entre aspas com as aspas internas dobradas (RFC 4180).
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private ExchangeTransactionDto toDto(ExchangeTransaction tx) {
+        return new ExchangeTransactionDto(
+                tx.getId(),
+                tx.getMachineId(),
+                tx.getAmount(),
+                tx.isMinimal(),
+                tx.getChange(),
+                tx.getTransactionDate());
+    }
+}
@@ -0,0 +1,339 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import adpbrasil.labs.coinexchange.config.PersistenceProperties;
+import adpbrasil.labs.coinexchange.exception.JournalFullException;
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ponto único de gravação das transações de troca.
+ *
+ * Em modo SYNC grava na thread de quem chama. Em modo WRITE_BEHIND a transação entra num buffer
+ * limitado e uma thread de fundo grava em lotes (saveAll) a cada batchSize transações ou flushInterval,
+ * o que vier primeiro. Com o buffer cheio, append espera até offerTimeout e então recusa a troca
+ * com {@link JournalFullException}, para que a reserva de moedas seja desfeita.
+ *
+ * Um lote que falha maxAttempts vezes, ou com um erro permanente (constraint, valor que a coluna recusa),
+ * é regravado transação por transação: uma linha ruim não trava o writer nem as outras do lote. A transação
+ * que falha sozinha com erro permanente (ou não classificado, depois de maxAttempts) é descartada com log de
+ * erro; com o banco fora ela espera o banco voltar, e o buffer cheio recusa as trocas novas. No shutdown as
+ * tentativas são limitadas e tudo que não foi gravado sai no log de erro, transação por transação.
+ */
+@Component
+public class TransactionJournal implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionJournal.class);
+    private static final long INITIAL_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 5_000;
+
+    private final TransactionStore transactionStore;
+    private final PersistenceProperties properties;
+    private final BlockingQueue<ExchangeTransaction> buffer;
+    // ReentrantLock em vez de synchronized: stop() espera o writer e grava no banco segurando o lock,
+    // o que prenderia (pinning) a thread portadora se fosse chamado de uma virtual thread
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+    // Muda a cada gravação no store; base do ETag do histórico
+    private final AtomicLong version = new AtomicLong();
+    // Transações aceitas que não foram gravadas (erro permanente ou shutdown com o banco fora)
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public TransactionJournal(TransactionStore transactionStore, PersistenceProperties properties) {
+        this.transactionStore = transactionStore;
+        this.properties = properties;
+        this.buffer = isWriteBehind() ? new ArrayBlockingQueue<>(properties.getBufferCapacity()) : null;
+    }
+
+    /**
+     * Journal síncrono, sem thread de fundo.
+     */
+    public static TransactionJournal synchronous(TransactionStore transactionStore) {
+        return new TransactionJournal(transactionStore, new PersistenceProperties());
+    }
+
+    public boolean isWriteBehind() {
+        return properties.getMode() == PersistenceProperties.Mode.WRITE_BEHIND;
+    }
+
+    public void append(ExchangeTransaction transaction) {
+        if (!isWriteBehind()) {
+            transactionStore.save(transaction);
+            version.incrementAndGet();
+            return;
+        }
+        try {
+            if (!buffer.offer(transaction, properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new JournalFullException("Transaction journal is full, try again later.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JournalFullException("Interrupted while waiting for the transaction journal.");
+        }
+    }
+
+    /**
+     * Grava um lote inteiro de uma vez (saveAll, com os inserts agrupados pelo Hibernate).
+     * Vale para os dois modos: o lote já é a unidade de escrita, e gravar na hora garante que
+     * ou todas as transações do lote são aceitas ou nenhuma é.
+     */
+    public void appendAll(List<ExchangeTransaction> transactions) {
+        if (!transactions.isEmpty()) {
+            write(transactions);
+        }
+    }
+
+    /**
+     * Incrementada depois de cada gravação (troca no modo SYNC, lote no WRITE_BEHIND); transações gravadas
+     * direto no repositório não passam por aqui.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Transações aceitas e descartadas sem gravar; cada uma está no log de erro.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Transações aceitas e ainda não gravadas.
+     */
+    public int pending() {
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    @Override
+    public void start() {
+        lifecycleLock.lock();
+        try {
+            if (!isWriteBehind() || running) {
+                return;
+            }
+            running = true;
+            writer = new Thread(this::drainLoop, "transaction-journal-writer");
+            writer.setDaemon(true);
+            writer.start();
+            logger.info("Write-behind transaction journal started (batch size {}, flush interval {}).",
+                    properties.getBatchSize(), properties.getFlushInterval());
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        lifecycleLock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            writer.interrupt();
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // O que sobrou no buffer é gravado antes de desligar; com o banco fora, o resto só vai para o log
+            List<ExchangeTransaction> batch = new ArrayList<>();
+            boolean reachable = true;
+            while (buffer.drainTo(batch, properties.getBatchSize()) > 0) {
+                if (reachable) {
+                    reachable = writeOnShutdown(batch);
+                } else {
+                    drop(batch, "database unavailable during shutdown");
+                }
+                batch.clear();
+            }
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Sobe antes e desce depois do servidor web, para não perder trocas aceitas durante o shutdown
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drainLoop() {
+        int batchSize = properties.getBatchSize();
+        long flushNanos = properties.getFlushInterval().toNanos();
+        List<ExchangeTransaction> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ExchangeTransaction first = buffer.poll(flushNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushNanos;
+                // Completa o lote até batchSize ou até estourar o intervalo de flush
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    ExchangeTransaction next = buffer.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Desligando: grava o lote em andamento; stop() cuida do que ficou no buffer
+                writeOnShutdown(batch);
+                return;
+            } catch (RuntimeException e) {
+                // Nada pode derrubar o writer; o lote em andamento vai para o log de erro
+                logger.error("Unexpected error in the transaction journal writer: {}", e.getMessage(), e);
+                drop(unsaved(batch), e.getMessage());
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeWithRetry(List<ExchangeTransaction> batch) throws InterruptedException {
+        long backoff = INITIAL_BACKOFF_MS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(unsaved(batch));
+                return;
+            } catch (RuntimeException e) {
+                if (isPermanent(e) || attempt >= properties.getMaxAttempts()) {
+                    logger.error("Failed to write {} transactions after {} attempt(s), writing them one by one: {}",
+                            batch.size(), attempt, e.getMessage());
+                    break;
+                }
+                // Transações aceitas não são descartadas: enquanto o banco falha o buffer enche
+                // e novas trocas passam a ser recusadas pelo append
+                logger.error("Failed to write {} transactions, retrying in {} ms: {}", batch.size(), backoff, e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+        for (ExchangeTransaction transaction : unsaved(batch)) {
+            writeOne(transaction);
+        }
+    }
+
+    private void writeOne(ExchangeTransaction transaction) throws InterruptedException {
+        long backoff = INITIAL_BACKOFF_MS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionStore.save(transaction);
+                version.incrementAndGet();
+                return;
+            } catch (RuntimeException e) {
+                if (isPermanent(e) || !isTransient(e) && attempt >= properties.getMaxAttempts()) {
+                    drop(List.of(transaction), e.getMessage());
+                    return;
+                }
+                // Banco fora: esperar é melhor que descartar uma troca que o cliente já recebeu
+                logger.error("Failed to write transaction, retrying in {} ms: {}", backoff, e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * Gravação do shutdown, sem espera entre tentativas: até maxAttempts vezes o lote e, se o erro não é de
+     * conexão, uma vez cada transação. O que não for gravado vai para o log de erro.
+     *
+     * @return false se o banco parece fora, para que o resto do buffer não espere por ele
+     */
+    private boolean writeOnShutdown(List<ExchangeTransaction> batch) {
+        RuntimeException failure = null;
+        for (int attempt = 1; attempt <= properties.getMaxAttempts(); attempt++) {
+            List<ExchangeTransaction> pending = unsaved(batch);
+            if (pending.isEmpty()) {
+                return true;
+            }
+            try {
+                write(pending);
+                return true;
+            } catch (RuntimeException e) {
+                failure = e;
+                if (isPermanent(e)) {
+                    break;
+                }
+            }
+        }
+        if (failure != null && isTransient(failure)) {
+            drop(unsaved(batch), failure.getMessage());
+            return false;
+        }
+        for (ExchangeTransaction transaction : unsaved(batch)) {
+            try {
+                transactionStore.save(transaction);
+                version.incrementAndGet();
+            } catch (RuntimeException e) {
+                drop(List.of(transaction), e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    // Erro que se repete a cada tentativa: constraint, valor recusado, SQL inválido
+    private static boolean isPermanent(RuntimeException e) {
+        return e instanceof NonTransientDataAccessException && !(e instanceof NonTransientDataAccessResourceException);
+    }
+
+    // Banco fora, timeout, deadlock: outra tentativa pode dar certo
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof NonTransientDataAccessResourceException;
+    }
+
+    // O store deixa com id só o que gravou (ver TransactionStore#saveAll)
+    private static List<ExchangeTransaction> unsaved(List<ExchangeTransaction> batch) {
+        return batch.stream().filter(transaction -> transaction.getId() == null).toList();
+    }
+
+    private void drop(List<ExchangeTransaction> transactions, String reason) {
+        for (ExchangeTransaction transaction : transactions) {
+            dropped.incrementAndGet();
+            logger.error("Transaction not persisted ({}): machine={}, amount={}, minimal={}, change={}, date={}",
+                    reason, transaction.getMachineId(), transaction.getAmount(), transaction.isMinimal(),
+                    transaction.getChange(), transaction.getTransactionDate());
+        }
+    }
+
+    private void write(List<ExchangeTransaction> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        transactionStore.saveAll(batch);
+        version.incrementAndGet();
+        logger.debug("Wrote batch of {} transactions.", batch.size());
+    }
+}
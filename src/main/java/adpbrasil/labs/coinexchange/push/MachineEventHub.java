@@ -0,0 +1,299 @@
+package adpbrasil.labs.coinexchange.push;
+
+import adpbrasil.labs.coinexchange.config.PushProperties;
+import adpbrasil.labs.coinexchange.dto.InventoryEvent;
+import adpbrasil.labs.coinexchange.exception.SubscriberLimitException;
+import adpbrasil.labs.coinexchange.fleet.CoinMachine;
+import adpbrasil.labs.coinexchange.fleet.MachineRegistry;
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import adpbrasil.labs.coinexchange.inventory.InventorySnapshot;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Push do inventário e do estado operacional das máquinas por Server-Sent Events, no lugar do polling de
+ * /status, /inventory e /admin/status.
+ *
+ * A troca não faz nada a mais: o inventário já publica um snapshot imutável a cada mutação, e uma thread
+ * compara, a cada coin.push.coalesce-interval, o snapshot atual da máquina com o último enviado a cada
+ * assinante. Todas as mudanças da janela viram um único evento delta (a diferença por moeda), e um evento
+ * status quando a máquina fica sem moedas ou volta a ter. O primeiro evento é o inventário completo.
+ *
+ * Cada assinante tem um buffer de envio limitado, esvaziado por uma thread própria de envio; se o cliente
+ * não acompanha e o buffer enche, a conexão é encerrada (o EventSource reconecta e recebe o estado completo).
+ */
+@Component
+public class MachineEventHub implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(MachineEventHub.class);
+
+    public static final String INVENTORY_EVENT = "inventory";
+    public static final String DELTA_EVENT = "delta";
+    public static final String STATUS_EVENT = "status";
+
+    private final PushProperties properties;
+    private final MachineRegistry machineRegistry;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Vagas ocupadas: reservadas antes do add, liberadas por quem de fato remove o assinante
+    private final AtomicInteger slots = new AtomicInteger();
+    private final ExecutorService senders;
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+    private ScheduledExecutorService flusher;
+    private volatile boolean running;
+
+    @Autowired
+    public MachineEventHub(PushProperties properties, ExchangeService exchangeService) {
+        this(properties, exchangeService.getMachineRegistry());
+    }
+
+    public MachineEventHub(PushProperties properties, MachineRegistry machineRegistry) {
+        if (properties.getSendBuffer() < 1) {
+            throw new IllegalArgumentException("The push send buffer must hold at least one event.");
+        }
+        this.properties = properties;
+        this.machineRegistry = machineRegistry;
+        AtomicInteger threads = new AtomicInteger();
+        // Uma thread por assinante com envio pendente: um cliente lento só bloqueia a própria thread
+        this.senders = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "machine-events-sender-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Abre um stream de eventos da máquina.
+     *
+     * @throws SubscriberLimitException se coin.push.max-subscribers conexões já estão abertas
+     */
+    public SseEmitter subscribe(String machineId) {
+        return subscribe(machineId, new SseEmitter(properties.getTimeout().toMillis()));
+    }
+
+    SseEmitter subscribe(String machineId, SseEmitter emitter) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        reserveSlot();
+        Subscriber subscriber = new Subscriber(machine, emitter, properties.getSendBuffer());
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+
+        InventorySnapshot current = machine.getCoinInventory().current();
+        subscriber.lastSent = current;
+        subscriber.operational = current.totalCoins() > 0;
+        // O estado completo entra na fila antes de o assinante ficar visível para o flusher: um delta de uma
+        // mudança posterior ao snapshot nunca chega antes dele (o buffer vazio sempre aceita o primeiro evento)
+        offer(subscriber, event(INVENTORY_EVENT, machine, machine.getCoinInventory().asMap(current), current));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Checagem e reserva num único CAS: assinaturas concorrentes não passam juntas do limite
+    private void reserveSlot() {
+        int taken;
+        do {
+            taken = slots.get();
+            if (taken >= properties.getMaxSubscribers()) {
+                throw new SubscriberLimitException("Too many event stream subscribers (" + properties.getMaxSubscribers() + ").");
+            }
+        } while (!slots.compareAndSet(taken, taken + 1));
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            slots.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Uma rodada de coalescência: um evento por assinante cuja máquina mudou desde o último envio.
+     * Chamado pela thread do flusher; os testes chamam direto.
+     */
+    void flush() {
+        long now = System.nanoTime();
+        long heartbeat = properties.getHeartbeatInterval().toNanos();
+        for (Subscriber subscriber : subscribers) {
+            CoinInventory inventory = subscriber.machine.getCoinInventory();
+            InventorySnapshot current = inventory.current();
+            if (current == subscriber.lastSent) {
+                if (now - subscriber.lastOffer > heartbeat) {
+                    offer(subscriber, SseEmitter.event().comment("heartbeat"));
+                }
+                continue;
+            }
+            Map<Integer, Integer> changes = delta(inventory, subscriber.lastSent, current);
+            subscriber.lastSent = current;
+            // Reserva desfeita ou reset para o mesmo estoque: snapshot novo sem diferença
+            if (changes.isEmpty()) {
+                continue;
+            }
+            if (!offer(subscriber, event(DELTA_EVENT, subscriber.machine, changes, current))) {
+                continue;
+            }
+            boolean operational = current.totalCoins() > 0;
+            if (operational != subscriber.operational) {
+                subscriber.operational = operational;
+                offer(subscriber, event(STATUS_EVENT, subscriber.machine, null, current));
+            }
+        }
+    }
+
+    private boolean offer(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (!subscriber.buffer.offer(event)) {
+            drop(subscriber, "send buffer full");
+            return false;
+        }
+        subscriber.lastOffer = System.nanoTime();
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+        return true;
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.buffer.poll()) != null) {
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Cliente desconectado ou emitter já encerrado; o container avisa o emitter
+                    remove(subscriber);
+                    subscriber.buffer.clear();
+                    subscriber.draining.set(false);
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+            // Evento oferecido entre o último poll e a liberação: quem ofereceu não agendou o envio
+            if (subscriber.buffer.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, String reason) {
+        if (remove(subscriber)) {
+            logger.warn("Dropping event stream subscriber of machine {}: {}.", subscriber.machine.getId(), reason);
+            subscriber.buffer.clear();
+            // Fora da thread do flusher: o encerramento pode esperar pelo envio bloqueado
+            senders.execute(subscriber.emitter::complete);
+        }
+    }
+
+    private static Map<Integer, Integer> delta(CoinInventory inventory, InventorySnapshot before, InventorySnapshot after) {
+        Map<Integer, Integer> changes = new LinkedHashMap<>();
+        for (int i = 0; i < after.size(); i++) {
+            int difference = after.count(i) - before.count(i);
+            if (difference != 0) {
+                changes.put(inventory.denomination(i), difference);
+            }
+        }
+        return changes;
+    }
+
+    private static SseEmitter.SseEventBuilder event(String name, CoinMachine machine, Map<Integer, Integer> coins,
+                                                    InventorySnapshot snapshot) {
+        InventoryEvent payload = new InventoryEvent(machine.getId(), coins, snapshot.totalCents(), snapshot.totalCoins() > 0);
+        return SseEmitter.event().name(name).data(payload, MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    public void start() {
+        lifecycleLock.lock();
+        try {
+            if (running) {
+                return;
+            }
+            flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "machine-events-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties.getCoalesceInterval().toNanos();
+            flusher.scheduleWithFixedDelay(() -> {
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    logger.error("Could not publish machine events.", e);
+                }
+            }, interval, interval, TimeUnit.NANOSECONDS);
+            running = true;
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        lifecycleLock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            flusher.shutdownNow();
+            for (Subscriber subscriber : subscribers) {
+                remove(subscriber);
+                subscriber.emitter.complete();
+            }
+            senders.shutdown();
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Fecha os streams antes do shutdown gracioso do servidor web, que esperaria por eles
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+
+    private static final class Subscriber {
+        private final CoinMachine machine;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Só lidos e escritos pela thread do flusher (e no subscribe, antes de o assinante ser publicado)
+        private InventorySnapshot lastSent;
+        private boolean operational;
+        private volatile long lastOffer;
+
+        private Subscriber(CoinMachine machine, SseEmitter emitter, int capacity) {
+            this.machine = machine;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
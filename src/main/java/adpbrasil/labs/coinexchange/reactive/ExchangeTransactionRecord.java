@@ -0,0 +1,35 @@
+package adpbrasil.labs.coinexchange.reactive;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Linha de exchange_transaction lida e gravada pelo R2DBC. Mesma tabela da entidade JPA
+ * (ver reactive/schema.sql); o troco fica codificado como em ChangeMapConverter ("25:40,10:1").
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("exchange_transaction")
+public class ExchangeTransactionRecord {
+
+    @Id
+    private Long id;
+
+    private String machineId;
+
+    private int amount;
+
+    private boolean minimal;
+
+    @Column("change_coins")
+    private String change;
+
+    private LocalDateTime transactionDate;
+}
@@ -0,0 +1,36 @@
+package adpbrasil.labs.coinexchange.reactive;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.config.CredentialCacheProperties;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Variante não bloqueante da API: WebFlux (Netty) e R2DBC sobre H2, com o mesmo motor de troco e
+ * inventário da aplicação servlet. Lê o mesmo application.properties (coin.*) e sobe na porta 8081.
+ *
+ * Com WebFlux e Spring MVC no classpath o Spring Boot escolhe servlet, por isso o tipo da aplicação
+ * é fixado aqui (e nos testes via spring.main.web-application-type=reactive).
+ */
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
+@Import({CoinProperties.class, CredentialCacheProperties.class})
+public class ReactiveCoinExchangeApplication {
+
+    // Com o Tomcat também no classpath o Spring Boot o usaria como servidor reativo; aqui o servidor é o Netty
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveCoinExchangeApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .properties("server.port=8081")
+                .run(args);
+    }
+}
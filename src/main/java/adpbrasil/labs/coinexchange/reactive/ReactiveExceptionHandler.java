@@ -0,0 +1,31 @@
+package adpbrasil.labs.coinexchange.reactive;
+
+import adpbrasil.labs.coinexchange.exception.GlobalExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mesmas respostas de erro da aplicação servlet; no WebFlux a validação do corpo falha com
+ * WebExchangeBindException em vez de MethodArgumentNotValidException.
+ */
+@RestControllerAdvice
+public class ReactiveExceptionHandler extends GlobalExceptionHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveExceptionHandler.class);
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<?> handleBindException(WebExchangeBindException ex) {
+        logger.error("Validation error: {}", ex.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        ex.getBindingResult().getFieldErrors().forEach(error ->
+                errors.put(error.getField(), error.getDefaultMessage())
+        );
+        return ResponseEntity.badRequest().body(errors);
+    }
+}
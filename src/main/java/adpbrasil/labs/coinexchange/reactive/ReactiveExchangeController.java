@@ -0,0 +1,170 @@
+package adpbrasil.labs.coinexchange.reactive;
+
+import adpbrasil.labs.coinexchange.controller.ExchangeController;
+import adpbrasil.labs.coinexchange.dto.BillsInventoryResponse;
+import adpbrasil.labs.coinexchange.dto.ExchangeRequest;
+import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import adpbrasil.labs.coinexchange.dto.ExchangeTransactionDto;
+import adpbrasil.labs.coinexchange.dto.InventoryResponse;
+import adpbrasil.labs.coinexchange.dto.InventoryUpdateRequest;
+import adpbrasil.labs.coinexchange.dto.MachineStatusResponse;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * Mesmas rotas e respostas do ExchangeController (troca, status, histórico, inventário e cédulas) em WebFlux.
+ * O histórico é um Flux: com Accept: application/x-ndjson cada transação é escrita assim que lida do banco.
+ */
+@RestController
+@RequestMapping("/api/exchange")
+public class ReactiveExchangeController {
+    private final ReactiveExchangeService exchangeService;
+
+    public ReactiveExchangeController(ReactiveExchangeService exchangeService) {
+        this.exchangeService = exchangeService;
+    }
+
+    private String defaultMachineId() {
+        return exchangeService.getMachineRegistry().getDefault().getId();
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<ExchangeResponse>> exchange(@Valid @RequestBody ExchangeRequest request) {
+        return exchange(defaultMachineId(), request);
+    }
+
+    @PostMapping("/machines/{machineId}")
+    public Mono<ResponseEntity<ExchangeResponse>> exchange(@PathVariable String machineId,
+                                                           @Valid @RequestBody ExchangeRequest request) {
+        return exchangeService.exchange(machineId, request.getAmount(), request.isMinimal(), request.isAllowMultipleBills())
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return getStatus(defaultMachineId());
+    }
+
+    @GetMapping("/machines/{machineId}/status")
+    public ResponseEntity<Map<String, Object>> getStatus(@PathVariable String machineId) {
+        return ResponseEntity.ok(exchangeService.getStatus(machineId));
+    }
+
+    @GetMapping("/fleet")
+    public ResponseEntity<Map<String, Object>> getFleetStatus() {
+        return ResponseEntity.ok(exchangeService.getFleetStatus());
+    }
+
+    @PostMapping("/replenish")
+    public ResponseEntity<?> replenish() {
+        exchangeService.resetInventory();
+        return ResponseEntity.ok(Map.of("message", "Coin inventory replenished successfully."));
+    }
+
+    @PostMapping("/machines/{machineId}/replenish")
+    public ResponseEntity<?> replenish(@PathVariable String machineId) {
+        exchangeService.resetInventory(machineId);
+        return ResponseEntity.ok(Map.of("message", "Coin inventory replenished successfully."));
+    }
+
+    @GetMapping("/history")
+    public Mono<ResponseEntity<Flux<ExchangeTransactionDto>>> getHistory(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "" + ExchangeService.DEFAULT_PAGE_SIZE) int limit) {
+        return page(null, null, null, null, null, null, after, limit);
+    }
+
+    @GetMapping("/history/filter")
+    public Mono<ResponseEntity<Flux<ExchangeTransactionDto>>> filterHistory(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) Integer minAmount,
+            @RequestParam(required = false) Integer maxAmount,
+            @RequestParam(required = false) Boolean minimal,
+            @RequestParam(required = false) String machineId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "" + ExchangeService.DEFAULT_PAGE_SIZE) int limit) {
+        LocalDateTime start = (startDate != null) ? LocalDateTime.parse(startDate, DateTimeFormatter.ISO_DATE_TIME) : null;
+        LocalDateTime end = (endDate != null) ? LocalDateTime.parse(endDate, DateTimeFormatter.ISO_DATE_TIME) : null;
+        return page(start, end, minAmount, maxAmount, minimal, machineId, after, limit);
+    }
+
+    // Página cheia: o cliente pede a próxima com ?after=<X-Next-Cursor>, como no ExchangeController
+    private Mono<ResponseEntity<Flux<ExchangeTransactionDto>>> page(LocalDateTime start, LocalDateTime end,
+                                                                    Integer minAmount, Integer maxAmount,
+                                                                    Boolean minimal, String machineId,
+                                                                    Long after, int limit) {
+        Flux<ExchangeTransactionDto> body = exchangeService.filterTransactionHistory(
+                start, end, minAmount, maxAmount, minimal, machineId, after, limit);
+        return exchangeService.nextCursor(start, end, minAmount, maxAmount, minimal, machineId, after, limit)
+                .map(cursor -> ResponseEntity.ok()
+                        .header(ExchangeController.NEXT_CURSOR_HEADER, String.valueOf(cursor))
+                        .body(body))
+                .defaultIfEmpty(ResponseEntity.ok(body));
+    }
+
+    @GetMapping("/inventory")
+    public ResponseEntity<InventoryResponse> getInventory() {
+        return getInventory(defaultMachineId());
+    }
+
+    @GetMapping("/machines/{machineId}/inventory")
+    public ResponseEntity<InventoryResponse> getInventory(@PathVariable String machineId) {
+        return ResponseEntity.ok(exchangeService.getInventoryResponse(machineId));
+    }
+
+    @PostMapping("/inventory/add")
+    public ResponseEntity<?> addInventory(@Valid @RequestBody InventoryUpdateRequest request) {
+        return addInventory(defaultMachineId(), request);
+    }
+
+    @PostMapping("/machines/{machineId}/inventory/add")
+    public ResponseEntity<?> addInventory(@PathVariable String machineId, @Valid @RequestBody InventoryUpdateRequest request) {
+        exchangeService.addCoins(machineId, request.getCoinValue(), request.getQuantity());
+        return ResponseEntity.ok(Map.of("message", "Inventory updated successfully", "inventory", exchangeService.getInventory(machineId)));
+    }
+
+    @PostMapping("/inventory/remove")
+    public ResponseEntity<?> removeInventory(@Valid @RequestBody InventoryUpdateRequest request) {
+        return removeInventory(defaultMachineId(), request);
+    }
+
+    @PostMapping("/machines/{machineId}/inventory/remove")
+    public ResponseEntity<?> removeInventory(@PathVariable String machineId, @Valid @RequestBody InventoryUpdateRequest request) {
+        exchangeService.removeCoins(machineId, request.getCoinValue(), request.getQuantity());
+        return ResponseEntity.ok(Map.of("message", "Inventory updated successfully", "inventory", exchangeService.getInventory(machineId)));
+    }
+
+    @GetMapping("/bills")
+    public ResponseEntity<BillsInventoryResponse> getBillsInventory() {
+        return getBillsInventory(defaultMachineId());
+    }
+
+    @GetMapping("/machines/{machineId}/bills")
+    public ResponseEntity<BillsInventoryResponse> getBillsInventory(@PathVariable String machineId) {
+        return ResponseEntity.ok(exchangeService.getBillsInventory(machineId));
+    }
+
+    @GetMapping("/admin/status")
+    public ResponseEntity<MachineStatusResponse> getMachineStatus() {
+        return getMachineStatus(defaultMachineId());
+    }
+
+    @GetMapping("/machines/{machineId}/admin/status")
+    public ResponseEntity<MachineStatusResponse> getMachineStatus(@PathVariable String machineId) {
+        if (!exchangeService.isMachineOperational(machineId)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new MachineStatusResponse("Machine out of coins"));
+        }
+        return ResponseEntity.ok(new MachineStatusResponse("Machine operational"));
+    }
+}
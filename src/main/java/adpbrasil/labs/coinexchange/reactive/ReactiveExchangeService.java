@@ -0,0 +1,259 @@
+package adpbrasil.labs.coinexchange.reactive;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.dto.BillsInventoryResponse;
+import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import adpbrasil.labs.coinexchange.dto.ExchangeTransactionDto;
+import adpbrasil.labs.coinexchange.dto.InventoryResponse;
+import adpbrasil.labs.coinexchange.exception.InsufficientCoinsException;
+import adpbrasil.labs.coinexchange.fleet.CoinMachine;
+import adpbrasil.labs.coinexchange.fleet.MachineRegistry;
+import adpbrasil.labs.coinexchange.inventory.CoinChange;
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import adpbrasil.labs.coinexchange.inventory.InventorySnapshot;
+import adpbrasil.labs.coinexchange.inventory.Reservation;
+import adpbrasil.labs.coinexchange.model.ChangeMapConverter;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Contraparte reativa do ExchangeService. Validação, plano de troco e reserva usam as mesmas classes
+ * (MachineRegistry, CoinMachine, ChangeEngine) e rodam direto no event loop, pois só fazem CAS em memória;
+ * a única espera é a gravação no banco, que é não bloqueante (R2DBC).
+ */
+@Service
+public class ReactiveExchangeService {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveExchangeService.class);
+
+    private static final ChangeMapConverter CHANGE_CODEC = new ChangeMapConverter();
+
+    private final CoinProperties coinProperties;
+    private final ReactiveExchangeTransactionRepository transactionRepository;
+    private final R2dbcEntityTemplate template;
+    private final MachineRegistry machineRegistry;
+
+    public ReactiveExchangeService(CoinProperties coinProperties,
+                                   ReactiveExchangeTransactionRepository transactionRepository,
+                                   R2dbcEntityTemplate template) {
+        this.coinProperties = coinProperties;
+        this.transactionRepository = transactionRepository;
+        this.template = template;
+        this.machineRegistry = new MachineRegistry(coinProperties);
+        resetInventory();
+    }
+
+    public MachineRegistry getMachineRegistry() {
+        return machineRegistry;
+    }
+
+    public void resetInventory() {
+        for (CoinMachine machine : machineRegistry.getMachines()) {
+            resetInventory(machine.getId());
+        }
+    }
+
+    public void resetInventory(String machineId) {
+        int initial = coinProperties.getInitialQuantity();
+        machineRegistry.get(machineId).reset(initial);
+        logger.info("Inventory of machine {} reset to {} coins for each type.", machineId, initial);
+    }
+
+    /**
+     * Reserva o troco, grava a transação e só então confirma a reserva e registra a cédula.
+     *
+     * A gravação não acompanha o cancelamento de quem assina: um cliente que desconecta (ou um gateway que
+     * desiste) pode chegar depois de o INSERT ter sido enviado ou confirmado, e desfazer a reserva nesse
+     * ponto deixaria a transação no histórico com as moedas de volta no estoque. Por isso o save roda até o
+     * fim por conta própria; toda gravação bem-sucedida confirma a reserva e só um erro do save a desfaz.
+     */
+    public Mono<ExchangeResponse> exchange(String machineId, int amount, boolean minimal, boolean allowMultipleBills) {
+        return Mono.defer(() -> {
+            CoinMachine machine = machineRegistry.get(machineId);
+            machine.validateAmount(amount, allowMultipleBills);
+            Reservation reservation = machine.reserveChange(amount * 100, minimal);
+            if (reservation == null) {
+                return Mono.error(new InsufficientCoinsException("Not enough coins available for the exchange."));
+            }
+            CoinChange change = machine.toChange(reservation.plan());
+            ExchangeTransactionRecord transaction = new ExchangeTransactionRecord(null, machine.getId(), amount,
+                    minimal, CHANGE_CODEC.convertToDatabaseColumn(change), LocalDateTime.now());
+            CompletableFuture<ExchangeResponse> saved = transactionRepository.save(transaction)
+                    .doOnError(e -> reservation.rollback())
+                    .map(record -> {
+                        reservation.commit();
+                        machine.registerBill(amount, allowMultipleBills);
+                        machine.recordExchange(amount);
+                        return new ExchangeResponse(ExchangeResponse.SUCCESS, change);
+                    })
+                    .toFuture();
+            // suppressCancel: o cancelamento só solta quem assina, não o save em andamento
+            return Mono.fromFuture(saved, true);
+        });
+    }
+
+    public void addCoins(String machineId, int coinValue, int quantity) {
+        machineRegistry.get(machineId).addCoins(coinValue, quantity);
+    }
+
+    public void removeCoins(String machineId, int coinValue, int quantity) {
+        machineRegistry.get(machineId).removeCoins(coinValue, quantity);
+    }
+
+    public Map<Integer, Integer> getInventory(String machineId) {
+        return machineRegistry.get(machineId).getCoinInventory().asMap();
+    }
+
+    public InventoryResponse getInventoryResponse(String machineId) {
+        CoinInventory coinInventory = machineRegistry.get(machineId).getCoinInventory();
+        InventorySnapshot snapshot = coinInventory.current();
+        return new InventoryResponse(coinInventory.asMap(snapshot), (int) snapshot.totalCents());
+    }
+
+    public Map<String, Object> getStatus(String machineId) {
+        Map<String, Object> status = new HashMap<>();
+        CoinInventory coinInventory = machineRegistry.get(machineId).getCoinInventory();
+        InventorySnapshot snapshot = coinInventory.current();
+        status.put("coinInventory", coinInventory.asMap(snapshot));
+        status.put("totalValue", "$" + (snapshot.totalCents() / 100.0));
+        return status;
+    }
+
+    public Map<String, Object> getFleetStatus() {
+        return machineRegistry.getFleet().snapshot();
+    }
+
+    public BillsInventoryResponse getBillsInventory(String machineId) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        return new BillsInventoryResponse(machine.getBillInventory(), machine.getTotalBillsReceived());
+    }
+
+    public boolean isMachineOperational(String machineId) {
+        return machineRegistry.get(machineId).getCoinInventory().current().totalCoins() > 0;
+    }
+
+    /**
+     * Página do histórico depois do cursor afterId, na ordem de {@link TransactionFilter#order()}, emitida linha
+     * a linha conforme a demanda de quem consome (o driver só busca mais linhas quando o cliente HTTP consegue
+     * receber).
+     */
+    public Flux<ExchangeTransactionDto> filterTransactionHistory(
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            Integer minAmount,
+            Integer maxAmount,
+            Boolean minimal,
+            String machineId,
+            Long afterId,
+            int limit) {
+        TransactionFilter.Order order = order(startDate, endDate, minAmount, maxAmount);
+        return pageCriteria(criteria(startDate, endDate, minAmount, maxAmount, minimal, machineId), order, afterId)
+                .flatMapMany(criteria -> template.select(Query.query(criteria)
+                        .sort(order.sort())
+                        .limit(pageSize(limit)), ExchangeTransactionRecord.class))
+                .map(ReactiveExchangeService::toDto);
+    }
+
+    /**
+     * Cursor da próxima página (id do último item de uma página cheia), ou vazio se a página não enche.
+     * Consulta separada para que o header possa ir antes do corpo, que é emitido em stream.
+     */
+    public Mono<Long> nextCursor(
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            Integer minAmount,
+            Integer maxAmount,
+            Boolean minimal,
+            String machineId,
+            Long afterId,
+            int limit) {
+        int pageSize = pageSize(limit);
+        TransactionFilter.Order order = order(startDate, endDate, minAmount, maxAmount);
+        return pageCriteria(criteria(startDate, endDate, minAmount, maxAmount, minimal, machineId), order, afterId)
+                .flatMap(criteria -> template.selectOne(Query.query(criteria)
+                        .sort(order.sort())
+                        .offset(pageSize - 1)
+                        .limit(1), ExchangeTransactionRecord.class))
+                .map(ExchangeTransactionRecord::getId);
+    }
+
+    private static TransactionFilter.Order order(LocalDateTime startDate, LocalDateTime endDate,
+                                                 Integer minAmount, Integer maxAmount) {
+        return new TransactionFilter(startDate, endDate, minAmount, maxAmount, null, null).order();
+    }
+
+    /**
+     * Filtro mais a posição depois do cursor, como no JpaTransactionStore: em ordem de id basta id > cursor;
+     * em ordem de data ou valor a coluna do cursor vem de uma leitura pela chave primária.
+     */
+    private Mono<Criteria> pageCriteria(Criteria criteria, TransactionFilter.Order order, Long afterId) {
+        if (afterId == null) {
+            return Mono.just(criteria);
+        }
+        if (order == TransactionFilter.Order.ID) {
+            return Mono.just(criteria.and("id").greaterThan(afterId));
+        }
+        return template.selectOne(Query.query(Criteria.where("id").is(afterId)), ExchangeTransactionRecord.class)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Unknown history cursor: " + afterId + ".")))
+                .map(cursor -> {
+                    Object value = order.valueOf(cursor.getTransactionDate(), cursor.getAmount(), cursor.getId());
+                    // O >= redundante dá ao banco o limite inferior do range scan no índice (coluna, id)
+                    return criteria.and(order.attribute()).greaterThanOrEquals(value)
+                            .and(Criteria.where(order.attribute()).greaterThan(value).or("id").greaterThan(afterId));
+                });
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, ExchangeService.MAX_PAGE_SIZE));
+    }
+
+    private static Criteria criteria(LocalDateTime startDate,
+                                     LocalDateTime endDate,
+                                     Integer minAmount,
+                                     Integer maxAmount,
+                                     Boolean minimal,
+                                     String machineId) {
+        Criteria criteria = Criteria.empty();
+        if (startDate != null) {
+            criteria = criteria.and("transactionDate").greaterThanOrEquals(startDate);
+        }
+        if (endDate != null) {
+            criteria = criteria.and("transactionDate").lessThanOrEquals(endDate);
+        }
+        if (minAmount != null) {
+            criteria = criteria.and("amount").greaterThanOrEquals(minAmount);
+        }
+        if (maxAmount != null) {
+            criteria = criteria.and("amount").lessThanOrEquals(maxAmount);
+        }
+        if (minimal != null) {
+            criteria = criteria.and("minimal").is(minimal);
+        }
+        if (machineId != null) {
+            criteria = criteria.and("machineId").is(machineId);
+        }
+        return criteria;
+    }
+
+    private static ExchangeTransactionDto toDto(ExchangeTransactionRecord tx) {
+        return new ExchangeTransactionDto(
+                tx.getId(),
+                tx.getMachineId(),
+                tx.getAmount(),
+                tx.isMinimal(),
+                CHANGE_CODEC.convertToEntityAttribute(tx.getChange()),
+                tx.getTransactionDate());
+    }
+}
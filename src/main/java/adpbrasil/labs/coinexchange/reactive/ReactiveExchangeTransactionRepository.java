@@ -0,0 +1,8 @@
+package adpbrasil.labs.coinexchange.reactive;
+
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReactiveExchangeTransactionRepository extends R2dbcRepository<ExchangeTransactionRecord, Long> {
+}
@@ -0,0 +1,21 @@
+package adpbrasil.labs.coinexchange.reactive;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+
+@Configuration
+public class ReactivePersistenceConfig {
+
+    // Sem Hibernate, o schema vem de um script próprio (fora de schema.sql para não valer para a aplicação servlet)
+    @Bean
+    public ConnectionFactoryInitializer schemaInitializer(ConnectionFactory connectionFactory) {
+        ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+        initializer.setConnectionFactory(connectionFactory);
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("reactive/schema.sql")));
+        return initializer;
+    }
+}
@@ -0,0 +1,60 @@
+package adpbrasil.labs.coinexchange.reactive;
+
+import adpbrasil.labs.coinexchange.config.CredentialCacheProperties;
+import adpbrasil.labs.coinexchange.security.CachingReactiveAuthenticationManager;
+import adpbrasil.labs.coinexchange.security.CredentialCache;
+import adpbrasil.labs.coinexchange.security.InvalidatingReactiveUserDetailsService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/**
+ * Mesmas regras do SecurityConfig da aplicação servlet, na API do WebFlux, inclusive o cache de credenciais.
+ */
+@Configuration
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         ReactiveAuthenticationManager authenticationManager) {
+        http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .authorizeExchange(exchange -> exchange
+                        .anyExchange().authenticated()
+                )
+                .httpBasic(basic -> basic.authenticationManager(authenticationManager));
+
+        return http.build();
+    }
+
+    @Bean
+    public CredentialCache credentialCache(CredentialCacheProperties properties) {
+        return new CredentialCache(properties);
+    }
+
+    @Bean
+    public InvalidatingReactiveUserDetailsService userDetailsService(CredentialCache credentialCache) {
+        UserDetails user = User.withUsername("klinton")
+                .password("{noop}klinton123")
+                .roles("USER")
+                .build();
+        return new InvalidatingReactiveUserDetailsService(credentialCache, user);
+    }
+
+    @Bean
+    public ReactiveAuthenticationManager authenticationManager(InvalidatingReactiveUserDetailsService userDetailsService,
+                                                               CredentialCache credentialCache,
+                                                               CredentialCacheProperties properties) {
+        UserDetailsRepositoryReactiveAuthenticationManager manager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService);
+        manager.setUserDetailsPasswordService(userDetailsService);
+        return properties.isEnabled() ? new CachingReactiveAuthenticationManager(manager, credentialCache) : manager;
+    }
+}
@@ -0,0 +1,83 @@
+package adpbrasil.labs.coinexchange.repository;
+
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filtros do histórico executados no banco. Cada método devolve null quando o parâmetro é nulo,
+ * e Specification.where/and ignoram specs nulas.
+ */
+public final class ExchangeTransactionSpecifications {
+
+    private ExchangeTransactionSpecifications() {
+    }
+
+    public static Specification<ExchangeTransaction> filter(LocalDateTime startDate,
+                                                            LocalDateTime endDate,
+                                                            Integer minAmount,
+                                                            Integer maxAmount,
+                                                            Boolean minimal,
+                                                            String machineId) {
+        return Specification.where(dateFrom(startDate))
+                .and(dateTo(endDate))
+                .and(amountFrom(minAmount))
+                .and(amountTo(maxAmount))
+                .and(minimal(minimal))
+                .and(machine(machineId));
+    }
+
+    public static Specification<ExchangeTransaction> idAfter(Long afterId) {
+        return afterId == null ? null : (root, query, cb) -> cb.greaterThan(root.get("id"), afterId);
+    }
+
+    /**
+     * Linhas depois do cursor na ordem (coluna, id): coluna > valor, ou coluna = valor e id > cursor.
+     * O >= redundante na coluna dá ao banco o limite inferior do range scan no índice (coluna, id).
+     */
+    public static Specification<ExchangeTransaction> after(TransactionFilter.Order order, ExchangeTransaction cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        if (order == TransactionFilter.Order.ID) {
+            return idAfter(cursor.getId());
+        }
+        return seek(order.attribute(), (Comparable<?>) order.valueOf(cursor.getTransactionDate(), cursor.getAmount(), cursor.getId()),
+                cursor.getId());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Specification<ExchangeTransaction> seek(String attribute, Comparable value, long id) {
+        return (root, query, cb) -> {
+            Path<Comparable> column = root.get(attribute);
+            return cb.and(cb.greaterThanOrEqualTo(column, value),
+                    cb.or(cb.greaterThan(column, value), cb.greaterThan(root.get("id"), id)));
+        };
+    }
+
+    private static Specification<ExchangeTransaction> dateFrom(LocalDateTime startDate) {
+        return startDate == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("transactionDate"), startDate);
+    }
+
+    private static Specification<ExchangeTransaction> dateTo(LocalDateTime endDate) {
+        return endDate == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("transactionDate"), endDate);
+    }
+
+    private static Specification<ExchangeTransaction> amountFrom(Integer minAmount) {
+        return minAmount == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("amount"), minAmount);
+    }
+
+    private static Specification<ExchangeTransaction> amountTo(Integer maxAmount) {
+        return maxAmount == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("amount"), maxAmount);
+    }
+
+    private static Specification<ExchangeTransaction> minimal(Boolean minimal) {
+        return minimal == null ? null : (root, query, cb) -> cb.equal(root.get("minimal"), minimal);
+    }
+
+    private static Specification<ExchangeTransaction> machine(String machineId) {
+        return machineId == null ? null : (root, query, cb) -> cb.equal(root.get("machineId"), machineId);
+    }
+}
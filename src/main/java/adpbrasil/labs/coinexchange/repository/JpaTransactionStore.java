@@ -0,0 +1,125 @@
+package adpbrasil.labs.coinexchange.repository;
+
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Transações no banco via {@link ExchangeTransactionRepository}.
+ */
+@Component
+@Profile("!" + TransactionStore.MAPPED_JOURNAL_PROFILE)
+public class JpaTransactionStore implements TransactionStore {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final ExchangeTransactionRepository repository;
+    // EntityManager compartilhado (proxy transacional do Spring Data); o cursor do forEach precisa dele
+    private final EntityManager entityManager;
+
+    public JpaTransactionStore(ExchangeTransactionRepository repository, EntityManager entityManager) {
+        this.repository = Objects.requireNonNull(repository, "repository");
+        this.entityManager = Objects.requireNonNull(entityManager, "entityManager");
+    }
+
+    @Override
+    public ExchangeTransaction save(ExchangeTransaction transaction) {
+        try {
+            return repository.save(transaction);
+        } catch (RuntimeException e) {
+            transaction.setId(null);
+            throw e;
+        }
+    }
+
+    /**
+     * O saveAll roda numa transação só: se falha, nada fica gravado. Os ids que a sequence já tinha
+     * atribuído no persist voltam a null, senão a próxima tentativa faria merge de linhas que não existem.
+     */
+    @Override
+    public void saveAll(List<ExchangeTransaction> transactions) {
+        try {
+            repository.saveAll(transactions);
+        } catch (RuntimeException e) {
+            transactions.forEach(transaction -> transaction.setId(null));
+            throw e;
+        }
+    }
+
+    /**
+     * Paginação por cursor (keyset) na ordem de {@link TransactionFilter#order()}, sem OFFSET: a próxima página
+     * começa depois do último item devolvido, buscado no índice (coluna, id) do filtro, então o custo não cresce
+     * com a tabela nem com a profundidade. O cursor continua sendo o id; fora da ordem de id a coluna de
+     * ordenação dele vem de uma leitura pela chave primária.
+     */
+    @Override
+    public List<ExchangeTransaction> find(TransactionFilter filter, Long afterId, int limit) {
+        TransactionFilter.Order order = filter.order();
+        Specification<ExchangeTransaction> after;
+        if (afterId == null || order == TransactionFilter.Order.ID) {
+            after = ExchangeTransactionSpecifications.idAfter(afterId);
+        } else {
+            ExchangeTransaction cursor = repository.findById(afterId)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown history cursor: " + afterId + "."));
+            after = ExchangeTransactionSpecifications.after(order, cursor);
+        }
+        return repository.findBy(filter.toSpecification().and(after), query -> query
+                .sortBy(order.sort())
+                .limit(limit)
+                .all());
+    }
+
+    /**
+     * Cursor forward-only; o persistence context é limpo a cada lote, então o uso de heap não depende
+     * do número de linhas.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long forEach(TransactionFilter filter, TransactionVisitor visitor) throws IOException {
+        long rows = 0;
+        try (Stream<ExchangeTransaction> transactions = stream(filter)) {
+            var iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                visitor.visit(iterator.next());
+                if (++rows % FETCH_SIZE == 0) {
+                    // Entidades já visitadas não precisam ficar no persistence context
+                    entityManager.clear();
+                }
+            }
+        }
+        return rows;
+    }
+
+    private Stream<ExchangeTransaction> stream(TransactionFilter filter) {
+        Specification<ExchangeTransaction> spec = filter.toSpecification();
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ExchangeTransaction> query = cb.createQuery(ExchangeTransaction.class);
+        Root<ExchangeTransaction> root = query.from(ExchangeTransaction.class);
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        // Mesma ordem das páginas: com intervalo de data ou valor, o cursor percorre o índice do filtro
+        query.orderBy(filter.order().sort().stream()
+                .map(sort -> cb.asc(root.get(sort.getProperty())))
+                .toList());
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,73 @@
+package adpbrasil.labs.coinexchange.repository;
+
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filtro do histórico, independente de onde as transações estão gravadas. Campos nulos não filtram.
+ */
+public record TransactionFilter(LocalDateTime startDate,
+                                LocalDateTime endDate,
+                                Integer minAmount,
+                                Integer maxAmount,
+                                Boolean minimal,
+                                String machineId) {
+
+    public static final TransactionFilter NONE = new TransactionFilter(null, null, null, null, null, null);
+
+    /**
+     * Ordem das páginas no banco: a coluna do filtro de intervalo seguida do id, a mesma chave dos índices
+     * (transaction_date, id) e (amount, id). Assim o cursor vira um range scan no índice do filtro; em ordem
+     * de id o banco teria de percorrer o índice do id filtrando, ou buscar todas as linhas do intervalo e ordenar.
+     */
+    public enum Order {
+        ID("id"),
+        DATE("transactionDate"),
+        AMOUNT("amount");
+
+        private final String attribute;
+
+        Order(String attribute) {
+            this.attribute = attribute;
+        }
+
+        public String attribute() {
+            return attribute;
+        }
+
+        public Sort sort() {
+            return this == ID ? Sort.by("id") : Sort.by(attribute, "id");
+        }
+
+        /**
+         * Valor da coluna de ordenação na transação do cursor.
+         */
+        public Object valueOf(LocalDateTime transactionDate, int amount, long id) {
+            return switch (this) {
+                case ID -> id;
+                case DATE -> transactionDate;
+                case AMOUNT -> amount;
+            };
+        }
+    }
+
+    /**
+     * Intervalo de data tem prioridade sobre o de valor; sem nenhum dos dois, ordem de id.
+     */
+    public Order order() {
+        if (startDate != null || endDate != null) {
+            return Order.DATE;
+        }
+        if (minAmount != null || maxAmount != null) {
+            return Order.AMOUNT;
+        }
+        return Order.ID;
+    }
+
+    public Specification<ExchangeTransaction> toSpecification() {
+        return ExchangeTransactionSpecifications.filter(startDate, endDate, minAmount, maxAmount, minimal, machineId);
+    }
+}
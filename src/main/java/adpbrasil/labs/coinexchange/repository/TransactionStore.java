@@ -0,0 +1,46 @@
+package adpbrasil.labs.coinexchange.repository;
+
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Onde as transações de troca são gravadas e lidas: {@link JpaTransactionStore} (JPA/H2, padrão) ou, com o
+ * profile {@value #MAPPED_JOURNAL_PROFILE}, um journal binário em arquivos mapeados em memória.
+ */
+public interface TransactionStore {
+
+    String MAPPED_JOURNAL_PROFILE = "mapped-journal";
+
+    /**
+     * Grava a transação e preenche o id. Se a gravação falha, o id continua null.
+     */
+    ExchangeTransaction save(ExchangeTransaction transaction);
+
+    /**
+     * Grava as transações e preenche os ids. Se a gravação falha, só as transações que ficaram gravadas têm
+     * id; as demais continuam com null, e quem tenta de novo regrava só essas.
+     */
+    void saveAll(List<ExchangeTransaction> transactions);
+
+    /**
+     * Página a partir do cursor afterId (id do último item da página anterior, exclusivo; null começa do
+     * início), na ordem de {@link TransactionFilter#order()} quando o store pode buscar por ela num índice.
+     *
+     * @throws IllegalArgumentException se afterId não é uma transação gravada
+     */
+    List<ExchangeTransaction> find(TransactionFilter filter, Long afterId, int limit);
+
+    /**
+     * Percorre todas as transações do filtro, na mesma ordem das páginas, sem carregá-las de uma vez.
+     *
+     * @return número de transações visitadas
+     */
+    long forEach(TransactionFilter filter, TransactionVisitor visitor) throws IOException;
+
+    @FunctionalInterface
+    interface TransactionVisitor {
+        void visit(ExchangeTransaction transaction) throws IOException;
+    }
+}
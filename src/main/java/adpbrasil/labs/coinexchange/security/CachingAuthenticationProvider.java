@@ -0,0 +1,47 @@
+package adpbrasil.labs.coinexchange.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Consulta o {@link CredentialCache} antes de delegar ao provider que confere a senha (DaoAuthenticationProvider).
+ * Só verificações bem-sucedidas entram no cache; senha errada sempre vai ao delegate.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final CredentialCache cache;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, CredentialCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+        String username = authentication.getName();
+        String password = authentication.getCredentials().toString();
+        Authentication cached = cache.lookup(username, password);
+        if (cached != null) {
+            ((AbstractAuthenticationToken) cached).setDetails(authentication.getDetails());
+            return cached;
+        }
+        long generation = cache.generation();
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.isAuthenticated()) {
+            cache.store(username, password, result, generation);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication) && delegate.supports(authentication);
+    }
+}
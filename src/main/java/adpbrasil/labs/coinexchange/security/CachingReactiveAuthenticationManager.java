@@ -0,0 +1,41 @@
+package adpbrasil.labs.coinexchange.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+/**
+ * Equivalente do {@link CachingAuthenticationProvider} para o WebFlux.
+ */
+public class CachingReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final ReactiveAuthenticationManager delegate;
+    private final CredentialCache cache;
+
+    public CachingReactiveAuthenticationManager(ReactiveAuthenticationManager delegate, CredentialCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+        String username = authentication.getName();
+        String password = authentication.getCredentials().toString();
+        Authentication cached = cache.lookup(username, password);
+        if (cached != null) {
+            ((AbstractAuthenticationToken) cached).setDetails(authentication.getDetails());
+            return Mono.just(cached);
+        }
+        long generation = cache.generation();
+        return delegate.authenticate(authentication)
+                .doOnNext(result -> {
+                    if (result.isAuthenticated()) {
+                        cache.store(username, password, result, generation);
+                    }
+                });
+    }
+}
@@ -0,0 +1,137 @@
+package adpbrasil.labs.coinexchange.security;
+
+import adpbrasil.labs.coinexchange.config.CredentialCacheProperties;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache de verificações de senha bem-sucedidas, para que chamadas repetidas do mesmo quiosque não paguem
+ * o hash (BCrypt, dezenas de ms) a cada requisição.
+ *
+ * Guarda por usuário um HMAC-SHA256 da senha com uma chave aleatória do processo (nunca a senha), além do
+ * principal e das authorities. Uma entrada vale por ttl, o cache guarda no máximo maxSize usuários (LRU) e
+ * {@link #invalidate(String)} deve ser chamado sempre que o usuário muda.
+ *
+ * Quem verifica a senha lê {@link #generation()} antes e passa o valor para store: se houve invalidação no
+ * meio da verificação, o resultado (possivelmente de uma senha que acabou de mudar) não entra no cache.
+ */
+public class CredentialCache {
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Clock clock;
+    private final SecretKeySpec key;
+    private final Map<String, Entry> entries;
+    // Incrementado a cada invalidação; guardado por entries
+    private long generation;
+
+    public CredentialCache(CredentialCacheProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    public CredentialCache(CredentialCacheProperties properties, Clock clock) {
+        this.ttlMillis = properties.getTtl().toMillis();
+        this.maxSize = properties.getMaxSize();
+        this.clock = clock;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, HMAC);
+        // LinkedHashMap em ordem de acesso: o mais antigo sai quando passa de maxSize
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > CredentialCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return uma autenticação nova com o principal e as authorities em cache, ou null se não há entrada
+     * válida para o usuário com essa senha
+     */
+    public Authentication lookup(String username, String password) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(username);
+            if (entry != null && entry.expiresAt() <= clock.millis()) {
+                entries.remove(username);
+                entry = null;
+            }
+        }
+        if (entry == null || !MessageDigest.isEqual(entry.digest(), digest(password))) {
+            return null;
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(entry.principal(), null, entry.authorities());
+    }
+
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * @param generation valor de {@link #generation()} lido antes de verificar a senha
+     * @return false se houve invalidação desde então e a entrada foi descartada
+     */
+    public boolean store(String username, String password, Authentication authentication, long generation) {
+        Entry entry = new Entry(digest(password), authentication.getPrincipal(), authentication.getAuthorities(),
+                clock.millis() + ttlMillis);
+        synchronized (entries) {
+            if (generation != this.generation) {
+                return false;
+            }
+            entries.put(username, entry);
+            return true;
+        }
+    }
+
+    public void invalidate(String username) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(username);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private byte[] digest(String password) {
+        try {
+            // Mac não é thread-safe; criar um por chamada custa microssegundos
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available.", e);
+        }
+    }
+
+    private record Entry(byte[] digest, Object principal, Collection<? extends GrantedAuthority> authorities,
+                         long expiresAt) {
+    }
+}
@@ -0,0 +1,25 @@
+package adpbrasil.labs.coinexchange.security;
+
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import reactor.core.publisher.Mono;
+
+/**
+ * MapReactiveUserDetailsService que tira o usuário do {@link CredentialCache} quando a senha muda
+ * (a única alteração que ele suporta, usada na migração de hash do Spring Security).
+ */
+public class InvalidatingReactiveUserDetailsService extends MapReactiveUserDetailsService {
+
+    private final CredentialCache cache;
+
+    public InvalidatingReactiveUserDetailsService(CredentialCache cache, UserDetails... users) {
+        super(users);
+        this.cache = cache;
+    }
+
+    @Override
+    public Mono<UserDetails> updatePassword(UserDetails user, String newPassword) {
+        return super.updatePassword(user, newPassword)
+                .doOnSuccess(updated -> cache.invalidate(user.getUsername()));
+    }
+}
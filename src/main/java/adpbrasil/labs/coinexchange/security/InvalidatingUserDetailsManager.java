@@ -0,0 +1,57 @@
+package adpbrasil.labs.coinexchange.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+/**
+ * InMemoryUserDetailsManager que tira o usuário do {@link CredentialCache} a cada alteração
+ * (criação, atualização, remoção, troca de senha e a migração de hash feita pelo próprio Spring Security).
+ */
+public class InvalidatingUserDetailsManager extends InMemoryUserDetailsManager {
+
+    private final CredentialCache cache;
+
+    public InvalidatingUserDetailsManager(CredentialCache cache, UserDetails... users) {
+        // Os usuários iniciais entram depois de cache estar atribuído (createUser é sobrescrito)
+        this.cache = cache;
+        for (UserDetails user : users) {
+            createUser(user);
+        }
+    }
+
+    @Override
+    public void createUser(UserDetails user) {
+        super.createUser(user);
+        cache.invalidate(user.getUsername());
+    }
+
+    @Override
+    public void updateUser(UserDetails user) {
+        super.updateUser(user);
+        cache.invalidate(user.getUsername());
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        super.deleteUser(username);
+        cache.invalidate(username);
+    }
+
+    @Override
+    public void changePassword(String oldPassword, String newPassword) {
+        super.changePassword(oldPassword, newPassword);
+        Authentication current = SecurityContextHolder.getContext().getAuthentication();
+        if (current != null) {
+            cache.invalidate(current.getName());
+        }
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserDetails updated = super.updatePassword(user, newPassword);
+        cache.invalidate(user.getUsername());
+        return updated;
+    }
+}
@@ -1,154 +1,396 @@
 package adpbrasil.labs.coinexchange.service;
 
+import adpbrasil.labs.coinexchange.analytics.ExchangeRollups;
+import adpbrasil.labs.coinexchange.audit.ExchangeAudit;
+import adpbrasil.labs.coinexchange.config.AnalyticsProperties;
 import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.dto.AnalyticsBucket;
+import adpbrasil.labs.coinexchange.dto.AnalyticsResponse;
 import adpbrasil.labs.coinexchange.dto.BillsInventoryResponse;
+import adpbrasil.labs.coinexchange.dto.BulkExchangeItemResult;
+import adpbrasil.labs.coinexchange.dto.BulkExchangeResponse;
+import adpbrasil.labs.coinexchange.dto.ExchangeRequest;
 import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import adpbrasil.labs.coinexchange.dto.InventoryResponse;
 import adpbrasil.labs.coinexchange.exception.InsufficientCoinsException;
+import adpbrasil.labs.coinexchange.fleet.CoinMachine;
+import adpbrasil.labs.coinexchange.fleet.MachineRegistry;
+import adpbrasil.labs.coinexchange.inventory.CoinChange;
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import adpbrasil.labs.coinexchange.inventory.InventorySnapshot;
+import adpbrasil.labs.coinexchange.inventory.Reservation;
+import adpbrasil.labs.coinexchange.metrics.ExchangeMetrics;
 import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
-import adpbrasil.labs.coinexchange.repository.ExchangeTransactionRepository;
+import adpbrasil.labs.coinexchange.persistence.InventoryEventStore;
+import adpbrasil.labs.coinexchange.persistence.TransactionJournal;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @Service
 public class ExchangeService {
     private static final Logger logger = LoggerFactory.getLogger(ExchangeService.class);
 
-    private Map<Integer, Integer> coinInventory;
-    public static final int TWENTYFIVECENTS = 25;
-    public static final int TENCENTS = 10;
-    public static final int FIVECENTS = 5;
-    public static final int ONECENT = 1;
-
-    private final int[] coinValues = {TWENTYFIVECENTS, TENCENTS, FIVECENTS, ONECENT};
-    private final int[] coinValuesMax = {ONECENT, FIVECENTS, TENCENTS, TWENTYFIVECENTS};
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
 
     private final CoinProperties coinProperties;
-    private final ExchangeTransactionRepository transactionRepository;
-    private Map<Integer, Integer> billInventory = new HashMap<>();
-    private int totalBillsReceived = 0;
+    private final TransactionStore transactionStore;
+    private final TransactionJournal transactionJournal;
+    private final MachineRegistry machineRegistry;
+    private final ExchangeMetrics metrics;
+    private final ExchangeAudit audit;
+    private final InventoryEventStore inventoryLog;
+    private final ExchangeRollups rollups;
+
+    @Autowired
+    public ExchangeService(CoinProperties coinProperties,
+                           TransactionStore transactionStore,
+                           TransactionJournal transactionJournal,
+                           MeterRegistry meterRegistry,
+                           ExchangeAudit audit,
+                           InventoryEventStore inventoryLog,
+                           ExchangeRollups rollups) {
+        this.coinProperties = Objects.requireNonNull(coinProperties, "coinProperties");
+        this.audit = Objects.requireNonNull(audit, "audit");
+        this.inventoryLog = Objects.requireNonNull(inventoryLog, "inventoryLog");
+        this.rollups = Objects.requireNonNull(rollups, "rollups");
+        this.transactionStore = Objects.requireNonNull(transactionStore, "transactionStore");
+        this.transactionJournal = Objects.requireNonNull(transactionJournal, "transactionJournal");
+        this.machineRegistry = new MachineRegistry(coinProperties);
+        this.metrics = new ExchangeMetrics(Objects.requireNonNull(meterRegistry, "meterRegistry"));
+        machineRegistry.getMachines().forEach(metrics::bind);
+        metrics.bind(transactionJournal);
+        // Com o log de inventário ligado, cada máquina volta ao estado gravado; sem histórico, começa cheia
+        for (CoinMachine machine : machineRegistry.getMachines()) {
+            if (!inventoryLog.recover(machine)) {
+                resetInventory(machine.getId());
+            }
+        }
+    }
+
+    /**
+     * Montagem fora do Spring (testes e benchmarks): só o store é obrigatório; o resto tem o padrão de um
+     * serviço isolado (journal síncrono, métricas em memória, sem auditoria, sem log de inventário).
+     */
+    public static Builder builder(CoinProperties coinProperties, TransactionStore transactionStore) {
+        return new Builder(coinProperties, transactionStore);
+    }
 
-    public ExchangeService(CoinProperties coinProperties, ExchangeTransactionRepository transactionRepository) {
-        this.coinProperties = coinProperties;
-        this.transactionRepository = transactionRepository;
-        resetInventory();
+    public MachineRegistry getMachineRegistry() {
+        return machineRegistry;
     }
 
     public void resetInventory() {
-        coinInventory = new HashMap<>();
-        int initial = coinProperties.getInitialQuantity();
-        for (int coin : coinValues) {
-            coinInventory.put(coin, initial);
+        for (CoinMachine machine : machineRegistry.getMachines()) {
+            resetInventory(machine.getId());
         }
+    }
 
+    public void resetInventory(String machineId) {
+        int initial = coinProperties.getInitialQuantity();
         // Reset também do inventário de bills e acumulador
-        billInventory = new HashMap<>();
-        totalBillsReceived = 0;
-
-        logger.info("Inventory reset to {} coins for each type.", initial);
+        CoinMachine machine = machineRegistry.get(machineId);
+        inventoryLog.reset(machine, initial);
+        logger.info("Inventory of machine {} reset to {} coins for each type.", machineId, initial);
     }
 
-    private void registerBill(int amount, boolean allowMultipleBills) {
+    private void registerBill(CoinMachine machine, int amount, boolean allowMultipleBills) {
+        int count = machine.registerBill(amount, allowMultipleBills);
         if (!allowMultipleBills) {
-            // Valor deve ser uma cédula válida; assume que a validação já ocorreu
-            billInventory.put(amount, billInventory.getOrDefault(amount, 0) + 1);
-            logger.info("Registered bill of ${}. New count: {}.", amount, billInventory.get(amount));
+            logger.debug("Registered bill of ${}. New count: {}.", amount, count);
         } else {
-            totalBillsReceived += amount;
-            logger.info("Added ${} to total bills. New total: ${}.", amount, totalBillsReceived);
+            logger.debug("Added ${} to total bills. New total: ${}.", amount, count);
         }
     }
 
     public void addCoins(int coinValue, int quantity) {
-        if (!Arrays.stream(coinValues).anyMatch(v -> v == coinValue)) {
-            throw new IllegalArgumentException("Coin value must be one of: 1, 5, 10, 25.");
-        }
-        coinInventory.put(coinValue, coinInventory.getOrDefault(coinValue, 0) + quantity);
-        logger.info("Added {} coins of {} centavos. New count: {}.", quantity, coinValue, coinInventory.get(coinValue));
+        addCoins(machineRegistry.getDefault().getId(), coinValue, quantity);
+    }
+
+    public void addCoins(String machineId, int coinValue, int quantity) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        int count = inventoryLog.delta(machine, () -> {
+            int added = machine.addCoins(coinValue, quantity);
+            inventoryLog.coinsAdded(machine, coinValue, quantity);
+            return added;
+        });
+        audit.inventory(machine.getId(), "add", coinValue, quantity, count);
     }
 
     public void removeCoins(int coinValue, int quantity) {
-        if (!Arrays.stream(coinValues).anyMatch(v -> v == coinValue)) {
-            throw new IllegalArgumentException("Coin value must be one of: 1, 5, 10, 25.");
-        }
-        int available = coinInventory.getOrDefault(coinValue, 0);
-        if (quantity > available) {
-            throw new IllegalArgumentException("Not enough coins of " + coinValue + " cents to remove.");
-        }
-        coinInventory.put(coinValue, available - quantity);
+        removeCoins(machineRegistry.getDefault().getId(), coinValue, quantity);
     }
 
+    public void removeCoins(String machineId, int coinValue, int quantity) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        int count = inventoryLog.delta(machine, () -> {
+            int removed = machine.removeCoins(coinValue, quantity);
+            inventoryLog.coinsRemoved(machine, coinValue, quantity);
+            return removed;
+        });
+        audit.inventory(machine.getId(), "remove", coinValue, quantity, count);
+    }
 
     public Map<Integer, Integer> getInventory() {
-        return coinInventory;
+        return getInventory(machineRegistry.getDefault().getId());
+    }
+
+    public Map<Integer, Integer> getInventory(String machineId) {
+        return machineRegistry.get(machineId).getCoinInventory().asMap();
+    }
+
+    public InventoryResponse getInventoryResponse(String machineId) {
+        CoinInventory coinInventory = machineRegistry.get(machineId).getCoinInventory();
+        // Quantidades e total saem do mesmo snapshot
+        InventorySnapshot snapshot = coinInventory.current();
+        return new InventoryResponse(coinInventory.asMap(snapshot), (int) snapshot.totalCents());
     }
 
     public ExchangeResponse exchange(int amount, boolean minimal, boolean allowMultipleBills) {
-        if (allowMultipleBills) {
-            if (amount <= 1) {
-                throw new IllegalArgumentException("When multiple bills are allowed, amount must be greater than 1.");
-            }
-        } else {
-            // Lista de cédulas permitidas
-            List<Integer> allowedBills = List.of(1, 2, 5, 10, 20, 50, 100);
-            if (!allowedBills.contains(amount)) {
-                throw new IllegalArgumentException("Invalid bill denomination. Allowed denominations are: " + allowedBills);
+        return exchange(machineRegistry.getDefault().getId(), amount, minimal, allowMultipleBills);
+    }
+
+    public ExchangeResponse exchange(String machineId, int amount, boolean minimal, boolean allowMultipleBills) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        // Da reserva ao evento no log sem reset da máquina no meio: as moedas reservadas antes de um reset
+        // sairiam do estoque reposto no replay
+        return inventoryLog.delta(machine, () -> exchange(machine, amount, minimal, allowMultipleBills));
+    }
+
+    private ExchangeResponse exchange(CoinMachine machine, int amount, boolean minimal, boolean allowMultipleBills) {
+        String id = machine.getId();
+        long start = System.nanoTime();
+        machine.validateAmount(amount, allowMultipleBills);
+        long validated = System.nanoTime();
+        metrics.recordValidate(id, validated - start);
+
+        int cents = amount * 100; // converte dólares para centavos
+        // Fase 1: plano e reserva acontecem juntos sobre o mesmo snapshot do estoque
+        Reservation reservation = machine.reserveChange(cents, minimal, metrics.plan(id));
+        long reserved = System.nanoTime();
+        metrics.recordReserve(id, reserved - validated);
+        if (reservation == null) {
+            metrics.recordInsufficient(id, amount, allowMultipleBills);
+            rollups.recordInsufficient(id, LocalDateTime.now());
+            audit.insufficient(id, amount, minimal);
+            throw new InsufficientCoinsException("Not enough coins available for the exchange.");
+        }
+
+        CoinChange change = machine.toChange(reservation.plan());
+        ExchangeTransaction transaction = newTransaction(machine, amount, minimal, change, LocalDateTime.now());
+        try {
+            // Em modo write-behind só entra no buffer; falha aqui significa banco fora (SYNC) ou buffer cheio
+            transactionJournal.append(transaction);
+        } catch (RuntimeException e) {
+            // Falha ao persistir: as moedas reservadas voltam para o estoque e o bill não é registrado
+            reservation.rollback();
+            throw e;
+        }
+        metrics.recordPersist(id, System.nanoTime() - reserved);
+
+        // Fase 2: confirma a reserva e só então registra o bill recebido
+        reservation.commit();
+        registerBill(machine, amount, allowMultipleBills);
+        machine.recordExchange(amount);
+        int[] plan = reservation.plan();
+        inventoryLog.exchanged(machine, amount, allowMultipleBills, plan);
+        metrics.recordChange(id, plan);
+        rollups.recordExchange(id, transaction.getTransactionDate(), amount, minimal, change);
+        audit.exchange(id, amount, minimal, allowMultipleBills, coinCount(plan));
+        audit.plan(id, amount, machine.getCoinInventory(), plan);
+        return new ExchangeResponse(ExchangeResponse.SUCCESS, change);
+    }
+
+    public BulkExchangeResponse exchangeBulk(List<ExchangeRequest> requests, boolean atomic) {
+        return exchangeBulk(machineRegistry.getDefault().getId(), requests, atomic);
+    }
+
+    /**
+     * Processa um lote de trocas: todos os planos são calculados sobre um único snapshot do estoque e
+     * reservados num só passo, e as transações aceitas são gravadas num único saveAll.
+     * Com atomic, qualquer item inválido ou sem troco recusa o lote inteiro; sem atomic, cada item
+     * recebe o próprio resultado e os recusados não consomem moedas.
+     */
+    public BulkExchangeResponse exchangeBulk(String machineId, List<ExchangeRequest> requests, boolean atomic) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        return inventoryLog.delta(machine, () -> exchangeBulk(machine, requests, atomic));
+    }
+
+    private BulkExchangeResponse exchangeBulk(CoinMachine machine, List<ExchangeRequest> requests, boolean atomic) {
+        int size = requests.size();
+        int[] cents = new int[size];
+        boolean[] minimal = new boolean[size];
+        String[] errors = new String[size];
+        for (int n = 0; n < size; n++) {
+            ExchangeRequest request = requests.get(n);
+            minimal[n] = request.isMinimal();
+            try {
+                machine.validateAmount(request.getAmount(), request.isAllowMultipleBills());
+                cents[n] = request.getAmount() * 100;
+            } catch (IllegalArgumentException e) {
+                if (atomic) {
+                    throw new IllegalArgumentException("Exchange #" + n + ": " + e.getMessage());
+                }
+                errors[n] = e.getMessage();
+                cents[n] = -1;
             }
         }
 
-        // Registra o bill recebido
-        registerBill(amount, allowMultipleBills);
+        int[][] plans = new int[size][];
+        Reservation reservation = machine.reserveChanges(cents, minimal, plans, atomic);
+        if (reservation == null) {
+            int failed = 0;
+            while (plans[failed] != null) {
+                failed++;
+            }
+            metrics.recordInsufficient(machine.getId(), requests.get(failed).getAmount(), requests.get(failed).isAllowMultipleBills());
+            rollups.recordInsufficient(machine.getId(), LocalDateTime.now());
+            throw new InsufficientCoinsException("Not enough coins available for exchange #" + failed + ".");
+        }
 
-        int remaining = amount * 100; // converte dólares para centavos
-        Map<Integer, Integer> change = new HashMap<>();
-        int[] coins = minimal ? coinValues : coinValuesMax;
+        LocalDateTime now = LocalDateTime.now();
+        List<BulkExchangeItemResult> results = new ArrayList<>(size);
+        List<ExchangeTransaction> transactions = new ArrayList<>(size);
+        for (int n = 0; n < size; n++) {
+            if (plans[n] == null) {
+                String error = errors[n] != null ? errors[n] : "Not enough coins available for the exchange.";
+                results.add(new BulkExchangeItemResult(n, false, null, error));
+                continue;
+            }
+            CoinChange change = machine.toChange(plans[n]);
+            results.add(new BulkExchangeItemResult(n, true, change, null));
+            transactions.add(newTransaction(machine, requests.get(n).getAmount(), minimal[n], change, now));
+        }
+        try {
+            transactionJournal.appendAll(transactions);
+        } catch (RuntimeException e) {
+            reservation.rollback();
+            throw e;
+        }
 
-        for (int coin : coins) {
-            int available = coinInventory.getOrDefault(coin, 0);
-            int numCoins = Math.min(remaining / coin, available);
-            if (numCoins > 0) {
-                change.put(coin, numCoins);
-                remaining -= numCoins * coin;
-                coinInventory.put(coin, available - numCoins);
-                logger.debug("Used {} coins of {} cents. Remaining in inventory: {}.", numCoins, coin, coinInventory.get(coin));
+        reservation.commit();
+        int accepted = 0;
+        for (int n = 0; n < size; n++) {
+            if (plans[n] != null) {
+                ExchangeRequest request = requests.get(n);
+                machine.registerBill(request.getAmount(), request.isAllowMultipleBills());
+                machine.recordExchange(request.getAmount());
+                inventoryLog.exchanged(machine, request.getAmount(), request.isAllowMultipleBills(), plans[n]);
+                metrics.recordChange(machine.getId(), plans[n]);
+                rollups.recordExchange(machine.getId(), now, request.getAmount(), minimal[n], transactions.get(accepted++).getChange());
+            } else if (errors[n] == null) {
+                metrics.recordInsufficient(machine.getId(), requests.get(n).getAmount(), requests.get(n).isAllowMultipleBills());
+                rollups.recordInsufficient(machine.getId(), now);
             }
         }
+        audit.bulk(machine.getId(), transactions.size(), size - transactions.size());
+        return new BulkExchangeResponse(transactions.size(), size - transactions.size(), results);
+    }
 
-        if (remaining > 0) {
-            String errorMsg = "Not enough coins available for the exchange.";
-            logger.warn(errorMsg);
-            throw new InsufficientCoinsException(errorMsg);
-        } else {
-            String successMsg = "Exchange successful.";
-            logger.info(successMsg);
-            ExchangeTransaction transaction = new ExchangeTransaction();
-            transaction.setAmount(amount);
-            transaction.setMinimal(minimal);
-            transaction.setChange(change);
-            transaction.setTransactionDate(LocalDateTime.now());
-            transactionRepository.save(transaction);
-            return new ExchangeResponse(successMsg, change);
+    private static int coinCount(int[] plan) {
+        int coins = 0;
+        for (int count : plan) {
+            coins += count;
         }
+        return coins;
+    }
+
+    private ExchangeTransaction newTransaction(CoinMachine machine, int amount, boolean minimal,
+                                               Map<Integer, Integer> change, LocalDateTime date) {
+        ExchangeTransaction transaction = new ExchangeTransaction();
+        transaction.setMachineId(machine.getId());
+        transaction.setAmount(amount);
+        transaction.setMinimal(minimal);
+        transaction.setChange(change);
+        transaction.setTransactionDate(date);
+        return transaction;
     }
 
     public Map<String, Object> getStatus() {
+        return getStatus(machineRegistry.getDefault().getId());
+    }
+
+    public Map<String, Object> getStatus(String machineId) {
         Map<String, Object> status = new HashMap<>();
-        status.put("coinInventory", coinInventory);
-        int totalCents = coinInventory.entrySet().stream()
-                .mapToInt(e -> e.getKey() * e.getValue())
-                .sum();
-        status.put("totalValue", "$" + (totalCents / 100.0));
+        CoinInventory coinInventory = machineRegistry.get(machineId).getCoinInventory();
+        InventorySnapshot snapshot = coinInventory.current();
+        status.put("coinInventory", coinInventory.asMap(snapshot));
+        status.put("totalValue", "$" + (snapshot.totalCents() / 100.0));
         return status;
     }
 
+    public Map<String, Object> getStats() {
+        return getStats(machineRegistry.getDefault().getId());
+    }
+
+    /**
+     * Contadores correntes da máquina; nenhuma leitura do histórico.
+     */
+    public Map<String, Object> getStats(String machineId) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        CoinInventory coinInventory = machine.getCoinInventory();
+        InventorySnapshot snapshot = coinInventory.current();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("machineId", machine.getId());
+        stats.put("currency", machine.getCatalog().getCurrency());
+        stats.put("coinInventory", coinInventory.asMap(snapshot));
+        stats.put("totalCents", snapshot.totalCents());
+        stats.put("totalCoins", snapshot.totalCoins());
+        stats.put("billInventory", machine.getBillInventory());
+        stats.put("totalBillsReceived", machine.getTotalBillsReceived());
+        stats.put("exchanges", machine.getStats().getExchanges());
+        stats.put("exchangedAmount", machine.getStats().getExchangedAmount());
+        stats.put("exchangesPerHour", machine.getStats().exchangesPerHour());
+        return stats;
+    }
+
+    /**
+     * Visão agregada da frota, mantida incrementalmente (não percorre as máquinas).
+     */
+    public Map<String, Object> getFleetStatus() {
+        return machineRegistry.getFleet().snapshot();
+    }
+
+    /**
+     * Trocas da máquina por minuto, hora ou dia entre from e to, lidas dos agregados mantidos a cada troca.
+     * Sem to, até agora; sem from, o intervalo padrão da resolução antes de to.
+     */
+    public AnalyticsResponse getAnalytics(String machineId, ExchangeRollups.Resolution resolution,
+                                          LocalDateTime from, LocalDateTime to) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minus(resolution.getDefaultSpan());
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("The analytics range starts after it ends.");
+        }
+        List<AnalyticsBucket> buckets = rollups.query(machine.getId(), resolution, start, end);
+        return new AnalyticsResponse(machine.getId(), resolution.name().toLowerCase(Locale.ROOT), start, end,
+                ExchangeRollups.total(start, buckets), buckets);
+    }
+
     public List<ExchangeTransaction> getTransactionHistory() {
-        return transactionRepository.findAll();
+        return getTransactionHistory(null, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Página do histórico em ordem de id, a partir do cursor afterId (exclusivo).
+     */
+    public List<ExchangeTransaction> getTransactionHistory(Long afterId, int limit) {
+        return filterTransactionHistory(null, null, null, null, null, null, afterId, limit);
     }
 
     public List<ExchangeTransaction> filterTransactionHistory(
@@ -157,22 +399,104 @@ public class ExchangeService {
             Integer minAmount,
             Integer maxAmount,
             Boolean minimal) {
-        List<ExchangeTransaction> transactions = transactionRepository.findAll();
-        return transactions.stream()
-                .filter(t -> startDate == null || !t.getTransactionDate().isBefore(startDate))
-                .filter(t -> endDate == null || !t.getTransactionDate().isAfter(endDate))
-                .filter(t -> minAmount == null || t.getAmount() >= minAmount)
-                .filter(t -> maxAmount == null || t.getAmount() <= maxAmount)
-                .filter(t -> minimal == null || t.isMinimal() == minimal)
-                .collect(Collectors.toList());
+        return filterTransactionHistory(startDate, endDate, minAmount, maxAmount, minimal, null, null, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Filtro do histórico com paginação por cursor: a próxima página começa depois do id do último item
+     * devolvido (ver {@link TransactionStore#find}).
+     */
+    public List<ExchangeTransaction> filterTransactionHistory(
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            Integer minAmount,
+            Integer maxAmount,
+            Boolean minimal,
+            String machineId,
+            Long afterId,
+            int limit) {
+        TransactionFilter filter = new TransactionFilter(startDate, endDate, minAmount, maxAmount, minimal, machineId);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return transactionStore.find(filter, afterId, pageSize);
     }
 
     public BillsInventoryResponse getBillsInventory() {
-        return new BillsInventoryResponse(billInventory, totalBillsReceived);
+        return getBillsInventory(machineRegistry.getDefault().getId());
+    }
+
+    public BillsInventoryResponse getBillsInventory(String machineId) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        return new BillsInventoryResponse(machine.getBillInventory(), machine.getTotalBillsReceived());
+    }
+
+    /**
+     * Versão do estado da máquina (moedas e cédulas), para leituras condicionais.
+     */
+    public long getMachineVersion(String machineId) {
+        return machineRegistry.get(machineId).getVersion();
+    }
+
+    /**
+     * Versão do histórico: muda a cada gravação do journal.
+     */
+    public long getHistoryVersion() {
+        return transactionJournal.version();
     }
 
     public boolean isMachineOperational() {
-        int totalCoins = coinInventory.values().stream().mapToInt(i -> i).sum();
-        return totalCoins > 0;
+        return isMachineOperational(machineRegistry.getDefault().getId());
+    }
+
+    public boolean isMachineOperational(String machineId) {
+        return machineRegistry.get(machineId).getCoinInventory().current().totalCoins() > 0;
+    }
+
+    public static final class Builder {
+        private final CoinProperties coinProperties;
+        private final TransactionStore transactionStore;
+        private TransactionJournal transactionJournal;
+        private MeterRegistry meterRegistry;
+        private ExchangeAudit audit;
+        private InventoryEventStore inventoryLog;
+        private ExchangeRollups rollups;
+
+        private Builder(CoinProperties coinProperties, TransactionStore transactionStore) {
+            this.coinProperties = coinProperties;
+            this.transactionStore = transactionStore;
+        }
+
+        public Builder transactionJournal(TransactionJournal transactionJournal) {
+            this.transactionJournal = transactionJournal;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public Builder audit(ExchangeAudit audit) {
+            this.audit = audit;
+            return this;
+        }
+
+        public Builder inventoryLog(InventoryEventStore inventoryLog) {
+            this.inventoryLog = inventoryLog;
+            return this;
+        }
+
+        public Builder rollups(ExchangeRollups rollups) {
+            this.rollups = rollups;
+            return this;
+        }
+
+        public ExchangeService build() {
+            return new ExchangeService(coinProperties, transactionStore,
+                    transactionJournal != null ? transactionJournal : TransactionJournal.synchronous(transactionStore),
+                    meterRegistry != null ? meterRegistry : new SimpleMeterRegistry(),
+                    audit != null ? audit : new ExchangeAudit(0),
+                    inventoryLog != null ? inventoryLog : InventoryEventStore.disabled(),
+                    rollups != null ? rollups : new ExchangeRollups(new AnalyticsProperties()));
+        }
     }
 }
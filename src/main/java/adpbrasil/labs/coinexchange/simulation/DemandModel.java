@@ -0,0 +1,149 @@
+package adpbrasil.labs.coinexchange.simulation;
+
+import adpbrasil.labs.coinexchange.inventory.ChangeEngine;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Demanda de uma máquina: a distribuição empírica dos pedidos (valor e minimal) e o ritmo de trocas por hora.
+ * Imutável; o sorteio é uma busca binária nas frequências acumuladas e pode ser feito por várias threads,
+ * cada uma com o próprio gerador.
+ */
+public final class DemandModel {
+
+    public static final String HISTORY = "history";
+    public static final String UNIFORM = "uniform";
+
+    private final String source;
+    private final int[] amounts;
+    private final boolean[] minimal;
+    // Frequência acumulada de cada pedido; o último elemento é o total
+    private final long[] cumulative;
+    private final long observed;
+    private final double exchangesPerHour;
+
+    private DemandModel(String source, Map<Long, Long> counts, long observed, double exchangesPerHour) {
+        if (counts.isEmpty() || !(exchangesPerHour > 0)) {
+            throw new IllegalArgumentException("A demand model needs at least one request and a positive exchange rate.");
+        }
+        this.source = source;
+        this.amounts = new int[counts.size()];
+        this.minimal = new boolean[counts.size()];
+        this.cumulative = new long[counts.size()];
+        int i = 0;
+        long total = 0;
+        for (Map.Entry<Long, Long> request : counts.entrySet()) {
+            amounts[i] = (int) (request.getKey() >> 1);
+            minimal[i] = (request.getKey() & 1) == 1;
+            total += request.getValue();
+            cumulative[i] = total;
+            i++;
+        }
+        this.observed = observed;
+        this.exchangesPerHour = exchangesPerHour;
+    }
+
+    /**
+     * Demanda aprendida das trocas da máquina a partir de since; o ritmo é o número de trocas dividido pelo
+     * tempo entre a primeira delas e until (no mínimo uma hora).
+     *
+     * @return null se a máquina não tem trocas no período
+     */
+    public static DemandModel learn(TransactionStore store, String machineId, LocalDateTime since, LocalDateTime until)
+            throws IOException {
+        Map<Long, Long> counts = new TreeMap<>();
+        LocalDateTime[] first = new LocalDateTime[1];
+        // Conta só as trocas que entram no modelo; o total do forEach inclui as descartadas abaixo
+        long[] observed = {0};
+        TransactionFilter filter = new TransactionFilter(since, until, null, null, null, machineId);
+        store.forEach(filter, tx -> {
+            // Trocas gravadas antes do limite de valor não são mais aceitas; ficam fora do modelo
+            if ((long) tx.getAmount() * 100 > ChangeEngine.MAX_CENTS) {
+                return;
+            }
+            counts.merge(key(tx.getAmount(), tx.isMinimal()), 1L, Long::sum);
+            observed[0]++;
+            if (tx.getTransactionDate() != null && (first[0] == null || tx.getTransactionDate().isBefore(first[0]))) {
+                first[0] = tx.getTransactionDate();
+            }
+        });
+        if (counts.isEmpty()) {
+            return null;
+        }
+        Duration span = first[0] != null ? Duration.between(first[0], until) : Duration.ZERO;
+        double hours = Math.max(1.0, span.toMillis() / 3_600_000.0);
+        return new DemandModel(HISTORY, counts, observed[0], observed[0] / hours);
+    }
+
+    /**
+     * Cada cédula com a mesma chance, sempre com o mínimo de moedas.
+     */
+    public static DemandModel uniform(int[] bills, double exchangesPerHour) {
+        Map<Long, Long> counts = new TreeMap<>();
+        for (int bill : bills) {
+            counts.put(key(bill, true), 1L);
+        }
+        return new DemandModel(UNIFORM, counts, 0, exchangesPerHour);
+    }
+
+    /**
+     * Índice de um pedido sorteado com a frequência observada.
+     */
+    public int sample(SplittableRandom random) {
+        long target = random.nextLong(cumulative[cumulative.length - 1]);
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] > target) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Horas até a próxima troca, com chegadas de Poisson no ritmo do modelo.
+     */
+    public double nextInterval(SplittableRandom random) {
+        return -Math.log(1.0 - random.nextDouble()) / exchangesPerHour;
+    }
+
+    public int amount(int request) {
+        return amounts[request];
+    }
+
+    public boolean minimal(int request) {
+        return minimal[request];
+    }
+
+    public int requests() {
+        return amounts.length;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getObserved() {
+        return observed;
+    }
+
+    public double getExchangesPerHour() {
+        return exchangesPerHour;
+    }
+
+    // Valor e minimal num long, para agrupar sem criar objetos por transação
+    private static long key(int amount, boolean minimal) {
+        return ((long) amount << 1) | (minimal ? 1 : 0);
+    }
+}
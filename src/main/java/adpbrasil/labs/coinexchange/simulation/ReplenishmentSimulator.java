@@ -0,0 +1,279 @@
+package adpbrasil.labs.coinexchange.simulation;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.config.SimulationProperties;
+import adpbrasil.labs.coinexchange.dto.SimulationResponse;
+import adpbrasil.labs.coinexchange.fleet.CoinMachine;
+import adpbrasil.labs.coinexchange.fleet.MachineRegistry;
+import adpbrasil.labs.coinexchange.inventory.ChangeEngine;
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import adpbrasil.labs.coinexchange.inventory.DenominationCatalog;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulação de Monte Carlo do estoque de uma máquina, para planejar a reposição.
+ *
+ * Cada simulação parte do mesmo estoque e executa trocas sintéticas, sorteadas do {@link DemandModel} da
+ * máquina (cédulas e minimal do histórico, chegadas de Poisson no ritmo observado), pelo mesmo
+ * {@link ChangeEngine} da troca real, até a primeira troca sem troco possível: o ponto em que a máquina
+ * começaria a responder InsufficientCoinsException. Depois, com estoque ilimitado, mede quantas moedas de
+ * cada denominação a janela alvo consome; o percentil confidence desse consumo é o estoque recomendado.
+ *
+ * As simulações são divididas em lotes num ForkJoinPool próprio; cada lote tem o próprio gerador (derivado
+ * da seed por split, então o resultado com seed é reproduzível) e cada simulação a própria cópia do estoque,
+ * sem nada compartilhado além do modelo e do motor de troco, que são só de leitura.
+ */
+@Component
+public class ReplenishmentSimulator implements AutoCloseable {
+
+    static final double[] PERCENTILES = {0.05, 0.25, 0.50, 0.75, 0.95};
+    // Simulações por tarefa antes de parar de dividir
+    private static final int BATCH = 16;
+    // Estoque "ilimitado" da medição de consumo (não é decrementado); o motor sempre acha o plano sem faltas
+    private static final int UNLIMITED = Integer.MAX_VALUE / 2;
+
+    private final SimulationProperties properties;
+    private final CoinProperties coinProperties;
+    private final MachineRegistry machineRegistry;
+    private final TransactionStore transactionStore;
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public ReplenishmentSimulator(SimulationProperties properties, CoinProperties coinProperties,
+                                  ExchangeService exchangeService, TransactionStore transactionStore) {
+        this(properties, coinProperties, exchangeService.getMachineRegistry(), transactionStore);
+    }
+
+    public ReplenishmentSimulator(SimulationProperties properties, CoinProperties coinProperties,
+                                  MachineRegistry machineRegistry, TransactionStore transactionStore) {
+        this.properties = properties;
+        this.coinProperties = coinProperties;
+        this.machineRegistry = machineRegistry;
+        this.transactionStore = transactionStore;
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Simula a máquina com a demanda do histórico dela.
+     *
+     * @param runs            simulações; null usa coin.simulation.default-runs
+     * @param initialQuantity estoque inicial de cada moeda; null usa coin.initialQuantity
+     * @param fromCurrent     parte do estoque atual da máquina em vez de initialQuantity
+     * @param targetHours     janela alvo da reposição recomendada; null usa coin.simulation.target-window
+     * @param seed            seed do gerador, para repetir uma simulação; null sorteia
+     */
+    public SimulationResponse simulate(String machineId, Integer runs, Integer initialQuantity, boolean fromCurrent,
+                                       Double targetHours, Long seed) {
+        CoinMachine machine = machineRegistry.get(machineId);
+        int count = runs != null ? runs : properties.getDefaultRuns();
+        if (count < 1 || count > properties.getMaxRuns()) {
+            throw new IllegalArgumentException("runs must be between 1 and " + properties.getMaxRuns() + ".");
+        }
+        double target = targetHours != null ? targetHours : properties.getTargetWindow().toMillis() / 3_600_000.0;
+        if (!(target > 0)) {
+            throw new IllegalArgumentException("targetHours must be positive.");
+        }
+        CoinInventory inventory = machine.getCoinInventory();
+        int[] start;
+        if (fromCurrent) {
+            start = inventory.snapshot();
+        } else {
+            int quantity = initialQuantity != null ? initialQuantity : coinProperties.getInitialQuantity();
+            if (quantity < 0) {
+                throw new IllegalArgumentException("initialQuantity must not be negative.");
+            }
+            start = new int[inventory.size()];
+            for (int i = 0; i < start.length; i++) {
+                start[i] = Math.min(quantity, inventory.capacity(i));
+            }
+        }
+        return simulate(machine, demand(machine), start, count, target, seed != null ? seed : System.nanoTime());
+    }
+
+    SimulationResponse simulate(CoinMachine machine, DemandModel demand, int[] start, int runs, double targetHours, long seed) {
+        long started = System.nanoTime();
+        DenominationCatalog catalog = machine.getCatalog();
+        Scenario scenario = new Scenario(new ChangeEngine(catalog.coins(), catalog.bills()), demand, start,
+                targetHours, properties.getMaxExchangesPerRun(), runs);
+        pool.invoke(new Batch(scenario, 0, runs, new SplittableRandom(seed)));
+
+        CoinInventory inventory = machine.getCoinInventory();
+        int denominations = start.length;
+        Map<Integer, Integer> startingStock = new LinkedHashMap<>();
+        Map<Integer, Integer> recommended = new LinkedHashMap<>();
+        Map<Integer, Integer> refill = new LinkedHashMap<>();
+        long[] column = new long[runs];
+        for (int i = 0; i < denominations; i++) {
+            for (int run = 0; run < runs; run++) {
+                column[run] = scenario.consumed[run * denominations + i];
+            }
+            Arrays.sort(column);
+            int stock = (int) Math.min(column[rank(properties.getConfidence(), runs)], inventory.capacity(i));
+            int coin = inventory.denomination(i);
+            startingStock.put(coin, start[i]);
+            recommended.put(coin, stock);
+            refill.put(coin, Math.max(0, stock - start[i]));
+        }
+
+        long simulated = 0;
+        int depleted = 0;
+        for (int run = 0; run < runs; run++) {
+            simulated += scenario.exchanges[run] + scenario.windowExchanges[run];
+            if (!Double.isNaN(scenario.hours[run])) {
+                depleted++;
+            }
+        }
+        // Simulação que não esgotou fica no fim da ordem (NaN é o maior double no sort)
+        double[] hours = scenario.hours.clone();
+        Arrays.sort(hours);
+        long[] exchanges = scenario.exchanges.clone();
+        for (int run = 0; run < runs; run++) {
+            if (Double.isNaN(scenario.hours[run])) {
+                exchanges[run] = Long.MAX_VALUE;
+            }
+        }
+        Arrays.sort(exchanges);
+        Map<String, Double> hoursPercentiles = new LinkedHashMap<>();
+        Map<String, Long> exchangePercentiles = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            String label = "p" + Math.round(percentile * 100);
+            int index = rank(percentile, runs);
+            hoursPercentiles.put(label, Double.isNaN(hours[index]) ? null : hours[index]);
+            exchangePercentiles.put(label, exchanges[index] == Long.MAX_VALUE ? null : exchanges[index]);
+        }
+
+        return new SimulationResponse(machine.getId(), demand.getSource(), demand.getObserved(), demand.getExchangesPerHour(),
+                runs, simulated, (System.nanoTime() - started) / 1_000_000, startingStock, depleted,
+                hoursPercentiles, exchangePercentiles, targetHours, properties.getConfidence(), recommended, refill);
+    }
+
+    private DemandModel demand(CoinMachine machine) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            DemandModel learned = DemandModel.learn(transactionStore, machine.getId(), now.minus(properties.getHistoryWindow()), now);
+            if (learned != null) {
+                return learned;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the transaction history of machine " + machine.getId() + ".", e);
+        }
+        return DemandModel.uniform(machine.getCatalog().bills(), properties.getDefaultExchangesPerHour());
+    }
+
+    // Índice do percentil (nearest-rank) num array ordenado de size elementos
+    private static int rank(double percentile, int size) {
+        return Math.min(size - 1, Math.max(0, (int) Math.ceil(percentile * size) - 1));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Entrada comum e resultados por simulação; cada simulação escreve só nas próprias posições.
+     */
+    private static final class Scenario {
+        private final ChangeEngine engine;
+        private final DemandModel demand;
+        private final int[] start;
+        private final double targetHours;
+        private final int maxExchanges;
+        // Horas e trocas até a primeira falta; NaN em hours quando não esgotou em maxExchanges
+        private final double[] hours;
+        private final long[] exchanges;
+        private final long[] windowExchanges;
+        // Moedas consumidas na janela alvo, runs x denominações
+        private final long[] consumed;
+
+        private Scenario(ChangeEngine engine, DemandModel demand, int[] start, double targetHours, int maxExchanges, int runs) {
+            this.engine = engine;
+            this.demand = demand;
+            this.start = start;
+            this.targetHours = targetHours;
+            this.maxExchanges = maxExchanges;
+            this.hours = new double[runs];
+            this.exchanges = new long[runs];
+            this.windowExchanges = new long[runs];
+            this.consumed = new long[runs * start.length];
+        }
+
+        private void run(int index, SplittableRandom random) {
+            int[] stock = start.clone();
+            double elapsed = 0;
+            long count = 0;
+            hours[index] = Double.NaN;
+            while (count < maxExchanges) {
+                elapsed += demand.nextInterval(random);
+                int request = demand.sample(random);
+                int[] plan = engine.plan(demand.amount(request) * 100, stock, demand.minimal(request));
+                if (plan == null) {
+                    hours[index] = elapsed;
+                    break;
+                }
+                for (int i = 0; i < stock.length; i++) {
+                    stock[i] -= plan[i];
+                }
+                count++;
+            }
+            exchanges[index] = count;
+
+            Arrays.fill(stock, UNLIMITED);
+            int offset = index * stock.length;
+            long inWindow = 0;
+            for (double t = demand.nextInterval(random); t <= targetHours && inWindow < maxExchanges; t += demand.nextInterval(random)) {
+                int request = demand.sample(random);
+                int[] plan = engine.plan(demand.amount(request) * 100, stock, demand.minimal(request));
+                for (int i = 0; i < stock.length; i++) {
+                    consumed[offset + i] += plan[i];
+                }
+                inWindow++;
+            }
+            windowExchanges[index] = inWindow;
+        }
+    }
+
+    private static final class Batch extends RecursiveAction {
+        private final Scenario scenario;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        private Batch(Scenario scenario, int from, int to, SplittableRandom random) {
+            this.scenario = scenario;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH) {
+                for (int run = from; run < to; run++) {
+                    scenario.run(run, random);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            // O split acontece antes do fork: a árvore de geradores não depende de qual thread roda cada lote
+            Batch left = new Batch(scenario, from, middle, random.split());
+            Batch right = new Batch(scenario, middle, to, random);
+            invokeAll(left, right);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+-- Tabela do histórico para a variante reativa (no servlet o Hibernate cria a mesma tabela a partir da entidade)
+CREATE TABLE IF NOT EXISTS exchange_transaction (
+    id               BIGINT AUTO_INCREMENT PRIMARY KEY,
+    machine_id       VARCHAR(255),
+    amount           INT     NOT NULL,
+    minimal          BOOLEAN NOT NULL,
+    change_coins     VARCHAR(255),
+    transaction_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_exchange_transaction_date ON exchange_transaction (transaction_date, id);
+CREATE INDEX IF NOT EXISTS idx_exchange_transaction_amount ON exchange_transaction (amount, id);
+CREATE INDEX IF NOT EXISTS idx_exchange_transaction_machine ON exchange_transaction (machine_id, id);
@@ -0,0 +1,102 @@
+package adpbrasil.labs.coinexchange.analytics;
+
+import adpbrasil.labs.coinexchange.config.AnalyticsProperties;
+import adpbrasil.labs.coinexchange.dto.AnalyticsBucket;
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExchangeRollupsTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 10, 0, 30);
+
+    @Test
+    public void testBucketsPerResolution() {
+        ExchangeRollups rollups = new ExchangeRollups(new AnalyticsProperties());
+        rollups.recordExchange("a", T0, 10, true, Map.of(25, 40));
+        rollups.recordExchange("a", T0.plusSeconds(10), 5, false, Map.of(25, 12, 10, 20));
+        rollups.recordExchange("a", T0.plusMinutes(1), 1, false, Map.of(1, 100));
+        rollups.recordInsufficient("a", T0.plusMinutes(1));
+        rollups.recordExchange("a", T0.plusHours(2), 2, true, Map.of(25, 8));
+        rollups.recordExchange("b", T0, 100, true, Map.of(25, 400));
+
+        List<AnalyticsBucket> minutes = rollups.query("a", ExchangeRollups.Resolution.MINUTE, T0, T0.plusMinutes(59));
+        assertEquals(2, minutes.size());
+        AnalyticsBucket first = minutes.get(0);
+        assertEquals(T0.withSecond(0), first.getStart());
+        assertEquals(2, first.getExchanges());
+        assertEquals(15, first.getAmount());
+        assertEquals(1, first.getMinimalExchanges());
+        assertEquals(1, first.getMaximalExchanges());
+        assertEquals(Map.of(25, 52L, 10, 20L), first.getCoins());
+        assertEquals(1, minutes.get(1).getInsufficientCoins());
+
+        List<AnalyticsBucket> hours = rollups.query("a", ExchangeRollups.Resolution.HOUR, T0, T0.plusHours(3));
+        assertEquals(2, hours.size());
+        assertEquals(3, hours.get(0).getExchanges());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 12, 0), hours.get(1).getStart());
+
+        List<AnalyticsBucket> days = rollups.query("a", ExchangeRollups.Resolution.DAY, T0, T0);
+        assertEquals(1, days.size());
+        AnalyticsBucket total = ExchangeRollups.total(T0, days);
+        assertEquals(4, total.getExchanges());
+        assertEquals(18, total.getAmount());
+        assertEquals(1, total.getInsufficientCoins());
+        assertEquals(Map.of(25, 60L, 10, 20L, 1, 100L), total.getCoins());
+
+        assertTrue(rollups.query("unknown", ExchangeRollups.Resolution.DAY, T0, T0).isEmpty());
+    }
+
+    @Test
+    public void testBucketsOutsideRetentionAreDropped() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.setMinuteRetention(Duration.ofMinutes(10));
+        ExchangeRollups rollups = new ExchangeRollups(properties);
+        for (int minute = 0; minute < 30; minute++) {
+            rollups.recordExchange("a", T0.plusMinutes(minute), 1, true, Map.of(25, 4));
+        }
+
+        List<AnalyticsBucket> minutes = rollups.query("a", ExchangeRollups.Resolution.MINUTE, T0, T0.plusHours(1));
+        assertEquals(11, minutes.size());
+        assertEquals(T0.plusMinutes(19).withSecond(0), minutes.get(0).getStart());
+        // As outras resoluções mantêm tudo
+        assertEquals(30, rollups.query("a", ExchangeRollups.Resolution.HOUR, T0, T0.plusHours(1)).get(0).getExchanges());
+    }
+
+    @Test
+    public void testRebuildFromHistory() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        TransactionStore store = mock(TransactionStore.class);
+        when(store.forEach(any(), any())).thenAnswer(invocation -> {
+            TransactionStore.TransactionVisitor visitor = invocation.getArgument(1);
+            visitor.visit(new ExchangeTransaction(1L, "a", 10, true, Map.of(25, 40), now));
+            visitor.visit(new ExchangeTransaction(2L, "a", 5, false, Map.of(25, 20), now));
+            // Transações antigas, sem máquina, não entram
+            visitor.visit(new ExchangeTransaction(3L, null, 5, false, Map.of(25, 20), now));
+            return 3L;
+        });
+        ExchangeRollups rollups = new ExchangeRollups(new AnalyticsProperties(), store);
+        rollups.start();
+
+        AnalyticsBucket total = ExchangeRollups.total(now, rollups.query("a", ExchangeRollups.Resolution.HOUR, now, now));
+        assertEquals(2, total.getExchanges());
+        assertEquals(15, total.getAmount());
+        assertEquals(Map.of(25, 60L), total.getCoins());
+    }
+
+    @Test
+    public void testUnknownResolutionIsRejected() {
+        assertEquals(ExchangeRollups.Resolution.MINUTE, ExchangeRollups.Resolution.parse("Minute"));
+        assertThrows(IllegalArgumentException.class, () -> ExchangeRollups.Resolution.parse("week"));
+    }
+}
@@ -0,0 +1,73 @@
+package adpbrasil.labs.coinexchange.audit;
+
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExchangeAuditTest {
+
+    private Logger logger;
+    private Level previousLevel;
+    private ListAppender<ILoggingEvent> appender;
+
+    @BeforeEach
+    public void setUp() {
+        logger = (Logger) LoggerFactory.getLogger(ExchangeAudit.LOGGER_NAME);
+        previousLevel = logger.getLevel();
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+        logger.setLevel(previousLevel);
+    }
+
+    @Test
+    public void testExchangeEventIsKeyValue() {
+        logger.setLevel(Level.INFO);
+        new ExchangeAudit(1).exchange("kiosk-1", 10, true, false, 40);
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        assertEquals("exchange", event.getMessage());
+        assertEquals("machine", event.getKeyValuePairs().get(0).key);
+        assertEquals("kiosk-1", event.getKeyValuePairs().get(0).value);
+        assertEquals(40, event.getKeyValuePairs().get(4).value);
+    }
+
+    @Test
+    public void testPlanEventsAreSampledAndOnlyAtDebug() {
+        CoinInventory inventory = new CoinInventory(new int[]{25, 10, 5, 1}, 10);
+        int[] plan = {3, 1, 1, 3};
+
+        logger.setLevel(Level.INFO);
+        new ExchangeAudit(1).plan("default", 1, inventory, plan);
+        assertTrue(appender.list.isEmpty());
+
+        logger.setLevel(Level.DEBUG);
+        new ExchangeAudit(0).plan("default", 1, inventory, plan);
+        assertTrue(appender.list.isEmpty());
+
+        new ExchangeAudit(1).plan("default", 1, inventory, plan);
+        assertEquals(1, appender.list.size());
+        assertEquals("25:3,10:1,5:1,1:3", appender.list.get(0).getKeyValuePairs().get(2).value);
+
+        ExchangeAudit sampled = new ExchangeAudit(1000);
+        for (int i = 0; i < 1000; i++) {
+            sampled.plan("default", 1, inventory, plan);
+        }
+        // 1 em 1000 em média; com 1000 chamadas a chance de passar de 10 é desprezível
+        assertTrue(appender.list.size() - 1 < 10);
+    }
+}
@@ -1,29 +1,46 @@
 package adpbrasil.labs.coinexchange.controller;
 
+import adpbrasil.labs.coinexchange.analytics.ExchangeRollups;
 import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.dto.AnalyticsBucket;
 import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
 import adpbrasil.labs.coinexchange.repository.ExchangeTransactionRepository;
 import adpbrasil.labs.coinexchange.service.ExchangeService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability
 public class ExchangeControllerIntegrationTest {
 
     @Autowired
@@ -56,6 +73,39 @@ public class ExchangeControllerIntegrationTest {
                 .andExpect(jsonPath("$.message").value("Exchange successful."));
     }
 
+    @Test
+    @WithMockUser
+    public void testBulkExchangeEndpoint() throws Exception {
+        String json = "{ \"atomic\": false, \"exchanges\": ["
+                + "{ \"amount\": 10 }, { \"amount\": 15, \"allowMultipleBills\": true }, { \"amount\": 3 } ] }";
+        mockMvc.perform(post("/api/exchange/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.results[0].change.25").value(40))
+                .andExpect(jsonPath("$.results[2].success").value(false));
+        assertEquals(2, transactionRepository.count());
+
+        mockMvc.perform(post("/api/exchange/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"exchanges\": [] }"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    public void testPrometheusEndpointExposesExchangeMetrics() throws Exception {
+        exchangeService.exchange(10, true, false);
+        String body = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(body.contains("coin_exchange_seconds_bucket{"));
+        assertTrue(body.contains("coin_inventory_coins{currency=\"USD\",denomination=\"25\",machine=\"default\"} 60.0"));
+        assertTrue(body.contains("coin_change_coins_count{machine=\"default\"}"));
+    }
+
     @Test
     @WithMockUser
     public void testExchangeEndpointMultipleBillsAllowed() throws Exception {
@@ -136,6 +186,136 @@ public class ExchangeControllerIntegrationTest {
                 .andExpect(jsonPath("$[?(@.amount==20)]").exists());
     }
 
+    @Test
+    @WithMockUser
+    public void testHistoryPaginationCursor() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            exchangeService.exchange(1, true, false);
+        }
+
+        String cursor = mockMvc.perform(get("/api/exchange/history").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/api/exchange/history").param("limit", "2").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    @WithMockUser
+    public void testExportHistoryAsNdjsonAndCsv() throws Exception {
+        exchangeService.exchange(10, true, false);
+        exchangeService.exchange(5, false, false);
+
+        MvcResult ndjson = mockMvc.perform(get("/api/exchange/history/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.trim().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"amount\":10"));
+
+        MvcResult csv = mockMvc.perform(get("/api/exchange/history/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csvBody = mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] rows = csvBody.trim().split("\n");
+        assertEquals(3, rows.length);
+        assertEquals("id,machineId,amount,minimal,transactionDate,change", rows[0]);
+        assertTrue(rows[1].endsWith(",25:40"));
+    }
+
+    @Test
+    @WithMockUser
+    public void testCsvExportQuotesMachineIds() throws Exception {
+        transactionRepository.save(new ExchangeTransaction(null, "loja,\"norte\"\n2", 5, false,
+                Map.of(25, 20), LocalDateTime.now()));
+
+        MvcResult csv = mockMvc.perform(get("/api/exchange/history/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String csvBody = mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(csvBody.contains(",\"loja,\"\"norte\"\"\n2\",5,false,"));
+    }
+
+    @Test
+    @WithMockUser
+    public void testExportHistoryGzip() throws Exception {
+        exchangeService.exchange(10, true, false);
+
+        MvcResult result = mockMvc.perform(get("/api/exchange/history/export").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] compressed = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(body.contains("\"machineId\":\"default\""));
+        }
+    }
+
+    @Test
+    @WithMockUser
+    public void testIdempotencyKeyReplaysTheFirstExchange() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String json = "{ \"amount\": 10, \"allowMultipleBills\": false, \"minimal\": true }";
+        for (String replayed : new String[]{"false", "true"}) {
+            mockMvc.perform(post("/api/exchange")
+                            .header("Idempotency-Key", key)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(json))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Idempotency-Replayed", replayed))
+                    .andExpect(jsonPath("$.change.25").value(40));
+        }
+        // Só a primeira requisição entregou moedas
+        assertEquals(60, exchangeService.getInventory().get(25));
+
+        mockMvc.perform(post("/api/exchange")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"amount\": 5, \"allowMultipleBills\": false, \"minimal\": true }"))
+                .andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(post("/api/exchange")
+                        .header("Idempotency-Key", " ")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    public void testSimulationEndpoint() throws Exception {
+        mockMvc.perform(post("/api/exchange")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"amount\": 10, \"allowMultipleBills\": false, \"minimal\": true }"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/exchange/simulation").param("runs", "50").param("seed", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.demandSource").value("history"))
+                .andExpect(jsonPath("$.runs").value(50))
+                .andExpect(jsonPath("$.startingStock.25").value(100))
+                .andExpect(jsonPath("$.depletedRuns").value(50))
+                .andExpect(jsonPath("$.hoursToDepletion.p50").isNumber())
+                .andExpect(jsonPath("$.recommendedStock.25").isNumber());
+
+        mockMvc.perform(get("/api/exchange/simulation").param("runs", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser
     public void testInventoryEndpoint() throws Exception {
@@ -235,6 +415,124 @@ public class ExchangeControllerIntegrationTest {
                 .andExpect(jsonPath("$.status").value("Machine out of coins"));
     }
 
+    @Test
+    @WithMockUser
+    public void testMachineScopedEndpoints() throws Exception {
+        String json = "{ \"amount\": 10, \"allowMultipleBills\": false, \"minimal\": true }";
+        mockMvc.perform(post("/api/exchange/machines/default")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Exchange successful."));
+
+        mockMvc.perform(get("/api/exchange/machines/default/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.coinInventory['25']").value(60));
+
+        mockMvc.perform(get("/api/exchange/machines/default/bills"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.billInventory['10']").value(1));
+
+        mockMvc.perform(get("/api/exchange/fleet"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.machines").value(1))
+                .andExpect(jsonPath("$.currencies.USD.totalCents").value(3100));
+    }
+
+    @Test
+    @WithMockUser
+    public void testUnknownMachineReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/exchange/machines/unknown-kiosk/status"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    @WithMockUser
+    public void testAnalyticsEndpointCountsExchangesAndFailures() throws Exception {
+        // Os agregados vivem no contexto compartilhado pelos testes: compara com o que já havia
+        AnalyticsBucket before = exchangeService.getAnalytics("default", ExchangeRollups.Resolution.DAY, null, null).getTotals();
+        exchangeService.exchange(10, true, false);
+        exchangeService.exchange(5, false, false);
+        coinInventoryExhaustion();
+        mockMvc.perform(post("/api/exchange")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"amount\": 10, \"allowMultipleBills\": false, \"minimal\": true }"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/exchange/analytics").param("resolution", "day"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.machineId").value("default"))
+                .andExpect(jsonPath("$.resolution").value("day"))
+                .andExpect(jsonPath("$.totals.exchanges").value(before.getExchanges() + 2))
+                .andExpect(jsonPath("$.totals.amount").value(before.getAmount() + 15))
+                .andExpect(jsonPath("$.totals.minimalExchanges").value(before.getMinimalExchanges() + 1))
+                .andExpect(jsonPath("$.totals.maximalExchanges").value(before.getMaximalExchanges() + 1))
+                .andExpect(jsonPath("$.totals.insufficientCoins").value(before.getInsufficientCoins() + 1));
+
+        String from = LocalDateTime.now().minusMinutes(5).format(DateTimeFormatter.ISO_DATE_TIME);
+        mockMvc.perform(get("/api/exchange/machines/default/analytics").param("resolution", "minute").param("from", from))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buckets").isNotEmpty());
+
+        mockMvc.perform(get("/api/exchange/analytics").param("resolution", "week"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    public void testEventStreamStartsWithFullInventory() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/exchange/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // O primeiro evento sai pela thread de envio do hub, não pela thread da requisição
+        long deadline = System.currentTimeMillis() + 5000;
+        while (result.getResponse().getContentAsString().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.startsWith("event:inventory\n"), body);
+        assertTrue(body.contains("\"machineId\":\"default\""), body);
+        assertTrue(body.contains("\"operational\":true"), body);
+    }
+
+    @Test
+    @WithMockUser
+    public void testConditionalGetReturnsNotModifiedUntilStateChanges() throws Exception {
+        String etag = mockMvc.perform(get("/api/exchange/inventory"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inventory['25']").value(100))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/api/exchange/inventory").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        exchangeService.exchange(10, true, false);
+        String changed = mockMvc.perform(get("/api/exchange/inventory").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inventory['25']").value(60))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, changed);
+
+        // Cédulas e status usam a mesma versão da máquina
+        mockMvc.perform(get("/api/exchange/bills").header("If-None-Match", changed))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/exchange/machines/default/status").header("If-None-Match", changed))
+                .andExpect(status().isNotModified());
+
+        String history = mockMvc.perform(get("/api/exchange/history"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/exchange/history").header("If-None-Match", history))
+                .andExpect(status().isNotModified());
+        exchangeService.exchange(5, true, false);
+        mockMvc.perform(get("/api/exchange/history").header("If-None-Match", history))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].amount").value(10));
+    }
+
     private void coinInventoryExhaustion() {
         // Remove todas as moedas de cada tipo
         Map<Integer, Integer> inv = exchangeService.getInventory();
@@ -0,0 +1,46 @@
+package adpbrasil.labs.coinexchange.dto;
+
+import adpbrasil.labs.coinexchange.inventory.CoinInventory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExchangeResponseSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testCompactChangeIsWrittenInDenominationOrder() throws Exception {
+        CoinInventory inventory = new CoinInventory(new int[]{25, 10, 5, 1}, 10);
+        ExchangeResponse response = new ExchangeResponse(ExchangeResponse.SUCCESS, inventory.toChange(new int[]{3, 1, 0, 2}));
+        assertEquals("{\"message\":\"Exchange successful.\",\"change\":{\"25\":3,\"10\":1,\"1\":2}}",
+                objectMapper.writeValueAsString(response));
+    }
+
+    @Test
+    public void testSameJsonAsTheDefaultSerializer() throws Exception {
+        Map<Integer, Integer> change = new LinkedHashMap<>();
+        change.put(1000, 2);
+        change.put(5, 1);
+        String json = objectMapper.writeValueAsString(new ExchangeResponse("Quote \"me\" ção", change));
+        assertEquals("{\"message\":\"Quote \\\"me\\\" ção\",\"change\":{\"1000\":2,\"5\":1}}", json);
+
+        ExchangeResponse parsed = objectMapper.readValue(json, ExchangeResponse.class);
+        assertEquals(change, parsed.getChange());
+        assertEquals("{\"message\":null,\"change\":null}", objectMapper.writeValueAsString(new ExchangeResponse()));
+    }
+
+    @Test
+    public void testBulkItemChange() throws Exception {
+        CoinInventory inventory = new CoinInventory(new int[]{25, 10, 5, 1}, 10);
+        BulkExchangeItemResult item = new BulkExchangeItemResult(0, true, inventory.toChange(new int[]{4, 0, 0, 0}), null);
+        Map<String, Object> json = objectMapper.readValue(objectMapper.writeValueAsString(item), new TypeReference<>() {
+        });
+        assertEquals(Map.of("25", 4), json.get("change"));
+    }
+}
@@ -0,0 +1,90 @@
+package adpbrasil.labs.coinexchange.fleet;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.exception.MachineNotFoundException;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MachineRegistryTest {
+
+    private CoinProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        CoinProperties.Currency brl = new CoinProperties.Currency();
+        brl.setCoins(List.of(100, 50, 25, 10, 5));
+        brl.setBills(List.of(2, 5, 10, 20, 50, 100, 200));
+        properties = new CoinProperties();
+        properties.getCurrencies().put("BRL", brl);
+        properties.getMachines().put("kiosk-1", "USD");
+        properties.getMachines().put("kiosk-2", "USD");
+        properties.getMachines().put("kiosk-3", "BRL");
+    }
+
+    @Test
+    public void testDefaultRegistryHasSingleMachine() {
+        MachineRegistry registry = new MachineRegistry(new CoinProperties());
+        assertEquals(1, registry.getMachines().size());
+        assertEquals(MachineRegistry.DEFAULT_MACHINE, registry.getDefault().getId());
+    }
+
+    @Test
+    public void testUnknownMachineIsRejected() {
+        MachineRegistry registry = new MachineRegistry(properties);
+        assertThrows(MachineNotFoundException.class, () -> registry.get("missing"));
+    }
+
+    @Test
+    public void testIdMustBeAPathSegment() {
+        // Rotas de máquina ficam sob /machines/{id}: nomes de rota são ids válidos
+        properties.getMachines().put("status", "USD");
+        assertEquals("status", new MachineRegistry(properties).get("status").getId());
+        properties.getMachines().put("a/b", "USD");
+        assertThrows(IllegalStateException.class, () -> new MachineRegistry(properties));
+    }
+
+    @Test
+    public void testMachinesAreIndependentAndFleetIsIncremental() {
+        ExchangeService service = ExchangeService.builder(properties, Mockito.mock(TransactionStore.class)).build();
+
+        service.exchange("kiosk-1", 10, true, false);
+        service.exchange("kiosk-3", 2, true, false);
+        service.addCoins("kiosk-2", 25, 5);
+
+        assertEquals(60, service.getInventory("kiosk-1").get(25));
+        assertEquals(105, service.getInventory("kiosk-2").get(25));
+        assertEquals(98, service.getInventory("kiosk-3").get(100));
+        assertTrue(service.getBillsInventory("kiosk-2").getBillInventory().isEmpty());
+
+        assertEquals(3, service.getFleetStatus().get("machines"));
+        Map<String, Object> usd = currencyTotals(service, "USD");
+        @SuppressWarnings("unchecked")
+        Map<Integer, Long> usdCoins = (Map<Integer, Long>) usd.get("coinInventory");
+        assertEquals(60L + 105L, usdCoins.get(25));
+        assertEquals(2L * 4100 + 5 * 25 - 1000, usd.get("totalCents"));
+        @SuppressWarnings("unchecked")
+        Map<Integer, Long> brlBills = (Map<Integer, Long>) currencyTotals(service, "BRL").get("billInventory");
+        assertEquals(1L, brlBills.get(2));
+
+        service.resetInventory("kiosk-3");
+        Map<String, Object> brl = currencyTotals(service, "BRL");
+        assertEquals(100L * (100 + 50 + 25 + 10 + 5), brl.get("totalCents"));
+        @SuppressWarnings("unchecked")
+        Map<Integer, Long> brlBillsAfterReset = (Map<Integer, Long>) brl.get("billInventory");
+        assertEquals(0L, brlBillsAfterReset.get(2));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> currencyTotals(ExchangeService service, String currency) {
+        Map<String, Object> currencies = (Map<String, Object>) service.getFleetStatus().get("currencies");
+        return (Map<String, Object>) currencies.get(currency);
+    }
+}
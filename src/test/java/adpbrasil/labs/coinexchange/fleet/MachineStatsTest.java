@@ -0,0 +1,74 @@
+package adpbrasil.labs.coinexchange.fleet;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MachineStatsTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-10T12:30:00Z");
+
+    @Test
+    public void testExchangesAreBucketedByHour() {
+        MutableClock clock = new MutableClock(NOW.minus(Duration.ofHours(2)));
+        MachineStats stats = new MachineStats(clock);
+        stats.recordExchange(10);
+        clock.now = NOW;
+        stats.recordExchange(5);
+        stats.recordExchange(20);
+
+        assertEquals(3, stats.getExchanges());
+        assertEquals(35, stats.getExchangedAmount());
+        List<Map<String, Object>> hours = stats.exchangesPerHour();
+        assertEquals(MachineStats.HOURS, hours.size());
+        assertEquals("2024-05-10T12:00:00Z", hours.get(23).get("hour"));
+        assertEquals(2L, hours.get(23).get("exchanges"));
+        assertEquals(25L, hours.get(23).get("amount"));
+        assertEquals(1L, hours.get(21).get("exchanges"));
+        assertEquals(0L, hours.get(22).get("exchanges"));
+    }
+
+    @Test
+    public void testOldSlotIsReusedAfterADay() {
+        MutableClock clock = new MutableClock(NOW.minus(Duration.ofHours(24)));
+        MachineStats stats = new MachineStats(clock);
+        stats.recordExchange(100);
+        clock.now = NOW;
+        // O bucket de ontem ocupa o mesmo slot, mas não aparece na janela atual
+        assertEquals(0L, stats.exchangesPerHour().get(23).get("exchanges"));
+        stats.recordExchange(1);
+        assertEquals(1L, stats.exchangesPerHour().get(23).get("exchanges"));
+        assertEquals(2, stats.getExchanges());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package adpbrasil.labs.coinexchange.idempotency;
+
+import adpbrasil.labs.coinexchange.config.IdempotencyProperties;
+import adpbrasil.labs.coinexchange.dto.ExchangeResponse;
+import adpbrasil.labs.coinexchange.exception.IdempotencyInProgressException;
+import adpbrasil.labs.coinexchange.exception.IdempotencyKeyReusedException;
+import adpbrasil.labs.coinexchange.exception.IdempotencyLimitException;
+import adpbrasil.labs.coinexchange.exception.InsufficientCoinsException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyCacheTest {
+
+    private static final ExchangeResponse RESPONSE = new ExchangeResponse(ExchangeResponse.SUCCESS, Map.of(25, 40));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testConcurrentDuplicatesWaitForTheFirstExecution() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(new IdempotencyProperties());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        Supplier<ExchangeResponse> exchange = () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RESPONSE;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<IdempotencyCache.Outcome> first = executor.submit(() -> cache.execute("k", "default:10", exchange));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<IdempotencyCache.Outcome> second = executor.submit(() -> cache.execute("k", "default:10", exchange));
+            Future<IdempotencyCache.Outcome> third = executor.submit(() -> cache.execute("k", "default:10", exchange));
+            Thread.sleep(50);
+            assertFalse(second.isDone());
+            release.countDown();
+
+            assertFalse(first.get(5, TimeUnit.SECONDS).replayed());
+            assertTrue(second.get(5, TimeUnit.SECONDS).replayed());
+            assertSame(RESPONSE, third.get(5, TimeUnit.SECONDS).response());
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testKeyIsBoundToTheFirstRequest() {
+        IdempotencyCache cache = new IdempotencyCache(new IdempotencyProperties());
+        cache.execute("k", "default:10", () -> RESPONSE);
+        assertThrows(IdempotencyKeyReusedException.class, () -> cache.execute("k", "default:5", () -> RESPONSE));
+        assertThrows(IllegalArgumentException.class, () -> cache.execute(" ", "default:10", () -> RESPONSE));
+        assertThrows(IllegalArgumentException.class, () -> cache.execute("k".repeat(256), "default:10", () -> RESPONSE));
+    }
+
+    @Test
+    public void testFailedExchangeFreesTheKey() {
+        IdempotencyCache cache = new IdempotencyCache(new IdempotencyProperties());
+        assertThrows(InsufficientCoinsException.class, () -> cache.execute("k", "default:10", () -> {
+            throw new InsufficientCoinsException("Not enough coins available for the exchange.");
+        }));
+        assertEquals(0, cache.size());
+        assertFalse(cache.execute("k", "default:10", () -> RESPONSE).replayed());
+    }
+
+    @Test
+    public void testDuplicateGivesUpAfterTheInFlightTimeout() throws Exception {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setInFlightTimeout(Duration.ofMillis(50));
+        IdempotencyCache cache = new IdempotencyCache(properties);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = new Thread(() -> cache.execute("k", "default:10", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RESPONSE;
+        }));
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertThrows(IdempotencyInProgressException.class, () -> cache.execute("k", "default:10", () -> RESPONSE));
+        release.countDown();
+        first.join();
+    }
+
+    @Test
+    public void testKeysExpireAndOldestAreEvicted() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setTtl(Duration.ofMinutes(10));
+        properties.setMaxKeys(3);
+        MutableClock clock = new MutableClock(Instant.parse("2025-03-01T10:00:00Z"));
+        IdempotencyCache cache = new IdempotencyCache(properties, clock);
+        for (int n = 0; n < 5; n++) {
+            cache.execute("k" + n, "default:10", () -> RESPONSE);
+        }
+        assertEquals(3, cache.size());
+        // k0 saiu pelo limite: executa de novo
+        assertFalse(cache.execute("k0", "default:10", () -> RESPONSE).replayed());
+        assertTrue(cache.execute("k4", "default:10", () -> RESPONSE).replayed());
+
+        clock.now = clock.now.plus(Duration.ofMinutes(10));
+        assertFalse(cache.execute("k4", "default:10", () -> RESPONSE).replayed());
+    }
+
+    @Test
+    public void testInFlightKeysAreNeverEvicted() throws Exception {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setMaxKeys(1);
+        IdempotencyCache cache = new IdempotencyCache(properties);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        Supplier<ExchangeResponse> slow = () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RESPONSE;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<IdempotencyCache.Outcome> first = executor.submit(() -> cache.execute("a", "default:10", slow));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // Outras chaves terminam e passam do limite enquanto "a" ainda roda
+            cache.execute("b", "default:10", () -> RESPONSE);
+            cache.execute("c", "default:10", () -> RESPONSE);
+            Future<IdempotencyCache.Outcome> retry = executor.submit(() -> cache.execute("a", "default:10", slow));
+            Thread.sleep(50);
+            assertFalse(retry.isDone());
+            release.countDown();
+
+            assertFalse(first.get(5, TimeUnit.SECONDS).replayed());
+            assertTrue(retry.get(5, TimeUnit.SECONDS).replayed());
+            assertEquals(1, executions.get());
+            assertEquals(1, cache.size());
+            assertEquals(0, cache.inFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNewKeysAreRejectedAboveTheInFlightLimit() throws Exception {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setMaxInFlight(1);
+        IdempotencyCache cache = new IdempotencyCache(properties);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = new Thread(() -> cache.execute("a", "default:10", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return RESPONSE;
+        }));
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertThrows(IdempotencyLimitException.class, () -> cache.execute("b", "default:10", () -> RESPONSE));
+        release.countDown();
+        first.join();
+        assertFalse(cache.execute("b", "default:10", () -> RESPONSE).replayed());
+        assertTrue(cache.execute("a", "default:10", () -> RESPONSE).replayed());
+    }
+
+    @Test
+    public void testPersistentKeysSurviveARestart() throws Exception {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setPersistent(true);
+        properties.setTtl(Duration.ofMinutes(10));
+        properties.setFile(directory.resolve("keys.log").toString());
+        MutableClock clock = new MutableClock(Instant.parse("2025-03-01T10:00:00Z"));
+
+        IdempotencyCache cache = new IdempotencyCache(properties, clock);
+        cache.start();
+        cache.execute("old", "default:10", () -> RESPONSE);
+        clock.now = clock.now.plus(Duration.ofMinutes(5));
+        cache.execute("new", "default:5", () -> RESPONSE);
+        cache.stop();
+        // Gravação interrompida no meio de uma linha
+        Files.writeString(directory.resolve("keys.log"), "{\"key\":\"trunc", StandardOpenOption.APPEND);
+
+        clock.now = clock.now.plus(Duration.ofMinutes(6));
+        IdempotencyCache restarted = new IdempotencyCache(properties, clock);
+        restarted.start();
+        assertEquals(1, restarted.size());
+        IdempotencyCache.Outcome outcome = restarted.execute("new", "default:5", () -> {
+            throw new AssertionError("A persisted key must not execute again");
+        });
+        assertTrue(outcome.replayed());
+        assertEquals(40, outcome.response().getChange().get(25));
+        assertFalse(restarted.execute("old", "default:10", () -> RESPONSE).replayed());
+        restarted.stop();
+        assertEquals(2, Files.readAllLines(directory.resolve("keys.log")).size());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeEngineTest {
+
+    private static final int[] COINS = {25, 10, 5, 1};
+    private static final int[] BILLS = {1, 2, 5, 10, 20, 50, 100};
+
+    private final ChangeEngine engine = new ChangeEngine(COINS, BILLS);
+
+    @Test
+    public void testCachedPlanIsUsedWhenStockCoversIt() {
+        int[] stock = {100, 100, 100, 100};
+        int[] first = engine.plan(1000, stock, true);
+        assertArrayEquals(new int[]{40, 0, 0, 0}, first);
+        // Plano pré-calculado: a mesma instância, sem alocação
+        assertSame(first, engine.plan(1000, stock, true));
+    }
+
+    @Test
+    public void testFallsBackWhenLargeCoinsAreShort() {
+        // Guloso: 3×25 + 2×10 e sobram 5 centavos sem moeda; a mochila acha 2×25 + 5×10
+        int[] stock = {3, 6, 0, 0};
+        assertArrayEquals(new int[]{2, 5, 0, 0}, engine.plan(100, stock, true));
+    }
+
+    @Test
+    public void testMinimalIsOptimalUnderStockLimits() {
+        // Guloso pegaria 25 + 5×1 (6 moedas); o ótimo são 3 moedas de 10
+        int[] stock = {1, 3, 0, 5};
+        int[] plan = engine.plan(30, stock, true);
+        assertArrayEquals(new int[]{0, 3, 0, 0}, plan);
+    }
+
+    @Test
+    public void testMaximalUsesAsManyCoinsAsPossible() {
+        // Guloso crescente usaria 97 moedas de 1 e travaria nos 3 centavos restantes
+        int[] stock = {4, 0, 1, 97};
+        int[] plan = engine.plan(100, stock, false);
+        assertArrayEquals(new int[]{0, 0, 1, 95}, plan);
+    }
+
+    @Test
+    public void testReturnsNullWhenNoCombinationExists() {
+        assertNull(engine.plan(100, new int[]{3, 0, 0, 24}, true));
+        assertNull(engine.plan(5000, new int[]{100, 100, 100, 100}, true));
+    }
+
+    @Test
+    public void testNonCanonicalDenominations() {
+        ChangeEngine custom = new ChangeEngine(new int[]{4, 3, 1}, new int[]{});
+        assertArrayEquals(new int[]{0, 2, 0}, custom.plan(6, new int[]{10, 10, 10}, true));
+    }
+
+    @Test
+    public void testLargeAmountsUseTheKnapsackUpToTheLimit() {
+        // Perto do limite o guloso (3999 × 25 e 5 centavos sem moeda de 5) falharia; a mochila troca uma de 25 por 10s
+        int[] stock = {3_999, 3, 0, 0};
+        assertArrayEquals(new int[]{3_998, 3, 0, 0}, engine.plan(ChangeEngine.MAX_CENTS - 20, stock, true));
+        assertThrows(IllegalArgumentException.class, () -> engine.plan(ChangeEngine.MAX_CENTS + 1, new int[]{10_000, 0, 0, 0}, true));
+    }
+
+    @Test
+    public void testReusedBuffersMatchExhaustiveSearch() {
+        // Valores grandes e pequenos alternados no mesmo motor: os buffers de uma chamada não vazam na outra
+        SplittableRandom random = new SplittableRandom(7);
+        for (int round = 0; round < 300; round++) {
+            int cents = round % 10 == 0 ? 20_000 + random.nextInt(1000) : random.nextInt(200);
+            int[] stock = {random.nextInt(8), random.nextInt(8), random.nextInt(8), random.nextInt(12)};
+            if (round % 10 == 0) {
+                stock[0] = 900;
+            }
+            for (boolean minimal : new boolean[]{true, false}) {
+                int[] plan = engine.plan(cents, stock, minimal);
+                Integer expected = exhaustive(cents, stock, minimal);
+                if (expected == null) {
+                    assertNull(plan, "cents=" + cents);
+                    continue;
+                }
+                assertNotNull(plan, "cents=" + cents);
+                int coins = 0;
+                int total = 0;
+                for (int i = 0; i < COINS.length; i++) {
+                    assertTrue(plan[i] >= 0 && plan[i] <= stock[i]);
+                    coins += plan[i];
+                    total += plan[i] * COINS[i];
+                }
+                assertEquals(cents, total);
+                assertEquals(expected, coins, "cents=" + cents + " minimal=" + minimal);
+            }
+        }
+    }
+
+    @Test
+    public void testPoolKeepsOnlySmallWorkspacesUpToTheLimit() throws Exception {
+        ChangeEngine pooledEngine = new ChangeEngine(COINS, BILLS);
+        int[] stock = {3, 6, 0, 0};
+        assertArrayEquals(new int[]{2, 5, 0, 0}, pooledEngine.plan(100, stock, true));
+        assertEquals(1, pooledEngine.pooledWorkspaces());
+
+        // Os buffers de um valor grande não voltam para o pool
+        assertNotNull(pooledEngine.plan(ChangeEngine.MAX_CENTS - 20, new int[]{3999, 3, 0, 0}, true));
+        assertEquals(1, pooledEngine.pooledWorkspaces());
+
+        int threads = Runtime.getRuntime().availableProcessors() * 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<int[]>> plans = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                plans.add(executor.submit(() -> {
+                    start.await();
+                    int[] plan = null;
+                    for (int i = 0; i < 200; i++) {
+                        plan = pooledEngine.plan(100, stock, true);
+                    }
+                    return plan;
+                }));
+            }
+            start.countDown();
+            for (Future<int[]> plan : plans) {
+                assertArrayEquals(new int[]{2, 5, 0, 0}, plan.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        int pooled = pooledEngine.pooledWorkspaces();
+        assertTrue(pooled >= 1 && pooled <= Runtime.getRuntime().availableProcessors(), "pooled=" + pooled);
+    }
+
+    // Melhor número de moedas por força bruta nas três maiores denominações; null se não há troco
+    private static Integer exhaustive(int cents, int[] stock, boolean minimal) {
+        Integer best = null;
+        for (int a = 0; a <= stock[0] && a * 25 <= cents; a++) {
+            for (int b = 0; b <= stock[1] && a * 25 + b * 10 <= cents; b++) {
+                for (int c = 0; c <= stock[2] && a * 25 + b * 10 + c * 5 <= cents; c++) {
+                    int d = cents - a * 25 - b * 10 - c * 5;
+                    if (d <= stock[3]) {
+                        int coins = a + b + c + d;
+                        if (best == null || (minimal ? coins < best : coins > best)) {
+                            best = coins;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+}
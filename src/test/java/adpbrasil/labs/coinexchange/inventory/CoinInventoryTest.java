@@ -0,0 +1,168 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoinInventoryTest {
+
+    private static final int[] COINS = {25, 10, 5, 1};
+    private static final int THREADS = 64;
+
+    @Test
+    public void testReserveIsAllOrNothing() {
+        CoinInventory inventory = new CoinInventory(COINS, 1);
+        assertNull(inventory.reserve(stock -> null));
+        assertArrayEquals(new int[]{1, 1, 1, 1}, inventory.snapshot());
+
+        Reservation reservation = inventory.reserve(stock -> new int[]{1, 1, 0, 1});
+        assertArrayEquals(new int[]{1, 1, 0, 1}, reservation.plan());
+        assertArrayEquals(new int[]{0, 0, 1, 0}, inventory.snapshot());
+        assertTrue(reservation.commit());
+
+        assertThrows(IllegalStateException.class, () -> inventory.reserve(stock -> new int[]{1, 0, 0, 0}));
+        assertArrayEquals(new int[]{0, 0, 1, 0}, inventory.snapshot());
+    }
+
+    @Test
+    public void testChangeIsAMapOfTheUsedCoins() {
+        CoinInventory inventory = new CoinInventory(COINS, 10);
+        CoinChange change = inventory.toChange(new int[]{3, 0, 1, 4});
+        assertEquals(Map.of(25, 3, 5, 1, 1, 4), change);
+        assertEquals(3, change.size());
+        assertNull(change.get(10));
+        assertNull(change.get(50));
+        assertEquals(84, change.totalCents());
+        List<Integer> order = new ArrayList<>();
+        change.forEach((coin, count) -> order.add(coin));
+        assertEquals(List.of(25, 5, 1), order);
+        assertEquals(List.of(25, 5, 1), new ArrayList<>(change.keySet()));
+        assertThrows(UnsupportedOperationException.class, () -> change.put(10, 1));
+    }
+
+    @Test
+    public void testRollbackReturnsCoinsOnce() {
+        CoinInventory inventory = new CoinInventory(COINS, 2);
+        Reservation reservation = inventory.reserve(stock -> new int[]{2, 1, 0, 0});
+        assertArrayEquals(new int[]{0, 1, 2, 2}, inventory.snapshot());
+
+        assertTrue(reservation.rollback());
+        assertFalse(reservation.rollback());
+        assertFalse(reservation.commit());
+        assertArrayEquals(new int[]{2, 2, 2, 2}, inventory.snapshot());
+    }
+
+    @Test
+    public void testRollbackAfterCommitIsIgnored() {
+        CoinInventory inventory = new CoinInventory(COINS, 2);
+        Reservation reservation = inventory.reserve(stock -> new int[]{1, 0, 0, 0});
+        assertTrue(reservation.commit());
+        assertFalse(reservation.rollback());
+        assertArrayEquals(new int[]{1, 2, 2, 2}, inventory.snapshot());
+    }
+
+    @Test
+    public void testTryRemoveDoesNotGoNegative() {
+        CoinInventory inventory = new CoinInventory(COINS, 5);
+        assertFalse(inventory.tryRemove(0, 6));
+        assertTrue(inventory.tryRemove(0, 5));
+        assertEquals(0, inventory.count(0));
+    }
+
+    @Test
+    public void testCapacityIsEnforced() {
+        CoinInventory inventory = new CoinInventory(COINS, new int[]{10, 10, 10, 10}, 50);
+        assertArrayEquals(new int[]{10, 10, 10, 10}, inventory.snapshot());
+        assertFalse(inventory.tryAdd(0, 1));
+        assertTrue(inventory.tryRemove(0, 3));
+        assertTrue(inventory.tryAdd(0, 3));
+        assertEquals(10, inventory.count(0));
+    }
+
+    @Test
+    public void testConcurrentReservationsDoNotLoseUpdates() throws Exception {
+        int initial = 10_000;
+        CoinInventory inventory = new CoinInventory(COINS, initial);
+        AtomicInteger reservedPlans = new AtomicInteger();
+        AtomicInteger added = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int worker = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 2_000; i++) {
+                    if (worker % 4 == 0) {
+                        inventory.tryAdd(i % COINS.length, 1);
+                        added.incrementAndGet();
+                    } else {
+                        // Cada plano leva uma moeda de cada denominação, só se todas existirem
+                        Reservation reservation = inventory.reserve(stock -> {
+                            for (int count : stock) {
+                                if (count == 0) {
+                                    return null;
+                                }
+                            }
+                            return new int[]{1, 1, 1, 1};
+                        });
+                        if (reservation != null && reservation.commit()) {
+                            reservedPlans.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int[] snapshot = inventory.snapshot();
+        long total = 0;
+        for (int count : snapshot) {
+            assertTrue(count >= 0);
+            total += count;
+        }
+        long expected = (long) initial * COINS.length + added.get() - 4L * reservedPlans.get();
+        assertEquals(expected, total);
+        // Totais mantidos incrementalmente batem com a recontagem
+        assertEquals(total, inventory.current().totalCoins());
+    }
+
+    @Test
+    public void testTotalsFollowEveryMutation() {
+        CoinInventory inventory = new CoinInventory(COINS, 2);
+        assertEquals(82, inventory.current().totalCents());
+        assertEquals(8, inventory.current().totalCoins());
+
+        inventory.tryAdd(0, 4);
+        Reservation reservation = inventory.reserve(stock -> new int[]{1, 0, 1, 0});
+        assertEquals(152, inventory.current().totalCents());
+        reservation.rollback();
+        assertEquals(182, inventory.current().totalCents());
+        assertEquals(12, inventory.current().totalCoins());
+
+        InventorySnapshot before = inventory.current();
+        inventory.tryRemove(3, 2);
+        assertEquals(182, before.totalCents());
+        assertEquals(180, inventory.current().totalCents());
+
+        inventory.reset(0);
+        assertEquals(0, inventory.current().totalCents());
+        assertEquals(0, inventory.current().totalCoins());
+    }
+}
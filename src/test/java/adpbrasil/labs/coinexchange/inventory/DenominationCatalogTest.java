@@ -0,0 +1,54 @@
+package adpbrasil.labs.coinexchange.inventory;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DenominationCatalogTest {
+
+    @Test
+    public void testDefaultCatalogIsUsd() {
+        DenominationCatalog catalog = DenominationCatalog.from(new CoinProperties());
+        assertEquals("USD", catalog.getCurrency());
+        assertArrayEquals(new int[]{25, 10, 5, 1}, catalog.coins());
+        assertEquals(0, catalog.coinIndex(25));
+        assertEquals(3, catalog.coinIndex(1));
+        assertEquals(-1, catalog.coinIndex(3));
+        assertEquals(-1, catalog.coinIndex(1000));
+        assertTrue(catalog.isBill(20));
+        assertFalse(catalog.isBill(15));
+        assertFalse(catalog.isBill(500));
+        assertEquals("1, 5, 10, 25", catalog.describeCoins());
+        assertEquals(List.of(1, 2, 5, 10, 20, 50, 100), catalog.billList());
+    }
+
+    @Test
+    public void testCustomCurrencyWithCapacity() {
+        CoinProperties.Currency brl = new CoinProperties.Currency();
+        brl.setCoins(List.of(5, 100, 10, 50, 25));
+        brl.setBills(List.of(200, 2, 5));
+        brl.setCapacity(Map.of(100, 500));
+        CoinProperties properties = new CoinProperties();
+        properties.getCurrencies().put("BRL", brl);
+        properties.setCurrency("BRL");
+
+        DenominationCatalog catalog = DenominationCatalog.from(properties);
+        assertArrayEquals(new int[]{100, 50, 25, 10, 5}, catalog.coins());
+        assertArrayEquals(new int[]{2, 5, 200}, catalog.bills());
+        assertEquals(500, catalog.capacity()[0]);
+        assertEquals(Integer.MAX_VALUE, catalog.capacity()[1]);
+        assertFalse(catalog.isBill(1));
+        assertEquals(-1, catalog.coinIndex(1));
+    }
+
+    @Test
+    public void testUnknownCurrencyFailsFast() {
+        CoinProperties properties = new CoinProperties();
+        properties.setCurrency("EUR");
+        assertThrows(IllegalStateException.class, () -> DenominationCatalog.from(properties));
+    }
+}
@@ -0,0 +1,33 @@
+package adpbrasil.labs.coinexchange.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeMapConverterTest {
+
+    private final ChangeMapConverter converter = new ChangeMapConverter();
+
+    @Test
+    public void testRoundTrip() {
+        Map<Integer, Integer> change = new LinkedHashMap<>();
+        change.put(25, 40);
+        change.put(10, 1);
+        change.put(1, 1234);
+
+        String encoded = converter.convertToDatabaseColumn(change);
+        assertEquals("25:40,10:1,1:1234", encoded);
+        assertEquals(change, converter.convertToEntityAttribute(encoded));
+    }
+
+    @Test
+    public void testEmptyAndNull() {
+        assertEquals("", converter.convertToDatabaseColumn(Map.of()));
+        assertTrue(converter.convertToEntityAttribute("").isEmpty());
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
@@ -0,0 +1,215 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.config.InventoryLogProperties;
+import adpbrasil.labs.coinexchange.exception.InsufficientCoinsException;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InventoryEventLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReopenRebuildsStateFromEvents() throws IOException {
+        try (InventoryEventLog log = InventoryEventLog.open(directory, 3, 1000)) {
+            log.append(InventoryEventLog.Type.REPLENISH, false, 10, new int[]{10, 10, 10});
+            log.append(InventoryEventLog.Type.EXCHANGE, false, 5, new int[]{1, 2, 0});
+            log.append(InventoryEventLog.Type.EXCHANGE, true, 7, new int[]{0, 0, 3});
+            log.append(InventoryEventLog.Type.ADD, false, 0, new int[]{0, 4, 0});
+            log.append(InventoryEventLog.Type.REMOVE, false, 0, new int[]{2, 0, 0});
+        }
+
+        try (InventoryEventLog log = InventoryEventLog.open(directory, 3, 1000)) {
+            InventoryEventLog.State state = log.state();
+            assertArrayEquals(new int[]{7, 12, 7}, state.coins());
+            assertEquals(Map.of(5, 1), state.bills());
+            assertEquals(7, state.totalBillsReceived());
+            assertEquals(5, state.sequence());
+            assertEquals(5, log.replayed());
+        }
+    }
+
+    @Test
+    public void testSnapshotBoundsReplayAndCompactsOldFiles() throws IOException {
+        try (InventoryEventLog log = InventoryEventLog.open(directory, 2, 10)) {
+            log.append(InventoryEventLog.Type.REPLENISH, false, 1000, new int[]{1000, 1000});
+            for (int n = 1; n < 45; n++) {
+                log.append(InventoryEventLog.Type.EXCHANGE, false, 1, new int[]{1, 0});
+            }
+        }
+
+        try (InventoryEventLog log = InventoryEventLog.open(directory, 2, 10)) {
+            InventoryEventLog.State state = log.state();
+            assertEquals(45, state.sequence());
+            assertArrayEquals(new int[]{956, 1000}, state.coins());
+            assertEquals(Map.of(1, 44), state.bills());
+            // Só os eventos depois do snapshot do evento 40
+            assertEquals(5, log.replayed());
+        }
+        assertEquals(2, count("snapshot-"));
+        assertEquals(2, count("events-"));
+    }
+
+    @Test
+    public void testIncompleteTailIsDiscarded() throws IOException {
+        try (InventoryEventLog log = InventoryEventLog.open(directory, 2, 1000)) {
+            log.append(InventoryEventLog.Type.REPLENISH, false, 10, new int[]{10, 10});
+            log.append(InventoryEventLog.Type.ADD, false, 0, new int[]{1, 0});
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("events-")).findFirst().orElseThrow();
+        }
+        // Registro pela metade, como numa queda durante o append
+        Files.write(segment, new byte[]{1, 0, 0, 0, 0, 0, 7}, StandardOpenOption.APPEND);
+
+        try (InventoryEventLog log = InventoryEventLog.open(directory, 2, 1000)) {
+            assertEquals(2, log.state().sequence());
+            log.append(InventoryEventLog.Type.ADD, false, 0, new int[]{0, 5});
+        }
+        try (InventoryEventLog log = InventoryEventLog.open(directory, 2, 1000)) {
+            assertArrayEquals(new int[]{11, 15}, log.state().coins());
+            assertEquals(3, log.state().sequence());
+        }
+    }
+
+    @Test
+    public void testDenominationMismatchIsRejected() throws IOException {
+        try (InventoryEventLog log = InventoryEventLog.open(directory, 2, 1)) {
+            log.append(InventoryEventLog.Type.REPLENISH, false, 10, new int[]{10, 10});
+        }
+        assertThrows(IllegalStateException.class, () -> InventoryEventLog.open(directory, 3, 1));
+    }
+
+    @Test
+    public void testServiceRestartRestoresMachineState() {
+        InventoryLogProperties properties = new InventoryLogProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSnapshotInterval(3);
+        CoinProperties coinProperties = new CoinProperties();
+
+        Map<Integer, Integer> inventory;
+        try (InventoryEventStore store = new InventoryEventStore(properties)) {
+            ExchangeService service = newService(coinProperties, store);
+            service.exchange(10, true, false);
+            service.exchange(5, false, false);
+            service.exchange(3, true, true);
+            service.addCoins(25, 7);
+            service.removeCoins(10, 4);
+            inventory = service.getInventory();
+        }
+
+        try (InventoryEventStore store = new InventoryEventStore(properties)) {
+            ExchangeService restarted = newService(coinProperties, store);
+            assertEquals(inventory, restarted.getInventory());
+            assertEquals(Map.of(10, 1, 5, 1), restarted.getBillsInventory().getBillInventory());
+            assertEquals(3, restarted.getBillsInventory().getTotalBillsReceived());
+        }
+    }
+
+    @Test
+    public void testConcurrentExchangesAndResetsReplayToTheSameState() throws Exception {
+        InventoryLogProperties properties = new InventoryLogProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSnapshotInterval(64);
+        CoinProperties coinProperties = new CoinProperties();
+        coinProperties.setInitialQuantity(50);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            Map<Integer, Integer> inventory = null;
+            Map<Integer, Integer> bills = null;
+            int totalBills = 0;
+            // Cada rodada recupera a máquina do log e compara com o estado em memória do fim da anterior;
+            // o último reset de uma rodada apaga a divergência de antes dele, então o que conta é a cauda
+            for (int round = 0; round < 20; round++) {
+                try (InventoryEventStore store = new InventoryEventStore(properties)) {
+                    ExchangeService service = newService(coinProperties, store);
+                    if (inventory != null) {
+                        assertEquals(inventory, service.getInventory(), "round " + round);
+                        assertEquals(bills, service.getBillsInventory().getBillInventory(), "round " + round);
+                        assertEquals(totalBills, service.getBillsInventory().getTotalBillsReceived(), "round " + round);
+                    }
+                    race(executor, service);
+                    inventory = service.getInventory();
+                    bills = service.getBillsInventory().getBillInventory();
+                    totalBills = service.getBillsInventory().getTotalBillsReceived();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Trocas em quatro threads e resets contínuos até elas terminarem: um delta gravado depois do
+    // REPLENISH que já o descartou seria aplicado duas vezes no replay
+    private static void race(ExecutorService executor, ExchangeService service) throws Exception {
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean multipleBills = t % 2 == 1;
+            tasks.add(executor.submit(() -> {
+                start.await();
+                try {
+                    for (int i = 0; i < 100; i++) {
+                        try {
+                            service.exchange(multipleBills ? 3 : 1, i % 2 == 0, multipleBills);
+                        } catch (InsufficientCoinsException e) {
+                            // Estoque esgotado até o próximo reset
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+                return null;
+            }));
+        }
+        tasks.add(executor.submit(() -> {
+            start.await();
+            while (done.getCount() > 0) {
+                service.resetInventory();
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static ExchangeService newService(CoinProperties coinProperties, InventoryEventStore store) {
+        return ExchangeService.builder(coinProperties, Mockito.mock(TransactionStore.class))
+                .inventoryLog(store)
+                .build();
+    }
+
+    private long count(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
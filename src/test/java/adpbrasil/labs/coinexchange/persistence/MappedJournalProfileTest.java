@@ -0,0 +1,76 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import adpbrasil.labs.coinexchange.service.ExchangeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles(TransactionStore.MAPPED_JOURNAL_PROFILE)
+public class MappedJournalProfileTest {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        registry.add("coin.journal.directory", () -> directory.toString());
+    }
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private ExchangeService exchangeService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testProfileRunsWithoutDatabase() {
+        assertInstanceOf(MappedTransactionStore.class, context.getBean(TransactionStore.class));
+        assertEquals(0, context.getBeanNamesForType(DataSource.class).length);
+    }
+
+    @Test
+    @WithMockUser
+    public void testExchangesAreReadBackFromJournal() throws Exception {
+        exchangeService.exchange(10, true, false);
+        mockMvc.perform(post("/api/exchange")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":5,\"minimal\":false,\"allowMultipleBills\":false}"))
+                .andExpect(status().isOk());
+
+        List<ExchangeTransaction> history = exchangeService.getTransactionHistory(null, 100);
+        assertTrue(history.size() >= 2);
+        ExchangeTransaction last = history.get(history.size() - 1);
+        assertEquals(5, last.getAmount());
+        assertEquals("default", last.getMachineId());
+
+        mockMvc.perform(get("/api/exchange/history/filter").param("minAmount", "10").param("maxAmount", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].amount").value(10));
+    }
+}
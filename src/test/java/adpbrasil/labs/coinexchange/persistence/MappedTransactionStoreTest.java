@@ -0,0 +1,145 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import adpbrasil.labs.coinexchange.config.JournalProperties;
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.repository.TransactionFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedTransactionStoreTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 10, 0, 0, 123_456_789);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testSavedTransactionsSurviveReopen() {
+        MappedTransactionStore store = open(16, 4);
+        ExchangeTransaction saved = transaction("kiosk-1", 10, true, T0, Map.of(25, 40));
+        store.save(saved);
+        store.saveAll(List.of(transaction("kiosk-2", 5, false, T0.plusSeconds(1), Map.of(25, 12, 10, 2)),
+                transaction(null, 3, false, null, null)));
+        store.close();
+
+        MappedTransactionStore reopened = open(16, 4);
+        List<ExchangeTransaction> all = reopened.find(TransactionFilter.NONE, null, 100);
+        assertEquals(3, all.size());
+        assertEquals(saved, all.get(0));
+        assertEquals(1L, all.get(0).getId());
+        assertEquals("kiosk-2", all.get(1).getMachineId());
+        assertEquals(Map.of(25, 12, 10, 2), all.get(1).getChange());
+        assertNull(all.get(2).getMachineId());
+        assertNull(all.get(2).getTransactionDate());
+        assertNull(all.get(2).getChange());
+    }
+
+    @Test
+    public void testRolloverSealsSegmentsAndCursorSkipsToId() {
+        MappedTransactionStore store = open(4, 2);
+        for (int n = 0; n < 10; n++) {
+            store.save(transaction("default", n + 1, false, T0.plusMinutes(n), Map.of(1, n + 1)));
+        }
+        store.close();
+
+        MappedTransactionStore reopened = open(4, 2);
+        assertEquals(10, reopened.count());
+        List<ExchangeTransaction> page = reopened.find(TransactionFilter.NONE, 5L, 3);
+        assertEquals(List.of(6L, 7L, 8L), page.stream().map(ExchangeTransaction::getId).toList());
+        reopened.save(transaction("default", 11, false, T0.plusMinutes(10), Map.of(1, 11)));
+        assertEquals(11L, reopened.find(TransactionFilter.NONE, 10L, 10).get(0).getId());
+    }
+
+    @Test
+    public void testFiltersUseDateIndexAndFields() throws IOException {
+        MappedTransactionStore store = open(64, 8);
+        for (int n = 0; n < 100; n++) {
+            store.save(transaction(n % 2 == 0 ? "a" : "b", n % 10 + 1, n % 3 == 0, T0.plusMinutes(n), Map.of(5, 1)));
+        }
+
+        TransactionFilter range = new TransactionFilter(T0.plusMinutes(30), T0.plusMinutes(39), null, null, null, null);
+        assertEquals(List.of(31L, 32L, 33L, 34L, 35L, 36L, 37L, 38L, 39L, 40L),
+                store.find(range, null, 100).stream().map(ExchangeTransaction::getId).toList());
+
+        TransactionFilter fields = new TransactionFilter(null, null, 5, 6, true, "b");
+        List<ExchangeTransaction> visited = new ArrayList<>();
+        long rows = store.forEach(fields, visited::add);
+        assertEquals(visited.size(), rows);
+        assertFalse(visited.isEmpty());
+        for (ExchangeTransaction tx : visited) {
+            assertEquals("b", tx.getMachineId());
+            assertTrue(tx.isMinimal());
+            assertTrue(tx.getAmount() >= 5 && tx.getAmount() <= 6);
+        }
+        assertTrue(store.find(new TransactionFilter(null, null, null, null, null, "unknown"), null, 10).isEmpty());
+    }
+
+    @Test
+    public void testCorruptedTailRecordIsOverwritten() throws IOException {
+        MappedTransactionStore store = open(16, 4);
+        for (int n = 0; n < 3; n++) {
+            store.save(transaction("default", 10, true, T0.plusSeconds(n), Map.of(25, 40)));
+        }
+        store.close();
+        // Um byte trocado no último registro: o CRC não bate e ele é descartado
+        flipByte(segment(1), JournalSegment.headerSize(16, 4) + 2 * JournalSegment.RECORD_SIZE + 17);
+
+        MappedTransactionStore reopened = open(16, 4);
+        assertEquals(2, reopened.count());
+        ExchangeTransaction next = reopened.save(transaction("default", 20, false, T0, Map.of(25, 80)));
+        assertEquals(3L, next.getId());
+    }
+
+    @Test
+    public void testCorruptedSealedSegmentFailsOnRead() throws IOException {
+        MappedTransactionStore store = open(4, 2);
+        for (int n = 0; n < 6; n++) {
+            store.save(transaction("default", 10, true, T0.plusSeconds(n), Map.of(25, 40)));
+        }
+        store.close();
+        flipByte(segment(1), JournalSegment.headerSize(4, 2) + JournalSegment.RECORD_SIZE + 17);
+
+        MappedTransactionStore reopened = open(4, 2);
+        assertThrows(IllegalStateException.class, () -> reopened.find(TransactionFilter.NONE, null, 10));
+        // O segmento corrompido não impede ler o seguinte
+        assertEquals(2, reopened.find(TransactionFilter.NONE, 4L, 10).size());
+    }
+
+    private MappedTransactionStore open(int segmentRecords, int indexStride) {
+        JournalProperties properties = new JournalProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentRecords(segmentRecords);
+        properties.setIndexStride(indexStride);
+        return new MappedTransactionStore(properties);
+    }
+
+    private Path segment(long firstId) {
+        return directory.resolve(String.format("journal-%020d.seg", firstId));
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+    }
+
+    private static ExchangeTransaction transaction(String machineId, int amount, boolean minimal,
+                                                   LocalDateTime date, Map<Integer, Integer> change) {
+        return new ExchangeTransaction(null, machineId, amount, minimal,
+                change == null ? null : new LinkedHashMap<>(change), date);
+    }
+}
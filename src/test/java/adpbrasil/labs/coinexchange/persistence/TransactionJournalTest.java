@@ -0,0 +1,179 @@
+package adpbrasil.labs.coinexchange.persistence;
+
+import adpbrasil.labs.coinexchange.config.PersistenceProperties;
+import adpbrasil.labs.coinexchange.exception.JournalFullException;
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionJournalTest {
+
+    @Test
+    public void testSyncModeSavesOnCallerThread() {
+        TransactionStore store = Mockito.mock(TransactionStore.class);
+        TransactionJournal journal = TransactionJournal.synchronous(store);
+        ExchangeTransaction transaction = new ExchangeTransaction();
+
+        journal.append(transaction);
+
+        Mockito.verify(store).save(transaction);
+        assertEquals(0, journal.pending());
+    }
+
+    @Test
+    public void testWriteBehindFlushesInBatches() throws Exception {
+        TransactionStore store = Mockito.mock(TransactionStore.class);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        CountDownLatch written = new CountDownLatch(25);
+        Mockito.doAnswer(invocation -> {
+            List<?> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                written.countDown();
+            }
+            return null;
+        }).when(store).saveAll(Mockito.anyList());
+        TransactionJournal journal = new TransactionJournal(store, writeBehind(100, 10));
+        journal.start();
+        try {
+            for (int i = 0; i < 25; i++) {
+                journal.append(new ExchangeTransaction());
+            }
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+            assertEquals(25, batchSizes.stream().mapToInt(Integer::intValue).sum());
+            assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+            Mockito.verify(store, Mockito.never()).save(Mockito.any());
+        } finally {
+            journal.stop();
+        }
+    }
+
+    @Test
+    public void testFullBufferAppliesBackpressure() {
+        TransactionStore store = Mockito.mock(TransactionStore.class);
+        // Sem start(): ninguém drena o buffer
+        TransactionJournal journal = new TransactionJournal(store, writeBehind(2, 10));
+        journal.append(new ExchangeTransaction());
+        journal.append(new ExchangeTransaction());
+        assertThrows(JournalFullException.class, () -> journal.append(new ExchangeTransaction()));
+        assertEquals(2, journal.pending());
+    }
+
+    @Test
+    public void testStopFlushesPendingTransactions() {
+        TransactionStore store = Mockito.mock(TransactionStore.class);
+        PersistenceProperties properties = writeBehind(100, 10);
+        properties.setFlushInterval(Duration.ofSeconds(30));
+        TransactionJournal journal = new TransactionJournal(store, properties);
+        journal.start();
+        for (int i = 0; i < 5; i++) {
+            journal.append(new ExchangeTransaction());
+        }
+        journal.stop();
+
+        assertEquals(0, journal.pending());
+        Mockito.verify(store, Mockito.atLeastOnce()).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    public void testPermanentFailureDropsOnlyTheBadTransaction() throws Exception {
+        TransactionStore store = Mockito.mock(TransactionStore.class);
+        List<ExchangeTransaction> saved = new CopyOnWriteArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            List<ExchangeTransaction> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(transaction -> transaction.getAmount() < 0)) {
+                throw new DataIntegrityViolationException("check constraint violated");
+            }
+            batch.forEach(transaction -> transaction.setId((long) saved.size() + 1));
+            saved.addAll(batch);
+            return null;
+        }).when(store).saveAll(Mockito.anyList());
+        Mockito.when(store.save(Mockito.any())).thenAnswer(invocation -> {
+            ExchangeTransaction transaction = invocation.getArgument(0);
+            if (transaction.getAmount() < 0) {
+                throw new DataIntegrityViolationException("check constraint violated");
+            }
+            transaction.setId((long) saved.size() + 1);
+            saved.add(transaction);
+            return transaction;
+        });
+        TransactionJournal journal = new TransactionJournal(store, writeBehind(100, 10));
+        journal.start();
+        try {
+            for (int i = 0; i < 5; i++) {
+                journal.append(transaction(1));
+            }
+            journal.append(transaction(-1));
+            for (int i = 0; i < 5; i++) {
+                journal.append(transaction(1));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (saved.size() < 10 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(10, saved.size());
+            assertTrue(saved.stream().allMatch(transaction -> transaction.getAmount() == 1));
+            assertEquals(1, journal.dropped());
+
+            // O writer continua gravando depois da linha ruim
+            journal.append(transaction(2));
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (saved.size() < 11 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(11, saved.size());
+        } finally {
+            journal.stop();
+        }
+    }
+
+    @Test
+    public void testShutdownWithTheDatabaseDownDropsWithoutThrowing() throws Exception {
+        TransactionStore store = Mockito.mock(TransactionStore.class);
+        CountDownLatch attempted = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            attempted.countDown();
+            throw new DataAccessResourceFailureException("database down");
+        }).when(store).saveAll(Mockito.anyList());
+        Mockito.when(store.save(Mockito.any())).thenThrow(new DataAccessResourceFailureException("database down"));
+        PersistenceProperties properties = writeBehind(100, 2);
+        properties.setMaxAttempts(2);
+        TransactionJournal journal = new TransactionJournal(store, properties);
+        journal.start();
+        for (int i = 0; i < 5; i++) {
+            journal.append(transaction(1));
+        }
+        assertTrue(attempted.await(5, TimeUnit.SECONDS));
+
+        assertDoesNotThrow(() -> journal.stop());
+        assertEquals(0, journal.pending());
+        assertEquals(5, journal.dropped());
+    }
+
+    private static ExchangeTransaction transaction(int amount) {
+        ExchangeTransaction transaction = new ExchangeTransaction();
+        transaction.setAmount(amount);
+        return transaction;
+    }
+
+    private PersistenceProperties writeBehind(int capacity, int batchSize) {
+        PersistenceProperties properties = new PersistenceProperties();
+        properties.setMode(PersistenceProperties.Mode.WRITE_BEHIND);
+        properties.setBufferCapacity(capacity);
+        properties.setBatchSize(batchSize);
+        properties.setFlushInterval(Duration.ofMillis(20));
+        properties.setOfferTimeout(Duration.ofMillis(10));
+        return properties;
+    }
+}
@@ -0,0 +1,232 @@
+package adpbrasil.labs.coinexchange.push;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.config.PushProperties;
+import adpbrasil.labs.coinexchange.dto.InventoryEvent;
+import adpbrasil.labs.coinexchange.exception.SubscriberLimitException;
+import adpbrasil.labs.coinexchange.fleet.CoinMachine;
+import adpbrasil.labs.coinexchange.fleet.MachineRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MachineEventHubTest {
+
+    private PushProperties properties;
+    private MachineRegistry registry;
+    private CoinMachine machine;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new PushProperties();
+        registry = new MachineRegistry(new CoinProperties());
+        machine = registry.getDefault();
+        machine.reset(10);
+    }
+
+    @Test
+    public void testChangesInOneWindowAreCoalescedIntoOneDelta() throws Exception {
+        MachineEventHub hub = new MachineEventHub(properties, registry);
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        hub.subscribe(MachineRegistry.DEFAULT_MACHINE, emitter);
+        await(() -> emitter.events.size() == 1);
+        assertEquals(MachineEventHub.INVENTORY_EVENT, emitter.events.get(0).name());
+        assertEquals(10, emitter.events.get(0).payload().getCoins().get(25));
+
+        machine.removeCoins(25, 3);
+        machine.removeCoins(25, 2);
+        machine.addCoins(1, 4);
+        hub.flush();
+        hub.flush();
+        await(() -> emitter.events.size() == 2);
+        Event delta = emitter.events.get(1);
+        assertEquals(MachineEventHub.DELTA_EVENT, delta.name());
+        assertEquals(Map.of(25, -5, 1, 4), delta.payload().getCoins());
+        assertTrue(delta.payload().isOperational());
+
+        // Sem mudança, nada a enviar
+        hub.flush();
+        Thread.sleep(50);
+        assertEquals(2, emitter.events.size());
+    }
+
+    @Test
+    public void testStatusEventWhenMachineRunsOutOfCoins() throws Exception {
+        MachineEventHub hub = new MachineEventHub(properties, registry);
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        hub.subscribe(MachineRegistry.DEFAULT_MACHINE, emitter);
+        for (Map.Entry<Integer, Integer> coin : machine.getCoinInventory().asMap().entrySet()) {
+            machine.removeCoins(coin.getKey(), coin.getValue());
+        }
+        hub.flush();
+        await(() -> emitter.events.size() == 3);
+        assertEquals(MachineEventHub.STATUS_EVENT, emitter.events.get(2).name());
+        assertFalse(emitter.events.get(2).payload().isOperational());
+        assertEquals(0, emitter.events.get(2).payload().getTotalCents());
+    }
+
+    @Test
+    public void testSlowSubscriberIsDroppedWithoutBlockingOthers() throws Exception {
+        properties.setSendBuffer(2);
+        MachineEventHub hub = new MachineEventHub(properties, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter(null);
+        hub.subscribe(MachineRegistry.DEFAULT_MACHINE, slow);
+        hub.subscribe(MachineRegistry.DEFAULT_MACHINE, fast);
+        // O primeiro evento do cliente lento fica preso no envio
+        await(() -> slow.sending);
+
+        for (int n = 0; n < 3; n++) {
+            machine.removeCoins(25, 1);
+            hub.flush();
+            int expected = n + 2;
+            await(() -> fast.events.size() == expected);
+        }
+        assertEquals(1, hub.subscriberCount());
+        await(() -> slow.completed);
+        release.countDown();
+    }
+
+    @Test
+    public void testSubscriberLimit() {
+        properties.setMaxSubscribers(1);
+        MachineEventHub hub = new MachineEventHub(properties, registry);
+        hub.subscribe(MachineRegistry.DEFAULT_MACHINE, new RecordingEmitter(null));
+        assertThrows(SubscriberLimitException.class,
+                () -> hub.subscribe(MachineRegistry.DEFAULT_MACHINE, new RecordingEmitter(null)));
+    }
+
+    @Test
+    public void testConcurrentSubscribersDoNotExceedTheLimit() throws Exception {
+        properties.setMaxSubscribers(4);
+        MachineEventHub hub = new MachineEventHub(properties, registry);
+        int threads = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int n = 0; n < threads; n++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        hub.subscribe(MachineRegistry.DEFAULT_MACHINE, new RecordingEmitter(null));
+                        accepted.incrementAndGet();
+                    } catch (SubscriberLimitException e) {
+                        // esperado acima do limite
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(4, accepted.get());
+        assertEquals(4, hub.subscriberCount());
+    }
+
+    @Test
+    public void testInitialInventoryIsAlwaysTheFirstEvent() throws Exception {
+        properties.setMaxSubscribers(1000);
+        MachineEventHub hub = new MachineEventHub(properties, registry);
+        AtomicBoolean running = new AtomicBoolean(true);
+        // Estoque mudando e flush rodando enquanto os assinantes entram
+        Thread churn = new Thread(() -> {
+            while (running.get()) {
+                machine.addCoins(1, 1);
+                hub.flush();
+                machine.removeCoins(1, 1);
+                hub.flush();
+            }
+        });
+        churn.start();
+        List<RecordingEmitter> emitters = new ArrayList<>();
+        try {
+            for (int n = 0; n < 500; n++) {
+                RecordingEmitter emitter = new RecordingEmitter(null);
+                hub.subscribe(MachineRegistry.DEFAULT_MACHINE, emitter);
+                emitters.add(emitter);
+            }
+        } finally {
+            running.set(false);
+            churn.join();
+        }
+        for (RecordingEmitter emitter : emitters) {
+            await(() -> !emitter.events.isEmpty());
+            assertEquals(MachineEventHub.INVENTORY_EVENT, emitter.events.get(0).name());
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the event stream");
+            Thread.sleep(5);
+        }
+    }
+
+    private record Event(String name, InventoryEvent payload) {
+    }
+
+    /**
+     * Emitter sem conexão: guarda os eventos enviados e, com um latch, simula um cliente que não lê.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<Event> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private volatile boolean sending;
+        private volatile boolean completed;
+
+        private RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending = true;
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String name = null;
+            InventoryEvent payload = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof InventoryEvent event) {
+                    payload = event;
+                } else if (part.getData() instanceof String text && text.startsWith("event:")) {
+                    name = text.substring("event:".length(), text.indexOf('\n'));
+                }
+            }
+            events.add(new Event(name, payload));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package adpbrasil.labs.coinexchange.reactive;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.dto.ExchangeTransactionDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+public class ReactiveExchangeControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveExchangeService exchangeService;
+
+    @Autowired
+    private ReactiveExchangeTransactionRepository transactionRepository;
+
+    @Autowired
+    private CoinProperties coinProperties;
+
+    @BeforeEach
+    public void setUp() {
+        coinProperties.setInitialQuantity(100);
+        exchangeService.resetInventory();
+        transactionRepository.deleteAll().block();
+    }
+
+    private WebTestClient client() {
+        return webTestClient.mutate()
+                .defaultHeaders(headers -> headers.setBasicAuth("klinton", "klinton123"))
+                .build();
+    }
+
+    @Test
+    public void testExchangeIsPersistedAndListedInHistory() {
+        client().post().uri("/api/exchange")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"amount\": 10, \"allowMultipleBills\": false, \"minimal\": true }")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Exchange successful.")
+                .jsonPath("$.change.25").isEqualTo(40);
+        client().post().uri("/api/exchange")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"amount\": 5, \"allowMultipleBills\": false, \"minimal\": true }")
+                .exchange()
+                .expectStatus().isOk();
+
+        // Página cheia traz o cursor da próxima, como na aplicação servlet
+        List<ExchangeTransactionDto> firstPage = client().get().uri("/api/exchange/history?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("X-Next-Cursor")
+                .expectBodyList(ExchangeTransactionDto.class)
+                .returnResult().getResponseBody();
+        assertEquals(1, firstPage.size());
+        assertEquals(10, firstPage.get(0).getAmount());
+        assertEquals(Map.of(25, 40), firstPage.get(0).getChange());
+
+        client().get().uri("/api/exchange/history?limit=1&after=" + firstPage.get(0).getId())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("X-Next-Cursor")
+                .expectBodyList(ExchangeTransactionDto.class).hasSize(1);
+
+        client().get().uri("/api/exchange/history/filter?minAmount=6")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("X-Next-Cursor")
+                .expectBodyList(ExchangeTransactionDto.class).hasSize(1);
+
+        // Com intervalo de valor a página segue (amount, id): o $5 vem antes do $10, gravado primeiro
+        List<ExchangeTransactionDto> byAmount = client().get().uri("/api/exchange/history/filter?minAmount=1&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("X-Next-Cursor")
+                .expectBodyList(ExchangeTransactionDto.class)
+                .returnResult().getResponseBody();
+        assertEquals(5, byAmount.get(0).getAmount());
+        client().get().uri("/api/exchange/history/filter?minAmount=1&limit=1&after=" + byAmount.get(0).getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].amount").isEqualTo(10);
+
+        client().get().uri("/api/exchange/bills")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.billInventory.10").isEqualTo(1)
+                .jsonPath("$.billInventory.5").isEqualTo(1);
+    }
+
+    @Test
+    public void testInvalidRequestsAreRejected() {
+        client().post().uri("/api/exchange")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"amount\": 15, \"allowMultipleBills\": false, \"minimal\": true }")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").exists();
+
+        client().post().uri("/api/exchange")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"allowMultipleBills\": false }")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.amount").isEqualTo("Amount is required");
+
+        client().get().uri("/api/exchange/machines/unknown-kiosk/status")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        webTestClient.get().uri("/api/exchange/status")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void testInventoryEndpoints() {
+        client().post().uri("/api/exchange/inventory/remove")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"coinValue\": 25, \"quantity\": 100 }")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.inventory.25").isEqualTo(0);
+
+        client().get().uri("/api/exchange/inventory")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.total").isEqualTo(1600);
+
+        client().get().uri("/api/exchange/status")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.totalValue").isEqualTo("$16.0");
+    }
+
+    @Test
+    public void testFailedWriteReturnsReservedCoins() {
+        ReactiveExchangeTransactionRepository failing = Mockito.mock(ReactiveExchangeTransactionRepository.class);
+        Mockito.when(failing.save(Mockito.any())).thenReturn(Mono.error(new IllegalStateException("database down")));
+        ReactiveExchangeService service = new ReactiveExchangeService(coinProperties, failing, null);
+
+        StepVerifier.create(service.exchange("default", 10, true, false))
+                .expectError(IllegalStateException.class)
+                .verify();
+        assertEquals(100, service.getInventory("default").get(25));
+        assertEquals(0, service.getBillsInventory("default").getBillInventory().size());
+    }
+
+    @Test
+    public void testCancelAfterTheInsertStillConfirmsTheExchange() throws Exception {
+        // O INSERT é feito e a resposta do banco demora: o cancelamento chega com a linha já gravada
+        CountDownLatch inserted = new CountDownLatch(1);
+        ReactiveExchangeTransactionRepository slow = Mockito.mock(ReactiveExchangeTransactionRepository.class);
+        Mockito.when(slow.save(Mockito.any())).thenAnswer(invocation -> transactionRepository
+                .save(invocation.<ExchangeTransactionRecord>getArgument(0))
+                .doOnNext(saved -> inserted.countDown())
+                .delayElement(Duration.ofMillis(200)));
+        ReactiveExchangeService service = new ReactiveExchangeService(coinProperties, slow, null);
+
+        Disposable request = service.exchange("default", 10, true, false).subscribe();
+        assertTrue(inserted.await(5, TimeUnit.SECONDS));
+        request.dispose();
+
+        assertEquals(1, transactionRepository.count().block());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getBillsInventory("default").getBillInventory().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Map.of(10, 1), service.getBillsInventory("default").getBillInventory());
+        assertEquals(60, service.getInventory("default").get(25));
+    }
+}
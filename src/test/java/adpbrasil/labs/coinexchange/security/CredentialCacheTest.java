@@ -0,0 +1,127 @@
+package adpbrasil.labs.coinexchange.security;
+
+import adpbrasil.labs.coinexchange.config.CredentialCacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CredentialCacheTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-10T12:30:00Z");
+
+    private static CredentialCacheProperties properties(Duration ttl, int maxSize) {
+        CredentialCacheProperties properties = new CredentialCacheProperties();
+        properties.setTtl(ttl);
+        properties.setMaxSize(maxSize);
+        return properties;
+    }
+
+    private static Authentication authenticated(String username) {
+        return UsernamePasswordAuthenticationToken.authenticated(username, null, User.withUsername(username)
+                .password("x").roles("USER").build().getAuthorities());
+    }
+
+    @Test
+    public void testEntryMatchesOnlySamePasswordAndExpires() {
+        MutableClock clock = new MutableClock(NOW);
+        CredentialCache cache = new CredentialCache(properties(Duration.ofSeconds(60), 10), clock);
+        assertTrue(cache.store("kiosk", "secret", authenticated("kiosk"), cache.generation()));
+
+        Authentication hit = cache.lookup("kiosk", "secret");
+        assertNotNull(hit);
+        assertTrue(hit.isAuthenticated());
+        assertEquals("kiosk", hit.getName());
+        assertNull(hit.getCredentials());
+        assertNull(cache.lookup("kiosk", "wrong"));
+        assertNull(cache.lookup("other", "secret"));
+
+        clock.now = NOW.plusSeconds(60);
+        assertNull(cache.lookup("kiosk", "secret"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSizeIsBoundedByLeastRecentlyUsed() {
+        CredentialCache cache = new CredentialCache(properties(Duration.ofSeconds(60), 2), new MutableClock(NOW));
+        cache.store("a", "1", authenticated("a"), cache.generation());
+        cache.store("b", "2", authenticated("b"), cache.generation());
+        assertNotNull(cache.lookup("a", "1"));
+        cache.store("c", "3", authenticated("c"), cache.generation());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.lookup("a", "1"));
+        assertNull(cache.lookup("b", "2"));
+        assertNotNull(cache.lookup("c", "3"));
+    }
+
+    @Test
+    public void testInvalidationDuringVerificationDiscardsResult() {
+        CredentialCache cache = new CredentialCache(properties(Duration.ofSeconds(60), 10), new MutableClock(NOW));
+        long generation = cache.generation();
+        cache.invalidate("kiosk");
+        assertFalse(cache.store("kiosk", "secret", authenticated("kiosk"), generation));
+        assertNull(cache.lookup("kiosk", "secret"));
+    }
+
+    @Test
+    public void testProviderSkipsPasswordCheckUntilUserChanges() {
+        CredentialCache cache = new CredentialCache(properties(Duration.ofSeconds(60), 10), new MutableClock(NOW));
+        InvalidatingUserDetailsManager users = new InvalidatingUserDetailsManager(cache,
+                User.withUsername("kiosk").password("{noop}secret").roles("USER").build());
+        AtomicInteger loads = new AtomicInteger();
+        DaoAuthenticationProvider dao = new DaoAuthenticationProvider(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        dao.setUserDetailsService(username -> {
+            loads.incrementAndGet();
+            return users.loadUserByUsername(username);
+        });
+        CachingAuthenticationProvider provider = new CachingAuthenticationProvider(dao, cache);
+
+        provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("kiosk", "secret"));
+        provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("kiosk", "secret"));
+        assertEquals(1, loads.get());
+        assertThrows(BadCredentialsException.class,
+                () -> provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("kiosk", "wrong")));
+
+        users.updateUser(User.withUsername("kiosk").password("{noop}rotated").roles("USER").build());
+        assertThrows(BadCredentialsException.class,
+                () -> provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("kiosk", "secret")));
+        assertTrue(provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("kiosk", "rotated"))
+                .isAuthenticated());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -2,9 +2,14 @@ package adpbrasil.labs.coinexchange.service;
 
 import adpbrasil.labs.coinexchange.config.CoinProperties;
 import adpbrasil.labs.coinexchange.dto.BillsInventoryResponse;
+import adpbrasil.labs.coinexchange.dto.BulkExchangeResponse;
+import adpbrasil.labs.coinexchange.dto.ExchangeRequest;
 import adpbrasil.labs.coinexchange.exception.InsufficientCoinsException;
+import adpbrasil.labs.coinexchange.inventory.ChangeEngine;
 import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
 import adpbrasil.labs.coinexchange.repository.ExchangeTransactionRepository;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -12,8 +17,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,6 +40,9 @@ public class ExchangeServiceTest {
     @Autowired
     private CoinProperties coinProperties;
 
+    @Autowired
+    private TransactionStore transactionStore;
+
     private ExchangeService service;
 
     @BeforeEach
@@ -36,7 +50,7 @@ public class ExchangeServiceTest {
         coinProperties.setInitialQuantity(100);
         exchangeService.resetInventory();
         transactionRepository.deleteAll();
-        service = new ExchangeService(coinProperties, Mockito.mock(ExchangeTransactionRepository.class));
+        service = ExchangeService.builder(coinProperties, Mockito.mock(TransactionStore.class)).build();
     }
 
     @Test
@@ -90,6 +104,16 @@ public class ExchangeServiceTest {
         assertEquals("When multiple bills are allowed, amount must be greater than 1.", exception.getMessage());
     }
 
+    @Test
+    public void testExchangeAboveTheChangeLimitIsRejected() {
+        // O valor vem do cliente: acima do limite é recusado na validação, antes de qualquer cálculo de troco
+        Map<Integer, Integer> before = exchangeService.getInventory();
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+                exchangeService.exchange(ChangeEngine.MAX_CENTS / 100 + 1, true, true));
+        assertEquals("When multiple bills are allowed, amount must be at most 1000.", exception.getMessage());
+        assertEquals(before, exchangeService.getInventory());
+    }
+
     @Test
     public void testExchangeInvalidBillWhenNotAllowedMultiple() {
         // Cenário: allowMultipleBills = false, e o valor (por exemplo, 15) não é uma cédula válida
@@ -118,6 +142,76 @@ public class ExchangeServiceTest {
         assertTrue(coinInventory.get(25) < 100);
     }
 
+    @Test
+    public void testBulkExchangeReportsEachItem() {
+        // $41 em estoque: os dois primeiros cabem, o terceiro não; o quarto é uma cédula inválida
+        List<ExchangeRequest> requests = List.of(
+                new ExchangeRequest(20, false, true),
+                new ExchangeRequest(20, false, true),
+                new ExchangeRequest(5, false, true),
+                new ExchangeRequest(3, false, true));
+        BulkExchangeResponse response = exchangeService.exchangeBulk(requests, false);
+
+        assertEquals(2, response.getAccepted());
+        assertEquals(2, response.getRejected());
+        assertTrue(response.getResults().get(0).isSuccess());
+        assertTrue(response.getResults().get(1).isSuccess());
+        assertFalse(response.getResults().get(2).isSuccess());
+        assertTrue(response.getResults().get(3).getError().startsWith("Invalid bill"));
+        assertEquals(2, transactionRepository.count());
+        assertEquals(100L, (long) exchangeService.getStats().get("totalCents"));
+        assertEquals(2, exchangeService.getBillsInventory().getBillInventory().get(20));
+    }
+
+    @Test
+    public void testAtomicBulkExchangeAppliesNothingOnFailure() {
+        List<ExchangeRequest> requests = List.of(
+                new ExchangeRequest(20, false, true),
+                new ExchangeRequest(20, false, true),
+                new ExchangeRequest(5, false, true));
+
+        InsufficientCoinsException ex = assertThrows(InsufficientCoinsException.class,
+                () -> exchangeService.exchangeBulk(requests, true));
+        assertTrue(ex.getMessage().contains("#2"));
+        assertEquals(4100L, (long) exchangeService.getStats().get("totalCents"));
+        assertEquals(0, transactionRepository.count());
+        assertTrue(exchangeService.getBillsInventory().getBillInventory().isEmpty());
+    }
+
+    @Test
+    public void testExchangeMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ExchangeService measured = ExchangeService.builder(coinProperties, transactionStore)
+                .meterRegistry(registry)
+                .build();
+        measured.exchange(10, true, false);
+        measured.removeCoins(25, 60);
+        assertThrows(InsufficientCoinsException.class, () -> measured.exchange(100, true, false));
+
+        for (String phase : List.of("validate", "plan", "reserve", "persist")) {
+            assertEquals(phase.equals("persist") ? 1 : 2, registry.get("coin.exchange").tag("phase", phase).timer().count(), phase);
+        }
+        assertEquals(1.0, registry.get("coin.exchange.insufficient").tag("amount", "100").counter().count());
+        assertEquals(40.0, registry.get("coin.change.coins").summary().totalAmount());
+        // Gauges leem o inventário vivo: 100 - 40 do troco - 60 removidas
+        assertEquals(0.0, registry.get("coin.inventory.coins").tag("denomination", "25").gauge().value());
+        measured.addCoins(25, 5);
+        assertEquals(5.0, registry.get("coin.inventory.coins").tag("denomination", "25").gauge().value());
+    }
+
+    @Test
+    public void testStatsTrackExchanges() {
+        exchangeService.exchange(10, true, false);
+        exchangeService.exchange(5, true, false);
+        Map<String, Object> stats = exchangeService.getStats();
+        assertEquals(2L, stats.get("exchanges"));
+        assertEquals(15L, stats.get("exchangedAmount"));
+        // 100 moedas de cada (25+10+5+1) menos $15 de troco
+        assertEquals(4100L - 1500L, stats.get("totalCents"));
+        assertEquals(1, exchangeService.getBillsInventory().getBillInventory().get(10));
+        assertEquals(2600, exchangeService.getInventoryResponse("default").getTotal());
+    }
+
     @Test
     public void testTransactionHistory() {
         List<ExchangeTransaction> history = exchangeService.getTransactionHistory();
@@ -220,6 +314,78 @@ public class ExchangeServiceTest {
         assertEquals(2, filtered.size());
     }
 
+    @Test
+    public void testHistoryKeysetPagination() {
+        for (int i = 0; i < 5; i++) {
+            exchangeService.exchange(1, true, false);
+        }
+        exchangeService.exchange(2, true, false);
+
+        List<ExchangeTransaction> first = exchangeService.getTransactionHistory(null, 2);
+        assertEquals(2, first.size());
+        List<ExchangeTransaction> second = exchangeService.getTransactionHistory(first.get(1).getId(), 2);
+        assertEquals(2, second.size());
+        assertTrue(second.get(0).getId() > first.get(1).getId());
+
+        // Filtro e cursor combinados: só as trocas de $1 depois do primeiro item
+        List<ExchangeTransaction> filtered = exchangeService.filterTransactionHistory(
+                null, null, 1, 1, null, "default", first.get(0).getId(), 10);
+        assertEquals(4, filtered.size());
+        assertTrue(filtered.stream().allMatch(t -> t.getAmount() == 1));
+    }
+
+    @Test
+    public void testRangeFiltersPageInTheIndexOrder() {
+        // Datas e valores fora da ordem de id, com empates para o id desempatar
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        int[] minutesAgo = {5, 40, 5, 20, 60, 5, 30};
+        int[] amounts = {3, 1, 2, 1, 5, 3, 2};
+        for (int i = 0; i < minutesAgo.length; i++) {
+            ExchangeTransaction transaction = new ExchangeTransaction();
+            transaction.setMachineId("default");
+            transaction.setAmount(amounts[i]);
+            transaction.setMinimal(true);
+            transaction.setChange(Map.of(25, 4));
+            transaction.setTransactionDate(now.minusMinutes(minutesAgo[i]));
+            transactionRepository.saveAndFlush(transaction);
+        }
+
+        List<ExchangeTransaction> byDate = pageAll(now.minusHours(2), now, null, null);
+        assertEquals(minutesAgo.length, byDate.size());
+        for (int i = 1; i < byDate.size(); i++) {
+            ExchangeTransaction previous = byDate.get(i - 1);
+            ExchangeTransaction current = byDate.get(i);
+            int compare = previous.getTransactionDate().compareTo(current.getTransactionDate());
+            assertTrue(compare < 0 || compare == 0 && previous.getId() < current.getId());
+        }
+
+        List<ExchangeTransaction> byAmount = pageAll(null, null, 1, 10);
+        assertEquals(amounts.length, byAmount.size());
+        for (int i = 1; i < byAmount.size(); i++) {
+            ExchangeTransaction previous = byAmount.get(i - 1);
+            ExchangeTransaction current = byAmount.get(i);
+            assertTrue(previous.getAmount() < current.getAmount()
+                    || previous.getAmount() == current.getAmount() && previous.getId() < current.getId());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> exchangeService.filterTransactionHistory(
+                now.minusHours(2), now, null, null, null, null, Long.MAX_VALUE, 2));
+    }
+
+    // Percorre o filtro em páginas de 2, cada uma a partir do último id da anterior
+    private List<ExchangeTransaction> pageAll(LocalDateTime startDate, LocalDateTime endDate,
+                                              Integer minAmount, Integer maxAmount) {
+        List<ExchangeTransaction> all = new ArrayList<>();
+        Long after = null;
+        List<ExchangeTransaction> page;
+        do {
+            page = exchangeService.filterTransactionHistory(startDate, endDate, minAmount, maxAmount, null, null, after, 2);
+            all.addAll(page);
+            after = page.isEmpty() ? null : page.get(page.size() - 1).getId();
+        } while (page.size() == 2);
+        return all;
+    }
+
     @Test
     public void testGetBillsInventory() {
         // Realiza uma troca com allowMultipleBills = false (cédula única)
@@ -268,6 +434,65 @@ public class ExchangeServiceTest {
         assertEquals("Coin value must be one of: 1, 5, 10, 25.", exception.getMessage());
     }
 
+    @Test
+    public void testConcurrentExchangesKeepInventoryConsistent() throws Exception {
+        // 64 threads trocando cédulas de $1 contra o mesmo inventário: nenhuma moeda pode sumir ou duplicar
+        int threads = 64;
+        AtomicInteger successes = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++) {
+                    try {
+                        service.exchange(1, true, false);
+                        successes.incrementAndGet();
+                    } catch (InsufficientCoinsException ignored) {
+                        // estoque esgotado
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        int totalCents = service.getInventory().entrySet().stream()
+                .mapToInt(e -> e.getKey() * e.getValue())
+                .sum();
+        assertEquals(4100 - successes.get() * 100, totalCents);
+        assertEquals(successes.get(), service.getBillsInventory().getBillInventory().get(1));
+    }
+
+    @Test
+    public void testInsufficientCoinsLeavesMachineUntouched() {
+        Map<Integer, Integer> before = exchangeService.getInventory();
+        assertThrows(InsufficientCoinsException.class, () ->
+                exchangeService.exchange(50, true, false)
+        );
+        assertEquals(before, exchangeService.getInventory());
+        assertTrue(exchangeService.getBillsInventory().getBillInventory().isEmpty());
+    }
+
+    @Test
+    public void testFailedSaveRollsBackReservation() {
+        // Se a persistência falhar, as moedas reservadas voltam e o bill não é registrado
+        TransactionStore failingStore = Mockito.mock(TransactionStore.class);
+        Mockito.when(failingStore.save(Mockito.any())).thenThrow(new IllegalStateException("database down"));
+        ExchangeService failingService = ExchangeService.builder(coinProperties, failingStore).build();
+        Map<Integer, Integer> before = failingService.getInventory();
+
+        assertThrows(IllegalStateException.class, () -> failingService.exchange(10, true, false));
+        assertEquals(before, failingService.getInventory());
+        assertTrue(failingService.getBillsInventory().getBillInventory().isEmpty());
+        assertEquals(0, failingService.getBillsInventory().getTotalBillsReceived());
+    }
+
     @Test
     public void testRemoveCoinsWithInvalidValue() {
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -0,0 +1,138 @@
+package adpbrasil.labs.coinexchange.simulation;
+
+import adpbrasil.labs.coinexchange.config.CoinProperties;
+import adpbrasil.labs.coinexchange.config.SimulationProperties;
+import adpbrasil.labs.coinexchange.dto.SimulationResponse;
+import adpbrasil.labs.coinexchange.fleet.CoinMachine;
+import adpbrasil.labs.coinexchange.fleet.MachineRegistry;
+import adpbrasil.labs.coinexchange.inventory.ChangeEngine;
+import adpbrasil.labs.coinexchange.model.ExchangeTransaction;
+import adpbrasil.labs.coinexchange.repository.TransactionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReplenishmentSimulatorTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    private MachineRegistry registry;
+    private TransactionStore store;
+    private ReplenishmentSimulator simulator;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new MachineRegistry(new CoinProperties());
+        store = mock(TransactionStore.class);
+        SimulationProperties properties = new SimulationProperties();
+        properties.setParallelism(4);
+        simulator = new ReplenishmentSimulator(properties, new CoinProperties(), registry, store);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        simulator.close();
+    }
+
+    @Test
+    public void testDemandIsLearnedFromHistory() throws Exception {
+        history(10, 10, 10, 5);
+        DemandModel demand = DemandModel.learn(store, "default", NOW.minusDays(30), NOW);
+        assertEquals(DemandModel.HISTORY, demand.getSource());
+        assertEquals(4, demand.getObserved());
+        // Quatro trocas em dez horas
+        assertEquals(0.4, demand.getExchangesPerHour(), 1e-9);
+        assertEquals(2, demand.requests());
+
+        SplittableRandom random = new SplittableRandom(7);
+        int tens = 0;
+        for (int n = 0; n < 100_000; n++) {
+            if (demand.amount(demand.sample(random)) == 10) {
+                tens++;
+            }
+        }
+        assertEquals(0.75, tens / 100_000.0, 0.01);
+        assertNull(DemandModel.learn(mock(TransactionStore.class), "default", NOW.minusDays(30), NOW));
+    }
+
+    @Test
+    public void testTransactionsAboveTheLimitAreNotObserved() throws Exception {
+        int aboveLimit = ChangeEngine.MAX_CENTS / 100 + 1;
+        history(10, 10, 10, 5, aboveLimit, aboveLimit);
+        DemandModel demand = DemandModel.learn(store, "default", NOW.minusDays(30), NOW);
+        assertEquals(4, demand.getObserved());
+        assertEquals(0.4, demand.getExchangesPerHour(), 1e-9);
+        assertEquals(2, demand.requests());
+    }
+
+    @Test
+    public void testDepletionAndRefillForAFixedBill() throws Exception {
+        history(10, 10);
+        DemandModel demand = DemandModel.learn(store, "default", NOW.minusDays(30), NOW);
+        CoinMachine machine = registry.getDefault();
+        SimulationResponse response = simulator.simulate(machine, demand, new int[]{100, 100, 100, 100}, 2000, 24, 42L);
+
+        // Toda troca de 10 dólares esgota da mesma forma; só o tempo varia
+        assertEquals(2000, response.getDepletedRuns());
+        assertEquals(response.getExchangesToDepletion().get("p5"), response.getExchangesToDepletion().get("p95"));
+        assertTrue(response.getHoursToDepletion().get("p5") < response.getHoursToDepletion().get("p50"));
+        assertTrue(response.getHoursToDepletion().get("p50") < response.getHoursToDepletion().get("p95"));
+
+        // Duas trocas em dez horas: ~4,8 trocas por dia, 40 moedas de 25 cada; o p95 fica acima da média
+        int quarters = response.getRecommendedStock().get(25);
+        assertTrue(quarters > 192 && quarters % 40 == 0, "recommended " + quarters);
+        assertEquals(quarters - 100, response.getRefill().get(25));
+        assertEquals(0, response.getRecommendedStock().get(1));
+        assertEquals(0, response.getRefill().get(1));
+        assertEquals(Map.of(25, 100, 10, 100, 5, 100, 1, 100), response.getStartingStock());
+    }
+
+    @Test
+    public void testSameSeedGivesTheSameResult() throws Exception {
+        history(10, 5, 20, 2, 50);
+        DemandModel demand = DemandModel.learn(store, "default", NOW.minusDays(30), NOW);
+        CoinMachine machine = registry.getDefault();
+        SimulationResponse first = simulator.simulate(machine, demand, new int[]{500, 500, 500, 500}, 300, 12, 99L);
+        SimulationResponse second = simulator.simulate(machine, demand, new int[]{500, 500, 500, 500}, 300, 12, 99L);
+        assertEquals(first.getHoursToDepletion(), second.getHoursToDepletion());
+        assertEquals(first.getExchangesToDepletion(), second.getExchangesToDepletion());
+        assertEquals(first.getRecommendedStock(), second.getRecommendedStock());
+        assertEquals(first.getSimulatedExchanges(), second.getSimulatedExchanges());
+    }
+
+    @Test
+    public void testInvalidRequests() {
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulate("default", 0, null, false, null, 1L));
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulate("default", 10, -1, false, null, 1L));
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulate("default", 10, null, false, 0.0, 1L));
+    }
+
+    @Test
+    public void testWithoutHistoryEveryBillIsEquallyLikely() {
+        SimulationResponse response = simulator.simulate("default", 100, 1000, false, 1.0, 1L);
+        assertEquals(DemandModel.UNIFORM, response.getDemandSource());
+        assertEquals(60, response.getExchangesPerHour());
+        assertTrue(response.getSimulatedExchanges() > 0);
+    }
+
+    // Uma troca por hora, a primeira dez horas antes de NOW
+    private void history(int... amounts) throws Exception {
+        when(store.forEach(any(), any())).thenAnswer(invocation -> {
+            TransactionStore.TransactionVisitor visitor = invocation.getArgument(1);
+            for (int n = 0; n < amounts.length; n++) {
+                visitor.visit(new ExchangeTransaction((long) n, "default", amounts[n], true, Map.of(),
+                        NOW.minusHours(10 - n)));
+            }
+            return (long) amounts.length;
+        });
+    }
+}